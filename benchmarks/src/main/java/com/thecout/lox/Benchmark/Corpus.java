@@ -0,0 +1,44 @@
+package com.thecout.lox.Benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Lox programs the benchmarks run. fib, loops and closures are read from the
+ * corpus resources, library is generated: a large file of small functions where every
+ * function calls one declared earlier, followed by a few calls into the library.
+ */
+public final class Corpus {
+    static final int LIBRARY_FUNCTIONS = 2000;
+
+    private Corpus() {
+    }
+
+    public static String source(String name) {
+        if (name.equals("library")) return library(LIBRARY_FUNCTIONS);
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".lox")) {
+            if (in == null) throw new IllegalArgumentException("No corpus program named '" + name + "'.");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String library(int functions) {
+        StringBuilder source = new StringBuilder();
+        source.append("fun f0(a, b) { return a + b; }\n");
+        for (int i = 1; i < functions; i++) {
+            source.append("fun f").append(i).append("(a, b) {\n")
+                    .append("    var c = a * ").append(i % 7 + 1).append(";\n")
+                    .append("    if (c > b) { c = c - b; } else { c = c + b; }\n")
+                    .append("    return f").append(i / 2).append("(c, b - 1) - ").append(i % 3).append(";\n")
+                    .append("}\n");
+        }
+        for (int i = functions - 1; i > 0; i -= functions / 10) {
+            source.append("print f").append(i).append("(").append(i).append(", 2);\n");
+        }
+        return source.toString();
+    }
+}
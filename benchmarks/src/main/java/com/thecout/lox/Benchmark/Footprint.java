@@ -0,0 +1,58 @@
+package com.thecout.lox.Benchmark;
+
+import com.thecout.lox.Flat.FlatAst;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Scanner;
+
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares the heap the object tree and the {@link FlatAst} of the same program retain:
+ * the heap in use after a full collection with the tree alive minus the heap in use
+ * without it. Runs over generated libraries of growing size, or the given files.
+ * Best run with a fixed heap, e.g. {@code -Xms2g -Xmx2g}.
+ */
+public class Footprint {
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-24s %12s %14s %14s %16s%n", "program", "source KB", "objects KB", "flat KB", "flat arrays KB");
+        if (args.length == 0) {
+            for (int functions = 2_000; functions <= 200_000; functions *= 10) {
+                compare("library " + functions, Corpus.library(functions));
+            }
+        } else {
+            for (String path : args) {
+                compare(path, Files.readString(Path.of(path)));
+            }
+        }
+    }
+
+    private static void compare(String name, String source) {
+        long objects = retained(() -> new Parser(new Scanner(source)).parse());
+        long flat = retained(() -> FlatAst.parse(new Scanner(source)));
+        long arrays = FlatAst.parse(new Scanner(source)).footprint();
+        System.out.printf("%-24s %12d %14d %14d %16d%n", name, source.length() / 1024,
+                objects / 1024, flat / 1024, arrays / 1024);
+    }
+
+    private interface Build {
+        Object build();
+    }
+
+    private static long retained(Build build) {
+        long before = used();
+        Object tree = build.build();
+        long after = used();
+        Reference.reachabilityFence(tree);
+        return after - before;
+    }
+
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,56 @@
+package com.thecout.lox.Benchmark;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Traversal.Interpreter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Runs a program with a fresh interpreter. Every invocation parses the source again,
+ * since the optimizer and resolver annotate the statements in place, and print output
+ * is thrown away.
+ */
+@State(Scope.Benchmark)
+public class InterpreterBenchmark {
+    @Param({"fib", "loops", "closures", "library"})
+    public String program;
+
+    private String source;
+    private List<Stmt> statements;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = Corpus.source(program);
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        statements = new Parser(new Scanner(source).scan()).parse();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public Interpreter interpret() {
+        Interpreter interpreter = new Interpreter();
+        interpreter.interpret(statements);
+        return interpreter;
+    }
+}
@@ -0,0 +1,31 @@
+package com.thecout.lox.Benchmark;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    @Param({"fib", "loops", "closures", "library"})
+    public String program;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setUp() {
+        tokens = new Scanner(Corpus.source(program)).scan();
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(tokens).parse();
+    }
+}
@@ -0,0 +1,29 @@
+package com.thecout.lox.Benchmark;
+
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+    @Param({"fib", "loops", "closures", "library"})
+    public String program;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Corpus.source(program);
+    }
+
+    @Benchmark
+    public List<Token> scan() {
+        return new Scanner(source).scan();
+    }
+}
@@ -0,0 +1,94 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Directory of parsed programs in the {@link AstFormat}, one file per source named after
+ * the SHA-256 of the source bytes. A hit maps the file and reads the tree straight from
+ * the mapping, so it costs time in the size of the tree and not of the source. Files are
+ * written to a temporary name and moved into place, so concurrent runs of the same script
+ * never see half a file, and a file that cannot be read is treated as a miss.
+ */
+public final class AstCache {
+    private final Path directory;
+
+    public AstCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // lox.cache.dir, or .cache/jlox in the home directory
+    public static Path defaultDirectory() {
+        String directory = System.getProperty("lox.cache.dir");
+        return directory != null ? Path.of(directory) : Path.of(System.getProperty("user.home"), ".cache", "jlox");
+    }
+
+    public static String key(byte[] source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source);
+            StringBuilder key = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                key.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + ".ast");
+    }
+
+    /**
+     * The statements stored for the key, or null if there are none.
+     */
+    public List<Stmt> load(String key) {
+        try (FileChannel channel = FileChannel.open(file(key), StandardOpenOption.READ)) {
+            return AstFormat.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable AST cache entry " + file(key) + ": " + e);
+            return null;
+        }
+    }
+
+    public void store(String key, List<Stmt> statements) throws IOException {
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temporary, AstFormat.write(statements));
+            Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Parses the source, or loads it if it was parsed before. Programs with scanner or
+     * parser errors are not stored, so their errors are reported on every run.
+     */
+    public List<Stmt> parse(byte[] source) throws IOException {
+        String key = key(source);
+        List<Stmt> statements = load(key);
+        if (statements != null) return statements;
+        try (Scanner scanner = new Scanner(new String(source, StandardCharsets.UTF_8))) {
+            statements = new Parser(scanner).parse();
+            if (!scanner.hadError() && !statements.contains(null)) store(key, statements);
+        }
+        return statements;
+    }
+}
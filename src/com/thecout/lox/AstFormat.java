@@ -0,0 +1,464 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of the statements the Parser produces. After a header come a
+ * table of the distinct strings and the tree itself in pre-order: one tag byte per node,
+ * varints for counts and string indices, and the tokens inline where the nodes refer to
+ * them, with their line as the difference to the token before. Reading it back does no
+ * scanning at all, every string is decoded and interned once. The fields the Resolver
+ * fills in are not part of the format, interpret() resolves the tree again.
+ */
+public final class AstFormat {
+    private static final int MAGIC = 0x4c4f5841; // "LOXA"
+    static final int VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int BLOCK = 1, EXPRESSION = 2, FUNCTION = 3, IF = 4, PRINT = 5, RETURN = 6, VAR = 7, WHILE = 8;
+    private static final int ASSIGN = 16, BINARY = 17, CALL = 18, GROUPING = 19, LITERAL = 20, LOGICAL = 21, UNARY = 22,
+            VARIABLE = 23;
+    private static final int NIL = 0, TRUE = 1, FALSE = 2, NUMBER = 3, STRING = 4, CHARACTER = 5;
+    // the top bits of a token's type byte: most tokens carry their lexeme as literal, single
+    // character tokens its character, only the others have a tagged literal after the byte
+    private static final int LEXEME_LITERAL = 0x00, CHARACTER_LITERAL = 0x40, TAGGED_LITERAL = 0x80;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private AstFormat() {
+    }
+
+    public static byte[] write(List<Stmt> statements) {
+        Writer writer = new Writer();
+        writer.varint(statements.size());
+        for (Stmt statement : statements) {
+            writer.write(statement);
+        }
+        ByteArrayOutputStream tree = writer.out;
+
+        writer.out = new ByteArrayOutputStream(tree.size() + 16 * writer.strings.size() + 64);
+        writer.int32(MAGIC);
+        writer.varint(VERSION);
+        writer.varint(writer.strings.size());
+        for (String string : writer.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writer.varint(bytes.length);
+            writer.out.write(bytes, 0, bytes.length);
+        }
+        writer.out.writeBytes(tree.toByteArray());
+        return writer.out.toByteArray();
+    }
+
+    /**
+     * Reads statements written by {@link #write}. Throws an IllegalArgumentException if the
+     * buffer holds another format or version, and some other RuntimeException if it is
+     * damaged.
+     */
+    public static List<Stmt> read(ByteBuffer buffer) {
+        return new Reader(buffer).read();
+    }
+
+    private static final class Writer implements StmtVisitor<Void>, ExprVisitor<Void> {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // the index of each string is its position in insertion order
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        private int line;
+
+        void int32(int value) {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7f) != 0) {
+                out.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        int string(String string) {
+            return strings.computeIfAbsent(string, key -> strings.size());
+        }
+
+        void token(Token token) {
+            String lexeme = token.lexeme;
+            if (lexeme.equals(token.literal)) {
+                out.write(token.type.ordinal() | LEXEME_LITERAL);
+            } else if (lexeme.length() == 1 && token.literal instanceof Character
+                    && (Character) token.literal == lexeme.charAt(0)) {
+                out.write(token.type.ordinal() | CHARACTER_LITERAL);
+            } else {
+                out.write(token.type.ordinal() | TAGGED_LITERAL);
+                literal(token.literal);
+            }
+            varint(string(lexeme));
+            // zigzag, so small steps back stay small too
+            int delta = token.line - line;
+            varint(delta << 1 ^ delta >> 31);
+            line = token.line;
+        }
+
+        void literal(Object value) {
+            if (value == null) {
+                out.write(NIL);
+            } else if (value instanceof Boolean) {
+                out.write((Boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                out.write(NUMBER);
+                long bits = Double.doubleToRawLongBits((Double) value);
+                int32((int) (bits >>> 32));
+                int32((int) bits);
+            } else if (value instanceof Character) {
+                out.write(CHARACTER);
+                varint((Character) value);
+            } else {
+                out.write(STRING);
+                varint(string((String) value));
+            }
+        }
+
+        void write(Stmt stmt) {
+            if (stmt == null) {
+                out.write(NULL);
+            } else {
+                stmt.accept(this);
+            }
+        }
+
+        void write(Expr expr) {
+            if (expr == null) {
+                out.write(NULL);
+            } else {
+                expr.accept(this);
+            }
+        }
+
+        @Override
+        public Void visitBlockStmt(Block stmt) {
+            out.write(BLOCK);
+            varint(stmt.statements.size());
+            for (Stmt statement : stmt.statements) {
+                write(statement);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStmt(Expression stmt) {
+            out.write(EXPRESSION);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionStmt(Function stmt) {
+            out.write(FUNCTION);
+            token(stmt.name);
+            varint(stmt.parameters.size());
+            for (Token parameter : stmt.parameters) {
+                token(parameter);
+            }
+            varint(stmt.body.size());
+            for (Stmt statement : stmt.body) {
+                write(statement);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIfStmt(If stmt) {
+            out.write(IF);
+            write(stmt.condition);
+            write(stmt.thenBranch);
+            write(stmt.elseBranch);
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStmt(Print stmt) {
+            out.write(PRINT);
+            write(stmt.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitReturnStmt(Return stmt) {
+            out.write(RETURN);
+            write(stmt.value);
+            return null;
+        }
+
+        @Override
+        public Void visitVarStmt(Var stmt) {
+            out.write(VAR);
+            token(stmt.name);
+            write(stmt.initializer);
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStmt(While stmt) {
+            out.write(WHILE);
+            write(stmt.condition);
+            write(stmt.body);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignExpr(Assign expr) {
+            out.write(ASSIGN);
+            token(expr.name);
+            write(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryExpr(Binary expr) {
+            out.write(BINARY);
+            write(expr.left);
+            token(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitCallExpr(Call expr) {
+            out.write(CALL);
+            write(expr.callee);
+            token(expr.paren);
+            varint(expr.arguments.size());
+            for (Expr argument : expr.arguments) {
+                write(argument);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(Grouping expr) {
+            out.write(GROUPING);
+            write(expr.expression);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteralExpr(Literal expr) {
+            out.write(LITERAL);
+            literal(expr.value);
+            return null;
+        }
+
+        @Override
+        public Void visitLogicalExpr(Logical expr) {
+            out.write(LOGICAL);
+            write(expr.left);
+            token(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryExpr(Unary expr) {
+            out.write(UNARY);
+            token(expr.operator);
+            write(expr.right);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(Variable expr) {
+            out.write(VARIABLE);
+            token(expr.name);
+            return null;
+        }
+    }
+
+    private static final class Reader {
+        private static final int UNSET = -2;
+
+        private final ByteBuffer in;
+        private String[] strings;
+        // symbol of each string once an identifier used it, UNSET before; -1 if the symbol table was full
+        private int[] symbols;
+        private int line;
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        List<Stmt> read() {
+            if (in.remaining() < 4 || in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("not a Lox AST");
+            }
+            int version = varint();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("AST format version " + version + ", expected " + VERSION);
+            }
+            strings = new String[varint()];
+            symbols = new int[strings.length];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[varint()];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                symbols[i] = UNSET;
+            }
+            int count = varint();
+            List<Stmt> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(stmt());
+            }
+            return statements;
+        }
+
+        private int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) return value;
+            }
+        }
+
+        private Token token() {
+            int header = in.get() & 0xff;
+            TokenType type = TYPES[header & 0x3f];
+            Object literal = (header & 0xc0) == TAGGED_LITERAL ? literal() : null;
+            int lexeme = varint();
+            int delta = varint();
+            line += delta >>> 1 ^ -(delta & 1);
+            if ((header & 0xc0) == LEXEME_LITERAL) {
+                literal = strings[lexeme];
+            } else if ((header & 0xc0) == CHARACTER_LITERAL) {
+                literal = strings[lexeme].charAt(0);
+            }
+            int symbol = -1;
+            if (type == TokenType.IDENTIFIER) {
+                if (symbols[lexeme] == UNSET) symbols[lexeme] = Symbols.intern(strings[lexeme]);
+                symbol = symbols[lexeme];
+            }
+            return new Token(type, strings[lexeme], literal, line, symbol);
+        }
+
+        private Object literal() {
+            switch (in.get()) {
+                case NIL:
+                    return null;
+                case TRUE:
+                    return true;
+                case FALSE:
+                    return false;
+                case NUMBER:
+                    return in.getDouble();
+                case STRING:
+                    return strings[varint()];
+                case CHARACTER:
+                    return (char) varint();
+                default:
+                    throw new IllegalStateException("bad literal tag");
+            }
+        }
+
+        private List<Stmt> stmts() {
+            int count = varint();
+            List<Stmt> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(stmt());
+            }
+            return statements;
+        }
+
+        private Stmt stmt() {
+            int tag = in.get();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case BLOCK:
+                    return new Block(stmts());
+                case EXPRESSION:
+                    return new Expression(expr());
+                case FUNCTION: {
+                    Token name = token();
+                    int count = varint();
+                    List<Token> parameters = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        parameters.add(token());
+                    }
+                    return new Function(name, parameters, stmts());
+                }
+                case IF: {
+                    Expr condition = expr();
+                    Stmt thenBranch = stmt();
+                    return new If(condition, thenBranch, stmt());
+                }
+                case PRINT:
+                    return new Print(expr());
+                case RETURN:
+                    return new Return(expr());
+                case VAR: {
+                    Token name = token();
+                    return new Var(name, expr());
+                }
+                case WHILE: {
+                    Expr condition = expr();
+                    return new While(condition, stmt());
+                }
+                default:
+                    throw new IllegalStateException("bad statement tag " + tag);
+            }
+        }
+
+        private Expr expr() {
+            int tag = in.get();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case ASSIGN: {
+                    Token name = token();
+                    return new Assign(name, expr());
+                }
+                case BINARY: {
+                    Expr left = expr();
+                    Token operator = token();
+                    return new Binary(left, operator, expr());
+                }
+                case CALL: {
+                    Expr callee = expr();
+                    Token paren = token();
+                    int count = varint();
+                    List<Expr> arguments = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        arguments.add(expr());
+                    }
+                    return new Call(callee, paren, arguments);
+                }
+                case GROUPING:
+                    return new Grouping(expr());
+                case LITERAL:
+                    return new Literal(literal());
+                case LOGICAL: {
+                    Expr left = expr();
+                    Token operator = token();
+                    return new Logical(left, operator, expr());
+                }
+                case UNARY: {
+                    Token operator = token();
+                    return new Unary(operator, expr());
+                }
+                case VARIABLE:
+                    return new Variable(token());
+                default:
+                    throw new IllegalStateException("bad expression tag " + tag);
+            }
+        }
+    }
+}
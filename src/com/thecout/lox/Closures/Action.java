@@ -0,0 +1,15 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+/**
+ * A compiled statement. It gives null when it completes normally and the returned value
+ * when it executed a return, {@link #NIL} for nil, or a {@link ClosureFunction.TailCall}
+ * when it returned a call the function's caller still has to make.
+ */
+@FunctionalInterface
+public interface Action {
+    Object NIL = new Object();
+
+    Object run(Environment frame);
+}
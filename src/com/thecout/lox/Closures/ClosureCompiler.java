@@ -0,0 +1,499 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+import com.thecout.lox.Traversal.InterpreterUtils.Binding;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compiles a resolved AST into nested Java lambdas. Every decision that only depends on
+ * the program is made here once: which operator runs, which slot a variable lives in,
+ * which call entry point fits the argument count and whether an operand is known to be
+ * a number. Arithmetic is composed from {@link NumberCode}s that pass unboxed doubles
+ * and conditions from {@link Condition}s that pass unboxed booleans, values are only
+ * boxed where they leave such a chain. Operands are checked where the ast Interpreter
+ * checks them, so values of the wrong type fail the same way.
+ */
+public class ClosureCompiler implements ExprVisitor<Code>, StmtVisitor<Action> {
+    private final Environment globals;
+
+    public ClosureCompiler(Environment globals) {
+        this.globals = globals;
+    }
+
+    public Action compile(List<Stmt> statements) {
+        return sequence(statements);
+    }
+
+    private Code code(Expr expr) {
+        return expr.accept(this);
+    }
+
+    private Action action(Stmt stmt) {
+        return stmt != null ? stmt.accept(this) : null;
+    }
+
+    private Action sequence(List<Stmt> statements) {
+        Action[] actions = new Action[statements.size()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = action(statements.get(i));
+        }
+        if (actions.length == 1) return actions[0];
+        return frame -> {
+            for (Action action : actions) {
+                Object completion = action.run(frame);
+                if (completion != null) return completion;
+            }
+            return null;
+        };
+    }
+
+    // expressions whose value is a number whenever they have one
+    private static boolean isNumeric(Expr expr) {
+        if (expr instanceof Literal) return ((Literal) expr).value instanceof Double;
+        if (expr instanceof Unary) return ((Unary) expr).operator.type == TokenType.MINUS;
+        if (expr instanceof Binary) {
+            switch (((Binary) expr).operator.type) {
+                case PLUS:
+                case MINUS:
+                case STAR:
+                case SLASH:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    // an operand of operator, which has to be a number
+    private NumberCode number(Expr expr, Token operator) {
+        if (expr instanceof Literal && ((Literal) expr).value instanceof Double) {
+            double value = (Double) ((Literal) expr).value;
+            return frame -> value;
+        }
+        if (expr instanceof Unary && ((Unary) expr).operator.type == TokenType.MINUS) {
+            NumberCode right = number(((Unary) expr).right, ((Unary) expr).operator);
+            return frame -> -right.run(frame);
+        }
+        if (expr instanceof Binary && isNumeric(expr)) {
+            Binary binary = (Binary) expr;
+            if (!isNumeric(binary.left)) return arithmetic(binary);
+            NumberCode left = number(binary.left, binary.operator);
+            NumberCode right = number(binary.right, binary.operator);
+            switch (binary.operator.type) {
+                case PLUS: return frame -> left.run(frame) + right.run(frame);
+                case MINUS: return frame -> left.run(frame) - right.run(frame);
+                case STAR: return frame -> left.run(frame) * right.run(frame);
+                default: {
+                    Token slash = binary.operator;
+                    return frame -> {
+                        double a = left.run(frame);
+                        double b = right.run(frame);
+                        if (b == 0) throw new RuntimeError(slash, "Cannot divide by zero.");
+                        return a / b;
+                    };
+                }
+            }
+        }
+        Code code = code(expr);
+        return frame -> Operands.number(operator, code.run(frame));
+    }
+
+    // arithmetic on a left operand that may not be a number: like the ast Interpreter it
+    // evaluates both operands before checking them, the divisor of / first
+    private NumberCode arithmetic(Binary expr) {
+        Code left = code(expr.left);
+        Code right = code(expr.right);
+        Token operator = expr.operator;
+        switch (operator.type) {
+            case PLUS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    return Operands.number(operator, a) + Operands.number(operator, b);
+                };
+            case MINUS:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    return Operands.number(operator, a) - Operands.number(operator, b);
+                };
+            case STAR:
+                return frame -> {
+                    Object a = left.run(frame);
+                    Object b = right.run(frame);
+                    return Operands.number(operator, a) * Operands.number(operator, b);
+                };
+            default:
+                return frame -> {
+                    Object a = left.run(frame);
+                    double b = Operands.number(operator, right.run(frame));
+                    if (b == 0) throw new RuntimeError(operator, "Cannot divide by zero.");
+                    return Operands.number(operator, a) / b;
+                };
+        }
+    }
+
+    // <, <=, > and >=, a left operand that may not be a number is checked after the right one is evaluated
+    private Condition compare(Binary expr) {
+        Token operator = expr.operator;
+        TokenType type = operator.type;
+        if (!isNumeric(expr.left)) {
+            Code left = code(expr.left);
+            Code right = code(expr.right);
+            return frame -> {
+                Object a = left.run(frame);
+                Object b = right.run(frame);
+                return compare(type, Operands.number(operator, a), Operands.number(operator, b));
+            };
+        }
+        NumberCode a = number(expr.left, operator);
+        NumberCode b = number(expr.right, operator);
+        switch (type) {
+            case LESS: return frame -> a.run(frame) < b.run(frame);
+            case LESS_EQUAL: return frame -> a.run(frame) <= b.run(frame);
+            case GREATER: return frame -> a.run(frame) > b.run(frame);
+            default: return frame -> a.run(frame) >= b.run(frame);
+        }
+    }
+
+    private static boolean compare(TokenType type, double a, double b) {
+        switch (type) {
+            case LESS: return a < b;
+            case LESS_EQUAL: return a <= b;
+            case GREATER: return a > b;
+            default: return a >= b;
+        }
+    }
+
+    // an operand of operator, which has to be a boolean, or the condition of an if or a while for a null operator
+    private Condition condition(Expr expr, Token operator) {
+        if (expr instanceof Literal && ((Literal) expr).value instanceof Boolean) {
+            boolean value = (Boolean) ((Literal) expr).value;
+            return frame -> value;
+        }
+        if (expr instanceof Binary) {
+            switch (((Binary) expr).operator.type) {
+                case LESS:
+                case LESS_EQUAL:
+                case GREATER:
+                case GREATER_EQUAL:
+                    return compare((Binary) expr);
+                default:
+                    break;
+            }
+        }
+        if (expr instanceof Logical) {
+            Logical logical = (Logical) expr;
+            switch (logical.operator.type) {
+                case AND: {
+                    Condition left = condition(logical.left, logical.operator);
+                    Condition right = condition(logical.right, logical.operator);
+                    return frame -> left.test(frame) && right.test(frame);
+                }
+                case OR: {
+                    Condition left = condition(logical.left, logical.operator);
+                    Condition right = condition(logical.right, logical.operator);
+                    return frame -> left.test(frame) || right.test(frame);
+                }
+                case EQUAL_EQUAL: {
+                    Code left = code(logical.left);
+                    Code right = code(logical.right);
+                    return frame -> Objects.equals(left.run(frame), right.run(frame));
+                }
+                case BANG_EQUAL: {
+                    Code left = code(logical.left);
+                    Code right = code(logical.right);
+                    return frame -> !Objects.equals(left.run(frame), right.run(frame));
+                }
+                default:
+                    break;
+            }
+        }
+        if (expr instanceof Unary && ((Unary) expr).operator.type == TokenType.BANG) {
+            Condition right = condition(((Unary) expr).right, ((Unary) expr).operator);
+            return frame -> !right.test(frame);
+        }
+        Code code = code(expr);
+        if (operator == null) return frame -> Operands.condition(code.run(frame));
+        return frame -> Operands.bool(operator, code.run(frame));
+    }
+
+    @Override
+    public Code visitAssignExpr(Assign expr) {
+        Code value = code(expr.value);
+        if (expr.depth < 0) {
+            Token name = expr.name;
+            return frame -> {
+                Object result = value.run(frame);
+                globals.assign(name, result);
+                return result;
+            };
+        }
+        int depth = expr.depth;
+        int slot = expr.slot;
+        return frame -> {
+            Object result = value.run(frame);
+            frame.assignAt(depth, slot, result);
+            return result;
+        };
+    }
+
+    @Override
+    public Code visitBinaryExpr(Binary expr) {
+        if (!isNumeric(expr)) {
+            Condition condition = condition(expr, expr.operator);
+            return frame -> condition.test(frame);
+        }
+        NumberCode number = number(expr, expr.operator);
+        return frame -> number.run(frame);
+    }
+
+    @Override
+    public Code visitCallExpr(Call expr) {
+        Code callee = code(expr.callee);
+        Token paren = expr.paren;
+        Code[] arguments = new Code[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = code(expr.arguments.get(i));
+        }
+        switch (arguments.length) {
+            case 0:
+                return frame -> function(callee.run(frame), paren, 0).call0(null);
+            case 1: {
+                Code a = arguments[0];
+                return frame -> {
+                    Object function = callee.run(frame);
+                    return function(function, paren, 1).call1(null, a.run(frame));
+                };
+            }
+            case 2: {
+                Code a = arguments[0];
+                Code b = arguments[1];
+                return frame -> {
+                    Object function = callee.run(frame);
+                    Object x = a.run(frame);
+                    return function(function, paren, 2).call2(null, x, b.run(frame));
+                };
+            }
+            case 3: {
+                Code a = arguments[0];
+                Code b = arguments[1];
+                Code c = arguments[2];
+                return frame -> {
+                    Object function = callee.run(frame);
+                    Object x = a.run(frame);
+                    Object y = b.run(frame);
+                    return function(function, paren, 3).call3(null, x, y, c.run(frame));
+                };
+            }
+            default:
+                return frame -> {
+                    Object function = callee.run(frame);
+                    Object[] values = new Object[arguments.length];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = arguments[i].run(frame);
+                    }
+                    return function(function, paren, values.length).call(null, values);
+                };
+        }
+    }
+
+    static LoxCallable function(Object callee, Token paren, int count) {
+        if (!(callee instanceof LoxCallable)) {
+            throw new RuntimeError(paren, "Can only call functions.");
+        }
+        LoxCallable function = (LoxCallable) callee;
+        if (count != function.arity()) {
+            throw new RuntimeError(paren, "Expected " + function.arity() + " arguments but got " + count + ".");
+        }
+        return function;
+    }
+
+    @Override
+    public Code visitGroupingExpr(Grouping expr) {
+        return code(expr.expression);
+    }
+
+    @Override
+    public Code visitLiteralExpr(Literal expr) {
+        Object value = expr.value;
+        return frame -> value;
+    }
+
+    @Override
+    public Code visitLogicalExpr(Logical expr) {
+        Condition condition = condition(expr, expr.operator);
+        return frame -> condition.test(frame);
+    }
+
+    @Override
+    public Code visitUnaryExpr(Unary expr) {
+        if (expr.operator.type == TokenType.BANG) {
+            Condition condition = condition(expr, expr.operator);
+            return frame -> condition.test(frame);
+        }
+        NumberCode number = number(expr, expr.operator);
+        return frame -> number.run(frame);
+    }
+
+    // the cell of a global is looked up once it exists and kept, globals are never removed
+    private static final class GlobalRead implements Code {
+        private final Environment globals;
+        private final Token name;
+        private Binding binding;
+
+        GlobalRead(Environment globals, Token name) {
+            this.globals = globals;
+            this.name = name;
+        }
+
+        @Override
+        public Object run(Environment frame) {
+            Binding binding = this.binding;
+            if (binding == null) binding = this.binding = globals.binding(name);
+            return binding.value();
+        }
+    }
+
+    @Override
+    public Code visitVariableExpr(Variable expr) {
+        if (expr.depth < 0) return new GlobalRead(globals, expr.name);
+        int depth = expr.depth;
+        int slot = expr.slot;
+        if (depth == 0) return frame -> frame.getAt(0, slot);
+        return frame -> frame.getAt(depth, slot);
+    }
+
+    @Override
+    public Action visitBlockStmt(Block stmt) {
+        Action body = sequence(stmt.statements);
+        if (stmt.slots == 0) return body;
+        int slots = stmt.slots;
+        return frame -> body.run(new Environment(frame, slots));
+    }
+
+    @Override
+    public Action visitExpressionStmt(Expression stmt) {
+        Code expression = code(stmt.expression);
+        return frame -> {
+            expression.run(frame);
+            return null;
+        };
+    }
+
+    @Override
+    public Action visitFunctionStmt(Function stmt) {
+        // the body runs in the frame of the call, which already has the slots of the body
+        Action body = sequence(stmt.body);
+        String name = stmt.name.lexeme;
+        int arity = stmt.parameters.size();
+        int slots = stmt.slots;
+        if (stmt.slot < 0) {
+            Token token = stmt.name;
+            return frame -> {
+                globals.define(token, new ClosureFunction(name, arity, slots, body, frame));
+                return null;
+            };
+        }
+        int slot = stmt.slot;
+        return frame -> {
+            frame.define(slot, new ClosureFunction(name, arity, slots, body, frame));
+            return null;
+        };
+    }
+
+    @Override
+    public Action visitIfStmt(If stmt) {
+        Condition condition = condition(stmt.condition, null);
+        Action thenBranch = action(stmt.thenBranch);
+        Action elseBranch = action(stmt.elseBranch);
+        if (elseBranch == null) {
+            return frame -> condition.test(frame) ? thenBranch.run(frame) : null;
+        }
+        return frame -> condition.test(frame) ? thenBranch.run(frame) : elseBranch.run(frame);
+    }
+
+    @Override
+    public Action visitPrintStmt(Print stmt) {
+        Code expression = code(stmt.expression);
+        return frame -> {
+            System.out.println(expression.run(frame));
+            return null;
+        };
+    }
+
+    @Override
+    public Action visitReturnStmt(Return stmt) {
+        if (stmt.value == null) return frame -> Action.NIL;
+        if (stmt.tailCall) return tailCall((Call) stmt.value);
+        Code value = code(stmt.value);
+        return frame -> {
+            Object result = value.run(frame);
+            return result != null ? result : Action.NIL;
+        };
+    }
+
+    // a call of a closure function is left to the returning function's caller, see ClosureFunction
+    private Action tailCall(Call call) {
+        Code callee = code(call.callee);
+        Token paren = call.paren;
+        Code[] arguments = new Code[call.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = code(call.arguments.get(i));
+        }
+        return frame -> {
+            Object target = callee.run(frame);
+            Object[] values = new Object[arguments.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = arguments[i].run(frame);
+            }
+            LoxCallable function = function(target, paren, values.length);
+            if (function instanceof ClosureFunction) {
+                ClosureFunction next = (ClosureFunction) function;
+                return new ClosureFunction.TailCall(next, next.frame(values));
+            }
+            Object result = function.call(null, values);
+            return result != null ? result : Action.NIL;
+        };
+    }
+
+    @Override
+    public Action visitVarStmt(Var stmt) {
+        Code initializer = stmt.initializer != null ? code(stmt.initializer) : frame -> null;
+        if (stmt.slot < 0) {
+            Token name = stmt.name;
+            return frame -> {
+                globals.define(name, initializer.run(frame));
+                return null;
+            };
+        }
+        int slot = stmt.slot;
+        return frame -> {
+            frame.define(slot, initializer.run(frame));
+            return null;
+        };
+    }
+
+    @Override
+    public Action visitWhileStmt(While stmt) {
+        Condition condition = condition(stmt.condition, null);
+        Action body = action(stmt.body);
+        return frame -> {
+            while (condition.test(frame)) {
+                Object completion = body.run(frame);
+                if (completion != null) return completion;
+            }
+            return null;
+        };
+    }
+}
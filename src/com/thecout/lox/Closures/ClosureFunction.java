@@ -0,0 +1,95 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+
+import java.util.List;
+
+// a function of the closure compiler, the body runs directly in the frame that holds the parameters
+final class ClosureFunction implements LoxCallable {
+    // completion of a body that ended in a tail call, see ClosureCompiler.tailCall
+    static final class TailCall {
+        final ClosureFunction function;
+        final Environment frame;
+
+        TailCall(ClosureFunction function, Environment frame) {
+            this.function = function;
+            this.frame = frame;
+        }
+    }
+
+    private final String name;
+    private final int arity;
+    private final int slots;
+    private final Action body;
+    private final Environment closure;
+
+    ClosureFunction(String name, int arity, int slots, Action body, Environment closure) {
+        this.name = name;
+        this.arity = arity;
+        this.slots = slots;
+        this.body = body;
+        this.closure = closure;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    Environment frame(Object[] arguments) {
+        Environment frame = new Environment(closure, slots);
+        for (int i = 0; i < arguments.length; i++) {
+            frame.define(i, arguments[i]);
+        }
+        return frame;
+    }
+
+    // tail calls run in this loop, so a chain of them needs no more Java stack than the first call
+    private Object run(Environment frame) {
+        ClosureFunction function = this;
+        while (true) {
+            Object result = function.body.run(frame);
+            if (!(result instanceof TailCall)) return result == Action.NIL ? null : result;
+            TailCall call = (TailCall) result;
+            function = call.function;
+            frame = call.frame;
+        }
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call(interpreter, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return run(frame(arguments));
+    }
+
+    @Override
+    public Object call0(Interpreter interpreter) {
+        return run(new Environment(closure, slots));
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        Environment frame = new Environment(closure, slots);
+        frame.define(0, a);
+        return run(frame);
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        Environment frame = new Environment(closure, slots);
+        frame.define(0, a);
+        frame.define(1, b);
+        return run(frame);
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + name + ">";
+    }
+}
@@ -0,0 +1,37 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.InterpreterUtils.Clock;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+import com.thecout.lox.Traversal.Optimizer;
+import com.thecout.lox.Traversal.Resolver;
+
+import java.util.List;
+
+/**
+ * Runs a program compiled by the {@link ClosureCompiler}. Values behave as in the ast
+ * Interpreter: operators and conditions check their operands, so a value of the wrong
+ * type is the same runtime error, and tail calls do not grow the Java stack. Runtime
+ * errors are reported, not thrown.
+ */
+public class ClosureInterpreter {
+    public final Environment globals = new Environment();
+
+    public ClosureInterpreter() {
+        globals.define("clock", new Clock());
+    }
+
+    public void interpret(List<Stmt> statements) {
+        new Optimizer().optimize(statements);
+        new Resolver().resolve(statements);
+        Action program = new ClosureCompiler(globals).compile(statements);
+        try {
+            program.run(globals);
+        } catch (RuntimeError error) {
+            System.err.println(error.getMessage());
+            // the type error of a condition has no token
+            if (error.token() != null) System.err.printf("[line %d]\n", error.token().line);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// a compiled expression
+@FunctionalInterface
+public interface Code {
+    Object run(Environment frame);
+}
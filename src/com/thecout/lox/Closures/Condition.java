@@ -0,0 +1,9 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// a compiled expression used as a condition, already reduced to its truthiness
+@FunctionalInterface
+public interface Condition {
+    boolean test(Environment frame);
+}
@@ -0,0 +1,9 @@
+package com.thecout.lox.Closures;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// a compiled expression whose value has to be a number, arithmetic composes these unboxed
+@FunctionalInterface
+public interface NumberCode {
+    double run(Environment frame);
+}
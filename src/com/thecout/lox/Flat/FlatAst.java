@@ -0,0 +1,158 @@
+package com.thecout.lox.Flat;
+
+import com.thecout.lox.Parser.DescentParser;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenBuffer;
+import com.thecout.lox.TokenSource;
+import com.thecout.lox.TokenType;
+
+/**
+ * A whole program as a handful of arrays instead of one object per node. Every node is
+ * four ints in {@code nodes}: a header holding the kind and a small extra value, then
+ * three fields a, b and c that hold the index of a child node, a token, a list, a
+ * constant or a resolved location, depending on the kind (see the constants below).
+ * Child lists live in {@code lists} as a count followed by the elements, number
+ * constants as raw bits in {@code numbers} and tokens packed into a long each as
+ * name, line and type. Names are numbered per program in {@code names}, so nothing in
+ * here depends on the global symbol table. A missing child is -1.
+ */
+public final class FlatAst {
+    private static final TokenType[] TYPES = TokenType.values();
+    static final int STRIDE = 4;
+    static final int NONE = -1;
+
+    // statements
+    static final int BLOCK = 1;       // a = statements, extra = slots, 0 if it declares nothing
+    static final int EXPRESSION = 2;  // a = expression
+    static final int FUNCTION = 3;    // a = name, b = [arity, parameters..., count, body...], c = slot, extra = slots
+    static final int IF = 4;          // a = condition, b = then, c = else
+    static final int PRINT = 5;       // a = expression
+    static final int RETURN = 6;      // a = value, extra = 1 if it is a tail call
+    static final int VAR = 7;         // a = name, b = initializer, c = slot
+    static final int WHILE = 8;       // a = condition, b = body
+    // expressions
+    static final int ASSIGN = 16;     // a = name, b = value, c = location
+    static final int BINARY = 17;     // a = left, b = operator, c = right
+    static final int CALL = 18;       // a = callee, b = paren, c = arguments
+    static final int LOGICAL = 19;    // a = left, b = operator, c = right
+    static final int UNARY = 20;      // a = operator, b = right
+    static final int VARIABLE = 21;   // a = name, b = location
+    static final int NUMBER = 22;     // a = index into numbers
+    static final int STRING = 23;     // a = index into strings
+    static final int TRUE = 24;
+    static final int FALSE = 25;
+    static final int NIL = 26;
+
+    final int[] nodes;
+    final int[] lists;
+    final long[] numbers;
+    final String[] strings;
+    final long[] tokens;
+    // identifier names, a token holds its index here or -1
+    final String[] names;
+    // the list of top level statements
+    final int root;
+
+    FlatAst(int[] nodes, int[] lists, long[] numbers, String[] strings, long[] tokens, String[] names,
+            int root) {
+        this.nodes = nodes;
+        this.lists = lists;
+        this.numbers = numbers;
+        this.strings = strings;
+        this.tokens = tokens;
+        this.names = names;
+        this.root = root;
+    }
+
+    public static FlatAst parse(TokenSource tokens) {
+        FlatBuilder builder = new FlatBuilder();
+        return builder.finish(new DescentParser<>(tokens, builder).parse());
+    }
+
+    public static FlatAst parse(TokenBuffer buffer) {
+        FlatBuilder builder = new FlatBuilder();
+        return builder.finish(new DescentParser<>(buffer, builder).parse());
+    }
+
+    public int size() {
+        return nodes.length / STRIDE;
+    }
+
+    // bytes held by the arrays, the strings they share with the scanner not counted
+    public long footprint() {
+        return 16L * 6 + 4L * nodes.length + 4L * lists.length + 8L * numbers.length
+                + 4L * strings.length + 8L * tokens.length + 4L * names.length;
+    }
+
+    int kind(int node) {
+        return nodes[node * STRIDE] & 0xFF;
+    }
+
+    int extra(int node) {
+        return nodes[node * STRIDE] >>> 8;
+    }
+
+    int a(int node) {
+        return nodes[node * STRIDE + 1];
+    }
+
+    int b(int node) {
+        return nodes[node * STRIDE + 2];
+    }
+
+    int c(int node) {
+        return nodes[node * STRIDE + 3];
+    }
+
+    // locations of variables are the depth and slot the resolver found, -1 for a global
+    static int location(int depth, int slot) {
+        return depth < 0 ? NONE : depth << 16 | slot;
+    }
+
+    static int depth(int location) {
+        return location >>> 16;
+    }
+
+    static int slot(int location) {
+        return location & 0xFFFF;
+    }
+
+    static long pack(Token token, int name) {
+        return (long) name << 32 | (long) token.line << 6 | token.type.ordinal();
+    }
+
+    int line(int token) {
+        return (int) tokens[token] >>> 6;
+    }
+
+    TokenType type(int token) {
+        return TYPES[(int) tokens[token] & 0x3F];
+    }
+
+    // index of the identifier in names, the same for every token of one name
+    int name(int token) {
+        return (int) (tokens[token] >> 32);
+    }
+
+    Token token(int token) {
+        return unpack(tokens[token], names);
+    }
+
+    static Token unpack(long token, String[] names) {
+        int name = (int) (token >> 32);
+        return Token.of(TYPES[(int) token & 0x3F], (int) token >>> 6, name >= 0 ? names[name] : null);
+    }
+
+    // the resolver fills in slots and locations after parsing
+    void setExtra(int node, int extra) {
+        nodes[node * STRIDE] = nodes[node * STRIDE] & 0xFF | extra << 8;
+    }
+
+    void setB(int node, int value) {
+        nodes[node * STRIDE + 2] = value;
+    }
+
+    void setC(int node, int value) {
+        nodes[node * STRIDE + 3] = value;
+    }
+}
@@ -0,0 +1,192 @@
+package com.thecout.lox.Flat;
+
+import com.thecout.lox.Parser.AstFactory;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.thecout.lox.Flat.FlatAst.*;
+
+// the AstFactory that appends every node to the arrays of a FlatAst, a node is its index
+final class FlatBuilder implements AstFactory<Integer, Integer> {
+    private int[] nodes = new int[1024];
+    private int nodeCount;
+    private int[] lists = new int[256];
+    private int listSize;
+    private long[] numbers = new long[64];
+    private int numberCount;
+    private String[] strings = new String[64];
+    private int stringCount;
+    private long[] tokens = new long[512];
+    private int tokenCount;
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+    private String[] names = new String[64];
+
+    FlatAst finish(List<Integer> statements) {
+        int root = list(statements);
+        return new FlatAst(Arrays.copyOf(nodes, nodeCount * STRIDE), Arrays.copyOf(lists, listSize),
+                Arrays.copyOf(numbers, numberCount), Arrays.copyOf(strings, stringCount),
+                Arrays.copyOf(tokens, tokenCount), Arrays.copyOf(names, nameIndex.size()), root);
+    }
+
+    private int node(int kind, int a, int b, int c) {
+        if ((nodeCount + 1) * STRIDE > nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        int offset = nodeCount * STRIDE;
+        nodes[offset] = kind;
+        nodes[offset + 1] = a;
+        nodes[offset + 2] = b;
+        nodes[offset + 3] = c;
+        return nodeCount++;
+    }
+
+    private static int index(Integer node) {
+        return node != null ? node : NONE;
+    }
+
+    private int token(Token token) {
+        if (tokenCount == tokens.length) {
+            tokens = Arrays.copyOf(tokens, tokens.length * 2);
+        }
+        tokens[tokenCount] = pack(token, token.type == TokenType.IDENTIFIER ? name(token.lexeme) : NONE);
+        return tokenCount++;
+    }
+
+    private int name(String name) {
+        Integer index = nameIndex.get(name);
+        if (index != null) return index;
+        int count = nameIndex.size();
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+        }
+        names[count] = name;
+        nameIndex.put(name, count);
+        return count;
+    }
+
+    private void reserve(int size) {
+        if (listSize + size > lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listSize + size));
+        }
+    }
+
+    private int list(List<Integer> elements) {
+        reserve(elements.size() + 1);
+        int list = listSize;
+        lists[listSize++] = elements.size();
+        for (Integer element : elements) {
+            lists[listSize++] = index(element);
+        }
+        return list;
+    }
+
+    @Override
+    public Integer block(List<Integer> statements) {
+        return node(BLOCK, list(statements), NONE, NONE);
+    }
+
+    @Override
+    public Integer expression(Integer expression) {
+        return node(EXPRESSION, index(expression), NONE, NONE);
+    }
+
+    @Override
+    public Integer function(Token name, List<Token> parameters, List<Integer> body) {
+        reserve(parameters.size() + body.size() + 2);
+        int list = listSize;
+        lists[listSize++] = parameters.size();
+        for (Token parameter : parameters) {
+            lists[listSize++] = token(parameter);
+        }
+        lists[listSize++] = body.size();
+        for (Integer statement : body) {
+            lists[listSize++] = index(statement);
+        }
+        return node(FUNCTION, token(name), list, NONE);
+    }
+
+    @Override
+    public Integer ifStmt(Integer condition, Integer thenBranch, Integer elseBranch) {
+        return node(IF, index(condition), index(thenBranch), index(elseBranch));
+    }
+
+    @Override
+    public Integer print(Integer expression) {
+        return node(PRINT, index(expression), NONE, NONE);
+    }
+
+    @Override
+    public Integer returnStmt(Integer value) {
+        return node(RETURN, index(value), NONE, NONE);
+    }
+
+    @Override
+    public Integer var(Token name, Integer initializer) {
+        return node(VAR, token(name), index(initializer), NONE);
+    }
+
+    @Override
+    public Integer whileStmt(Integer condition, Integer body) {
+        return node(WHILE, index(condition), index(body), NONE);
+    }
+
+    @Override
+    public Integer assign(Token name, Integer value) {
+        return node(ASSIGN, token(name), index(value), NONE);
+    }
+
+    @Override
+    public Integer binary(Integer left, Token operator, Integer right) {
+        return node(BINARY, index(left), token(operator), index(right));
+    }
+
+    @Override
+    public Integer call(Integer callee, Token paren, List<Integer> arguments) {
+        return node(CALL, index(callee), token(paren), list(arguments));
+    }
+
+    @Override
+    public Integer literal(Object value) {
+        if (value == null) return node(NIL, NONE, NONE, NONE);
+        if (value instanceof Boolean) return node((Boolean) value ? TRUE : FALSE, NONE, NONE, NONE);
+        if (value instanceof Double) {
+            if (numberCount == numbers.length) {
+                numbers = Arrays.copyOf(numbers, numbers.length * 2);
+            }
+            numbers[numberCount] = Double.doubleToRawLongBits((Double) value);
+            return node(NUMBER, numberCount++, NONE, NONE);
+        }
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, strings.length * 2);
+        }
+        strings[stringCount] = value.toString();
+        return node(STRING, stringCount++, NONE, NONE);
+    }
+
+    @Override
+    public Integer logical(Integer left, Token operator, Integer right) {
+        return node(LOGICAL, index(left), token(operator), index(right));
+    }
+
+    @Override
+    public Integer unary(Token operator, Integer right) {
+        return node(UNARY, token(operator), index(right), NONE);
+    }
+
+    @Override
+    public Integer variable(Token name) {
+        return node(VARIABLE, token(name), NONE, NONE);
+    }
+
+    @Override
+    public Token assignable(Integer expression) {
+        int offset = expression * STRIDE;
+        if (nodes[offset] != VARIABLE) return null;
+        return unpack(tokens[nodes[offset + 1]], names);
+    }
+}
@@ -0,0 +1,77 @@
+package com.thecout.lox.Flat;
+
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+
+import java.util.List;
+
+// a function of the flat engine, just the index of its declaration and the frame it closes over
+final class FlatFunction implements LoxCallable {
+    private final FlatInterpreter interpreter;
+    private final int declaration;
+    private final Environment closure;
+
+    FlatFunction(FlatInterpreter interpreter, int declaration, Environment closure) {
+        this.interpreter = interpreter;
+        this.declaration = declaration;
+        this.closure = closure;
+    }
+
+    @Override
+    public int arity() {
+        return interpreter.arity(declaration);
+    }
+
+    int declaration() {
+        return declaration;
+    }
+
+    private Environment frame() {
+        return new Environment(closure, interpreter.slots(declaration));
+    }
+
+    // the frame of a call with these arguments, for tail calls that reuse the caller's loop
+    Environment frame(Object[] arguments) {
+        Environment frame = frame();
+        for (int i = 0; i < arguments.length; i++) {
+            frame.define(i, arguments[i]);
+        }
+        return frame;
+    }
+
+    @Override
+    public Object call(Interpreter caller, List<Object> arguments) {
+        return call(caller, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter caller, Object[] arguments) {
+        return interpreter.run(declaration, frame(arguments));
+    }
+
+    @Override
+    public Object call0(Interpreter caller) {
+        return interpreter.run(declaration, frame());
+    }
+
+    @Override
+    public Object call1(Interpreter caller, Object a) {
+        Environment frame = frame();
+        frame.define(0, a);
+        return interpreter.run(declaration, frame);
+    }
+
+    @Override
+    public Object call2(Interpreter caller, Object a, Object b) {
+        Environment frame = frame();
+        frame.define(0, a);
+        frame.define(1, b);
+        return interpreter.run(declaration, frame);
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + interpreter.name(declaration) + ">";
+    }
+}
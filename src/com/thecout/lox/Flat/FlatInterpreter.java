@@ -0,0 +1,303 @@
+package com.thecout.lox.Flat;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+import com.thecout.lox.Traversal.InterpreterUtils.Clock;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+import java.util.Objects;
+
+import static com.thecout.lox.Flat.FlatAst.*;
+
+/**
+ * Walks a {@link FlatAst} by switching on the kind of every node. It follows the semantics
+ * of the node engine: nil and false are false, {@code and}/{@code or} give an operand,
+ * {@code +} also joins strings and runtime errors are reported, not thrown. Tokens are
+ * only materialized for globals and errors.
+ */
+public class FlatInterpreter {
+    // the completion of a return without a value, null means the statement completed normally
+    private static final Object NIL_RESULT = new Object();
+
+    // the completion of a tail call, run by the loop of the caller instead of a new Java frame
+    private static final class TailCall {
+        final int function;
+        final Environment frame;
+
+        TailCall(int function, Environment frame) {
+            this.function = function;
+            this.frame = frame;
+        }
+    }
+
+    public final Environment globals = new Environment();
+    private FlatAst ast;
+    private Double[] numbers;
+    private Token[] tokens;
+
+    public FlatInterpreter() {
+        globals.define("clock", new Clock());
+    }
+
+    public void interpret(FlatAst ast) {
+        new FlatResolver(ast).resolve();
+        this.ast = ast;
+        numbers = new Double[ast.numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = Double.longBitsToDouble(ast.numbers[i]);
+        }
+        tokens = new Token[ast.tokens.length];
+        try {
+            executeAll(ast.root, globals);
+        } catch (RuntimeError error) {
+            System.err.printf("%s\n[line %d]\n", error.getMessage(), error.token().line);
+        }
+    }
+
+    private Token token(int index) {
+        Token token = tokens[index];
+        if (token == null) token = tokens[index] = ast.token(index);
+        return token;
+    }
+
+    String name(int function) {
+        return token(ast.a(function)).lexeme;
+    }
+
+    int arity(int function) {
+        return ast.lists[ast.b(function)];
+    }
+
+    int slots(int function) {
+        return ast.extra(function);
+    }
+
+    // runs the body of a FUNCTION in a frame that already holds the arguments
+    Object run(int function, Environment frame) {
+        while (true) {
+            int list = ast.b(function);
+            Object result = executeAll(list + ast.lists[list] + 1, frame);
+            if (!(result instanceof TailCall)) return result == NIL_RESULT ? null : result;
+            TailCall call = (TailCall) result;
+            function = call.function;
+            frame = call.frame;
+        }
+    }
+
+    // runs the statements of a list
+    private Object executeAll(int list, Environment frame) {
+        int count = ast.lists[list];
+        for (int i = 1; i <= count; i++) {
+            Object completion = execute(ast.lists[list + i], frame);
+            if (completion != null) return completion;
+        }
+        return null;
+    }
+
+    private Object execute(int node, Environment frame) {
+        if (node == NONE) return null;
+        switch (ast.kind(node)) {
+            case EXPRESSION:
+                evaluate(ast.a(node), frame);
+                return null;
+            case PRINT:
+                System.out.println(evaluate(ast.a(node), frame));
+                return null;
+            case VAR: {
+                Object value = ast.b(node) != NONE ? evaluate(ast.b(node), frame) : null;
+                if (ast.c(node) == NONE) {
+                    globals.define(token(ast.a(node)), value);
+                } else {
+                    frame.define(ast.c(node), value);
+                }
+                return null;
+            }
+            case BLOCK: {
+                int slots = ast.extra(node);
+                return executeAll(ast.a(node), slots == 0 ? frame : new Environment(frame, slots));
+            }
+            case IF:
+                if (isTruthy(evaluate(ast.a(node), frame))) return execute(ast.b(node), frame);
+                return execute(ast.c(node), frame);
+            case WHILE: {
+                int condition = ast.a(node);
+                int body = ast.b(node);
+                while (condition == NONE || isTruthy(evaluate(condition, frame))) {
+                    Object completion = execute(body, frame);
+                    if (completion != null) return completion;
+                }
+                return null;
+            }
+            case RETURN: {
+                if (ast.extra(node) != 0) return tailCall(ast.a(node), frame);
+                Object result = ast.a(node) != NONE ? evaluate(ast.a(node), frame) : null;
+                return result != null ? result : NIL_RESULT;
+            }
+            case FUNCTION: {
+                FlatFunction function = new FlatFunction(this, node, frame);
+                if (ast.c(node) == NONE) {
+                    globals.define(token(ast.a(node)), function);
+                } else {
+                    frame.define(ast.c(node), function);
+                }
+                return null;
+            }
+            default:
+                throw new IllegalStateException("Not a statement: " + ast.kind(node));
+        }
+    }
+
+    private Object evaluate(int node, Environment frame) {
+        switch (ast.kind(node)) {
+            case NUMBER:
+                return numbers[ast.a(node)];
+            case STRING:
+                return ast.strings[ast.a(node)];
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case NIL:
+                return null;
+            case VARIABLE: {
+                int location = ast.b(node);
+                if (location == NONE) return globals.get(token(ast.a(node)));
+                return frame.getAt(depth(location), slot(location));
+            }
+            case ASSIGN: {
+                Object value = evaluate(ast.b(node), frame);
+                int location = ast.c(node);
+                if (location == NONE) {
+                    globals.assign(token(ast.a(node)), value);
+                } else {
+                    frame.assignAt(depth(location), slot(location), value);
+                }
+                return value;
+            }
+            case UNARY: {
+                Object right = evaluate(ast.b(node), frame);
+                if (ast.type(ast.a(node)) == TokenType.BANG) return !isTruthy(right);
+                if (right instanceof Double) return -(Double) right;
+                throw new RuntimeError(token(ast.a(node)), "Operand must be a number.");
+            }
+            case BINARY:
+                return binary(node, frame);
+            case LOGICAL: {
+                Object left = evaluate(ast.a(node), frame);
+                switch (ast.type(ast.b(node))) {
+                    case AND:
+                        return isTruthy(left) ? evaluate(ast.c(node), frame) : left;
+                    case OR:
+                        return isTruthy(left) ? left : evaluate(ast.c(node), frame);
+                    case BANG_EQUAL:
+                        return !Objects.equals(left, evaluate(ast.c(node), frame));
+                    default:
+                        return Objects.equals(left, evaluate(ast.c(node), frame));
+                }
+            }
+            case CALL:
+                return call(node, frame);
+            default:
+                throw new IllegalStateException("Not an expression: " + ast.kind(node));
+        }
+    }
+
+    private Object binary(int node, Environment frame) {
+        Object left = evaluate(ast.a(node), frame);
+        Object right = evaluate(ast.c(node), frame);
+        int operator = ast.b(node);
+        TokenType type = ast.type(operator);
+        if (!(left instanceof Double) || !(right instanceof Double)) {
+            if (type != TokenType.PLUS) throw new RuntimeError(token(operator), "Operands must be numbers.");
+            if (left instanceof String && right instanceof String) return (String) left + right;
+            throw new RuntimeError(token(operator), "Operands must be two numbers or two strings.");
+        }
+        double a = (Double) left;
+        double b = (Double) right;
+        switch (type) {
+            case PLUS:
+                return a + b;
+            case MINUS:
+                return a - b;
+            case STAR:
+                return a * b;
+            case SLASH:
+                if (b == 0) throw new RuntimeError(token(operator), "Cannot divide by zero.");
+                return a / b;
+            case GREATER:
+                return a > b;
+            case GREATER_EQUAL:
+                return a >= b;
+            case LESS:
+                return a < b;
+            case LESS_EQUAL:
+                return a <= b;
+            default:
+                throw new IllegalStateException("Not a binary operator: " + type);
+        }
+    }
+
+    private Object call(int node, Environment frame) {
+        Object callee = evaluate(ast.a(node), frame);
+        int list = ast.c(node);
+        int count = ast.lists[list];
+        switch (count) {
+            case 0:
+                return function(callee, node, 0).call0(null);
+            case 1: {
+                Object a = evaluate(ast.lists[list + 1], frame);
+                return function(callee, node, 1).call1(null, a);
+            }
+            case 2: {
+                Object a = evaluate(ast.lists[list + 1], frame);
+                Object b = evaluate(ast.lists[list + 2], frame);
+                return function(callee, node, 2).call2(null, a, b);
+            }
+            default: {
+                Object[] arguments = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    arguments[i] = evaluate(ast.lists[list + 1 + i], frame);
+                }
+                return function(callee, node, count).call(null, arguments);
+            }
+        }
+    }
+
+    // a call to a flat function becomes a TailCall, anything else is called right away
+    private Object tailCall(int node, Environment frame) {
+        Object callee = evaluate(ast.a(node), frame);
+        int list = ast.c(node);
+        int count = ast.lists[list];
+        Object[] arguments = new Object[count];
+        for (int i = 0; i < count; i++) {
+            arguments[i] = evaluate(ast.lists[list + 1 + i], frame);
+        }
+        LoxCallable function = function(callee, node, count);
+        if (function instanceof FlatFunction) {
+            FlatFunction target = (FlatFunction) function;
+            return new TailCall(target.declaration(), target.frame(arguments));
+        }
+        Object result = function.call(null, arguments);
+        return result != null ? result : NIL_RESULT;
+    }
+
+    private LoxCallable function(Object callee, int call, int count) {
+        if (!(callee instanceof LoxCallable)) {
+            throw new RuntimeError(token(ast.b(call)), "Can only call functions.");
+        }
+        LoxCallable function = (LoxCallable) callee;
+        if (count != function.arity()) {
+            throw new RuntimeError(token(ast.b(call)),
+                    "Expected " + function.arity() + " arguments but got " + count + ".");
+        }
+        return function;
+    }
+
+    static boolean isTruthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+package com.thecout.lox.Flat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.thecout.lox.Flat.FlatAst.*;
+
+/**
+ * The {@link com.thecout.lox.Traversal.Resolver} for a {@link FlatAst}: stores the slot of
+ * every local declaration and the location of every local variable in the nodes, with
+ * the same scoping rules, so both engines agree on what a name refers to.
+ */
+final class FlatResolver {
+    private static class Scope {
+        final Map<Integer, Integer> slots = new HashMap<>();
+        int size = 0;
+    }
+
+    private final FlatAst ast;
+    // innermost scope last
+    private final List<Scope> scopes = new ArrayList<>();
+    private int functions = 0;
+
+    FlatResolver(FlatAst ast) {
+        this.ast = ast;
+    }
+
+    void resolve() {
+        statements(ast.root);
+    }
+
+    private void statements(int list) {
+        int count = ast.lists[list];
+        for (int i = 1; i <= count; i++) {
+            resolve(ast.lists[list + i]);
+        }
+    }
+
+    private int declare(int token) {
+        if (scopes.isEmpty()) return NONE;
+        Scope scope = scopes.get(scopes.size() - 1);
+        // redeclaring in the same scope reuses the old slot
+        return scope.slots.computeIfAbsent(ast.name(token), key -> scope.size++);
+    }
+
+    private int lookup(int token) {
+        int name = ast.name(token);
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Integer slot = scopes.get(i).slots.get(name);
+            if (slot != null) {
+                return location(scopes.size() - 1 - i, slot);
+            }
+        }
+        return NONE;
+    }
+
+    // blocks without own declarations are executed in the enclosing scope
+    private boolean declaresLocals(int list) {
+        int count = ast.lists[list];
+        for (int i = 1; i <= count; i++) {
+            int statement = ast.lists[list + i];
+            if (statement != NONE && (ast.kind(statement) == VAR || ast.kind(statement) == FUNCTION)) return true;
+        }
+        return false;
+    }
+
+    private void resolve(int node) {
+        if (node == NONE) return;
+        switch (ast.kind(node)) {
+            case BLOCK:
+                if (!declaresLocals(ast.a(node))) {
+                    statements(ast.a(node));
+                    break;
+                }
+                scopes.add(new Scope());
+                statements(ast.a(node));
+                ast.setExtra(node, scopes.remove(scopes.size() - 1).size);
+                break;
+            case FUNCTION: {
+                // declared before the body so the function can call itself
+                ast.setC(node, declare(ast.a(node)));
+                Scope frame = new Scope();
+                scopes.add(frame);
+                // parameter i always lives in slot i, a repeated name refers to the last one
+                int list = ast.b(node);
+                int arity = ast.lists[list];
+                for (int i = 1; i <= arity; i++) {
+                    frame.slots.put(ast.name(ast.lists[list + i]), frame.size++);
+                }
+                functions++;
+                statements(list + arity + 1);
+                functions--;
+                ast.setExtra(node, scopes.remove(scopes.size() - 1).size);
+                break;
+            }
+            case VAR:
+                // the initializer still sees an outer variable of the same name
+                resolve(ast.b(node));
+                ast.setC(node, declare(ast.a(node)));
+                break;
+            case VARIABLE:
+                ast.setB(node, lookup(ast.a(node)));
+                break;
+            case ASSIGN:
+                resolve(ast.b(node));
+                ast.setC(node, lookup(ast.a(node)));
+                break;
+            case CALL:
+                resolve(ast.a(node));
+                statements(ast.c(node));
+                break;
+            case RETURN: {
+                int value = ast.a(node);
+                ast.setExtra(node, functions > 0 && value != NONE && ast.kind(value) == CALL ? 1 : 0);
+                resolve(value);
+                break;
+            }
+            case EXPRESSION:
+            case PRINT:
+                resolve(ast.a(node));
+                break;
+            case UNARY:
+                resolve(ast.b(node));
+                break;
+            case IF:
+                resolve(ast.a(node));
+                resolve(ast.b(node));
+                resolve(ast.c(node));
+                break;
+            case WHILE:
+                resolve(ast.a(node));
+                resolve(ast.b(node));
+                break;
+            case BINARY:
+            case LOGICAL:
+                resolve(ast.a(node));
+                resolve(ast.c(node));
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.thecout.lox.Jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The bytecode of one method. Every instruction adjusts the tracked stack depth, so the
+ * Code attribute gets its max_stack without a separate pass, and locals are handed out
+ * in order after the parameters.
+ */
+final class Code {
+    static final int ACONST_NULL = 0x01, ICONST_0 = 0x03, ICONST_1 = 0x04;
+    static final int ALOAD = 0x19, DLOAD = 0x18, ASTORE = 0x3a, DSTORE = 0x39;
+    static final int AALOAD = 0x32, AASTORE = 0x53;
+    static final int POP = 0x57, POP2 = 0x58, DUP = 0x59, DUP2 = 0x5c;
+    static final int DADD = 0x63, DSUB = 0x67, DMUL = 0x6b, DDIV = 0x6f, DNEG = 0x77, IXOR = 0x82;
+    static final int DCMPL = 0x97, DCMPG = 0x98;
+    static final int IFEQ = 0x99, IFNE = 0x9a, IFLT = 0x9b, IFGE = 0x9c, IFGT = 0x9d, IFLE = 0x9e;
+    static final int IF_ACMPEQ = 0xa5, IF_ACMPNE = 0xa6, GOTO = 0xa7;
+    static final int ARETURN = 0xb0, RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2, GETFIELD = 0xb4, PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, INVOKEINTERFACE = 0xb9;
+    static final int ANEWARRAY = 0xbd, CHECKCAST = 0xc0, INSTANCEOF = 0xc1;
+    private static final int LDC = 0x12, LDC_W = 0x13, LDC2_W = 0x14, BIPUSH = 0x10, SIPUSH = 0x11, WIDE = 0xc4;
+
+    static final class Label {
+        private int position = -1;
+        // stack depth when the label is reached by a jump, -1 until the first jump
+        private int stack = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+        private Label() {
+        }
+    }
+
+    private final ClassBuilder owner;
+    private final List<Label> labels = new ArrayList<>();
+    private final int access;
+    private final int name;
+    private final int descriptor;
+    private byte[] code = new byte[256];
+    private int length;
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+
+    Code(ClassBuilder owner, int access, int name, int descriptor, String signature) {
+        this.owner = owner;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.maxLocals = 1 + argumentSlots(signature);
+    }
+
+    int newLocal(int size) {
+        int local = maxLocals;
+        maxLocals += size;
+        return local;
+    }
+
+    private void emit(int b) {
+        if (length == code.length) code = Arrays.copyOf(code, length * 2);
+        code[length++] = (byte) b;
+    }
+
+    private void emitShort(int s) {
+        emit(s >> 8);
+        emit(s);
+    }
+
+    private void adjust(int delta) {
+        stack += delta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    void op(int opcode, int delta) {
+        emit(opcode);
+        adjust(delta);
+    }
+
+    void iconst(int value) {
+        if (value >= -1 && value <= 5) {
+            emit(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            emit(BIPUSH);
+            emit(value);
+        } else {
+            emit(SIPUSH);
+            emitShort(value);
+        }
+        adjust(1);
+    }
+
+    void dconst(double value) {
+        emit(LDC2_W);
+        emitShort(owner.doubleConstant(value));
+        adjust(2);
+    }
+
+    void sconst(String value) {
+        int index = owner.string(value);
+        if (index < 256) {
+            emit(LDC);
+            emit(index);
+        } else {
+            emit(LDC_W);
+            emitShort(index);
+        }
+        adjust(1);
+    }
+
+    // ALOAD, DLOAD, ASTORE or DSTORE
+    void local(int opcode, int local) {
+        if (local > 255) {
+            emit(WIDE);
+            emit(opcode);
+            emitShort(local);
+        } else {
+            emit(opcode);
+            emit(local);
+        }
+        adjust(opcode == ALOAD ? 1 : opcode == DLOAD ? 2 : opcode == ASTORE ? -1 : -2);
+    }
+
+    void field(int opcode, String owner, String name, String descriptor) {
+        emit(opcode);
+        emitShort(this.owner.field(owner, name, descriptor));
+        int size = size(descriptor.charAt(0));
+        adjust(opcode == GETSTATIC ? size : opcode == GETFIELD ? size - 1 : -size - 1);
+    }
+
+    void invoke(int opcode, String owner, String name, String descriptor) {
+        int arguments = argumentSlots(descriptor);
+        if (opcode == INVOKEINTERFACE) {
+            emit(opcode);
+            emitShort(this.owner.interfaceMethod(owner, name, descriptor));
+            emit(arguments + 1);
+            emit(0);
+        } else {
+            emit(opcode);
+            emitShort(this.owner.method(owner, name, descriptor));
+        }
+        int result = size(descriptor.charAt(descriptor.indexOf(')') + 1));
+        adjust(result - arguments - (opcode == INVOKESTATIC ? 0 : 1));
+    }
+
+    // CHECKCAST, INSTANCEOF or ANEWARRAY
+    void type(int opcode, String internalName) {
+        emit(opcode);
+        emitShort(owner.classRef(internalName));
+    }
+
+    void jump(int opcode, Label label) {
+        // IFEQ to IFLE take one operand, the comparisons from IF_ICMPEQ on take two
+        adjust(opcode == GOTO ? 0 : opcode >= 0x9f ? -2 : -1);
+        label.jumps.add(length);
+        emit(opcode);
+        emitShort(0);
+        label.stack = stack;
+    }
+
+    void mark(Label label) {
+        label.position = length;
+        if (label.stack >= 0) stack = label.stack;
+    }
+
+    Label newLabel() {
+        Label label = new Label();
+        labels.add(label);
+        return label;
+    }
+
+    byte[] toByteArray(int codeAttribute) {
+        if (length > Short.MAX_VALUE) throw new FunctionCompiler.Unsupported("method too large");
+        for (Label label : labels) {
+            for (int jump : label.jumps) {
+                int offset = label.position - jump;
+                code[jump + 1] = (byte) (offset >> 8);
+                code[jump + 2] = (byte) offset;
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int size(char type) {
+        return type == 'V' ? 0 : type == 'D' || type == 'J' ? 2 : 1;
+    }
+
+    private static int argumentSlots(String descriptor) {
+        int slots = 0;
+        for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+            char c = descriptor.charAt(i);
+            slots += size(c);
+            while (c == '[') c = descriptor.charAt(++i);
+            if (c == 'L') i = descriptor.indexOf(';', i);
+        }
+        return slots;
+    }
+}
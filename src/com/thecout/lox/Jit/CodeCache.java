@@ -0,0 +1,35 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Parser.Stmts.Function;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compiled code of the functions of a tree that several interpreters run, see
+ * {@link com.thecout.lox.Traversal.CompiledProgram}. A declaration is compiled once, by
+ * the first interpreter that gets it hot, and the functions of every other interpreter
+ * are bound to that code from their first call on.
+ */
+public final class CodeCache {
+    // stands for a declaration the compiler does not handle
+    private static final CompiledCode UNSUPPORTED = new CompiledCode(null, new Object[2]);
+
+    private final Map<Function, CompiledCode> code = new ConcurrentHashMap<>();
+
+    // the code of the function if its declaration is compiled already, null otherwise
+    public CompiledFunction lookup(LoxFunction function) {
+        CompiledCode compiled = code.get(function.declaration());
+        return compiled == null || compiled == UNSUPPORTED ? null : compiled.bind(function);
+    }
+
+    // compiles the declaration unless that happened already, null if it is not compiled
+    public CompiledFunction compile(LoxFunction function) {
+        CompiledCode compiled = code.computeIfAbsent(function.declaration(), declaration -> {
+            CompiledCode result = FunctionCompiler.compileCode(function);
+            return result == null ? UNSUPPORTED : result;
+        });
+        return compiled == UNSUPPORTED ? null : compiled.bind(function);
+    }
+}
@@ -0,0 +1,35 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A hidden class the {@link FunctionCompiler} generated for a function declaration. The
+ * class only depends on the declaration, the function and its closure are fields of an
+ * instance, so every {@link LoxFunction} made from the declaration can be bound to the
+ * same class.
+ */
+public final class CompiledCode {
+    private final MethodHandle constructor;
+    // the constructor's arguments, the first two are the function and its closure
+    private final Object[] constants;
+
+    CompiledCode(MethodHandle constructor, Object[] constants) {
+        this.constructor = constructor;
+        this.constants = constants;
+        constants[0] = null;
+        constants[1] = null;
+    }
+
+    public CompiledFunction bind(LoxFunction function) {
+        Object[] arguments = constants.clone();
+        arguments[0] = function;
+        arguments[1] = function.closure();
+        try {
+            return (CompiledFunction) constructor.invoke(arguments);
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot instantiate the code of " + function, e);
+        }
+    }
+}
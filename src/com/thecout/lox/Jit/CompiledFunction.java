@@ -0,0 +1,144 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+import java.util.List;
+
+/**
+ * Base class of the hidden classes the {@link FunctionCompiler} generates. A generated
+ * class overrides the entry point of its arity, call0 to call4 or the array form. An
+ * entry point returns {@link #DEOPT} before running anything if an argument is not the
+ * number the code was compiled for, the caller then interprets the call instead. The
+ * static methods are what the generated code calls for the parts it does not inline.
+ */
+public abstract class CompiledFunction implements LoxCallable {
+    public static final Object DEOPT = new Object();
+
+    private final int arity;
+
+    protected CompiledFunction(int arity) {
+        this.arity = arity;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call(interpreter, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        switch (arity) {
+            case 0:
+                return call0(interpreter);
+            case 1:
+                return call1(interpreter, arguments[0]);
+            case 2:
+                return call2(interpreter, arguments[0], arguments[1]);
+            case 3:
+                return call3(interpreter, arguments[0], arguments[1], arguments[2]);
+            case 4:
+                return call4(interpreter, arguments[0], arguments[1], arguments[2], arguments[3]);
+            default:
+                throw new IllegalStateException("no entry point for " + arity + " arguments");
+        }
+    }
+
+    // the entry point for arguments already bound in the first slots of a frame
+    public Object call(Interpreter interpreter, Environment frame) {
+        switch (arity) {
+            case 0:
+                return call0(interpreter);
+            case 1:
+                return call1(interpreter, frame.getAt(0, 0));
+            case 2:
+                return call2(interpreter, frame.getAt(0, 0), frame.getAt(0, 1));
+            case 3:
+                return call3(interpreter, frame.getAt(0, 0), frame.getAt(0, 1), frame.getAt(0, 2));
+            case 4:
+                return call4(interpreter, frame.getAt(0, 0), frame.getAt(0, 1), frame.getAt(0, 2),
+                        frame.getAt(0, 3));
+            default:
+                Object[] arguments = new Object[arity];
+                for (int i = 0; i < arity; i++) {
+                    arguments[i] = frame.getAt(0, i);
+                }
+                return call(interpreter, arguments);
+        }
+    }
+
+    // the checks of Interpreter.function, generated code has no inline cache
+    private static LoxCallable function(Object callee, int count, Token paren) {
+        if (!(callee instanceof LoxCallable)) {
+            throw new RuntimeError(paren, "Can only call functions.");
+        }
+        LoxCallable function = (LoxCallable) callee;
+        if (count != function.arity()) {
+            throw new RuntimeError(paren, "Expected " + function.arity() + " arguments but got " + count + ".");
+        }
+        return function;
+    }
+
+    public static Object invoke0(Object callee, Interpreter interpreter, Token paren) {
+        return function(callee, 0, paren).call0(interpreter);
+    }
+
+    public static Object invoke1(Object callee, Object a, Interpreter interpreter, Token paren) {
+        return function(callee, 1, paren).call1(interpreter, a);
+    }
+
+    public static Object invoke2(Object callee, Object a, Object b, Interpreter interpreter, Token paren) {
+        return function(callee, 2, paren).call2(interpreter, a, b);
+    }
+
+    public static Object invoke3(Object callee, Object a, Object b, Object c,
+                                 Interpreter interpreter, Token paren) {
+        return function(callee, 3, paren).call3(interpreter, a, b, c);
+    }
+
+    public static Object invoke4(Object callee, Object a, Object b, Object c, Object d,
+                                 Interpreter interpreter, Token paren) {
+        return function(callee, 4, paren).call4(interpreter, a, b, c, d);
+    }
+
+    public static Object invoke(Object callee, Object[] arguments, Interpreter interpreter, Token paren) {
+        return function(callee, arguments.length, paren).call(interpreter, arguments);
+    }
+
+    // the checks of Operands with the value first, as it is on the stack before the token
+    public static double number(Object value, Token operator) {
+        return Operands.number(operator, value);
+    }
+
+    public static boolean bool(Object value, Token operator) {
+        return Operands.bool(operator, value);
+    }
+
+    public static boolean condition(Object value) {
+        return Operands.condition(value);
+    }
+
+    public static double divide(double left, double right, Token operator) {
+        if (right == 0) {
+            throw new RuntimeError(operator, "Cannot divide by zero.");
+        }
+        return left / right;
+    }
+
+    // a divisor that passed its check by a left operand that has not, checked after the zero as in the Interpreter
+    public static double divide(Object left, double right, Token operator) {
+        if (right == 0) {
+            throw new RuntimeError(operator, "Cannot divide by zero.");
+        }
+        return Operands.number(operator, left) / right;
+    }
+}
@@ -0,0 +1,861 @@
+package com.thecout.lox.Jit;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Second tier of the tree-walking Interpreter. A {@link LoxFunction} that was called
+ * {@link #THRESHOLD} times is compiled to a hidden class, which it calls from then on
+ * instead of walking its body. Locals live in JVM locals, and every local that only
+ * ever holds numbers is kept as an unboxed double. A parameter the body uses as a
+ * number is assumed to be one, the entry point checks that and deoptimizes otherwise.
+ * <p>
+ * Functions that declare functions, and so might capture their frame, and functions
+ * with a tail call to anything but themselves are not compiled and stay interpreted.
+ * A tail call to the function itself becomes a jump back to the start of the body.
+ * Loops and those jumps count their iterations against the interpreter's budget.
+ */
+public final class FunctionCompiler implements ExprVisitor<FunctionCompiler.Kind>, StmtVisitor<Void> {
+    // calls before a function is compiled, 0 turns compilation off
+    public static final int THRESHOLD = Integer.getInteger("lox.jit.threshold", 1000);
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String DOUBLE = "java/lang/Double";
+    private static final String BOOLEAN = "java/lang/Boolean";
+    private static final String TOKEN = "com/thecout/lox/Token";
+    private static final String ENVIRONMENT = "com/thecout/lox/Traversal/InterpreterUtils/Environment";
+    private static final String FUNCTION = "com/thecout/lox/Traversal/InterpreterUtils/LoxFunction";
+    private static final String INTERPRETER = "com/thecout/lox/Traversal/Interpreter";
+    private static final String BASE = "com/thecout/lox/Jit/CompiledFunction";
+
+    static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    // what an expression leaves on the stack
+    enum Kind {OBJECT, DOUBLE, BOOLEAN}
+
+    private static final class Local {
+        final boolean parameter;
+        // for parameters: used as a number somewhere in the body
+        boolean numericUse;
+        boolean numeric;
+        // everything assigned to the local, null for an uninitialized var
+        final List<Expr> values = new ArrayList<>();
+        int index;
+
+        Local(boolean parameter) {
+            this.parameter = parameter;
+        }
+    }
+
+    private final LoxFunction function;
+    private final Function declaration;
+    private final String className;
+    private final ClassBuilder builder;
+    private final List<Local> parameters = new ArrayList<>();
+    private final List<Local> allLocals = new ArrayList<>();
+    // Variable, Assign and Var nodes of locals, and the depth relative to the closure of
+    // Variable and Assign nodes that reach out of the function
+    private final Map<Object, Local> locals = new IdentityHashMap<>();
+    private final Map<Expr, Integer> outer = new IdentityHashMap<>();
+    private final Map<Token, String> tokens = new IdentityHashMap<>();
+    private final List<Object> constants = new ArrayList<>();
+    private Code code;
+    private Code.Label start;
+
+    private FunctionCompiler(LoxFunction function) {
+        this.function = function;
+        this.declaration = function.declaration();
+        this.className = "com/thecout/lox/Jit/Lox$" + declaration.name.lexeme;
+        this.builder = new ClassBuilder(className, BASE);
+    }
+
+    /**
+     * Compiles the function, or returns null if it uses something the compiler does not
+     * handle.
+     */
+    public static CompiledFunction compile(LoxFunction function) {
+        CompiledCode code = compileCode(function);
+        return code == null ? null : code.bind(function);
+    }
+
+    // the class for the declaration of the function, for any function made from it
+    static CompiledCode compileCode(LoxFunction function) {
+        try {
+            return new FunctionCompiler(function).compile();
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    private CompiledCode compile() {
+        analyze();
+        constants.add(function);
+        builder.addField(ClassBuilder.ACC_PRIVATE | ClassBuilder.ACC_FINAL, "self", "L" + FUNCTION + ";");
+        constants.add(function.closure());
+        builder.addField(ClassBuilder.ACC_PRIVATE | ClassBuilder.ACC_FINAL, "closure", "L" + ENVIRONMENT + ";");
+        emitBody();
+        emitConstructor();
+        // outside the try, a body too large for a method is Unsupported and stays interpreted
+        byte[] bytes = builder.toByteArray();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return new CompiledCode(lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class, Object[].class)), constants.toArray());
+        } catch (Throwable e) {
+            throw new IllegalStateException("generated invalid code for " + declaration.name.lexeme, e);
+        }
+    }
+
+    // the constants are handed to the constructor in the order their fields were added
+    private void emitConstructor() {
+        Code init = builder.addMethod(ClassBuilder.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V");
+        init.local(Code.ALOAD, 0);
+        init.iconst(declaration.parameters.size());
+        init.invoke(Code.INVOKESPECIAL, BASE, "<init>", "(I)V");
+        String[] fields = new String[constants.size()];
+        String[] descriptors = new String[constants.size()];
+        fields[0] = "self";
+        descriptors[0] = FUNCTION;
+        fields[1] = "closure";
+        descriptors[1] = ENVIRONMENT;
+        for (Map.Entry<Token, String> token : tokens.entrySet()) {
+            int index = Integer.parseInt(token.getValue().substring(1)) + 2;
+            fields[index] = token.getValue();
+            descriptors[index] = TOKEN;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            init.local(Code.ALOAD, 0);
+            init.local(Code.ALOAD, 1);
+            init.iconst(i);
+            init.op(Code.AALOAD, -1);
+            init.type(Code.CHECKCAST, descriptors[i]);
+            init.field(Code.PUTFIELD, className, fields[i], "L" + descriptors[i] + ";");
+        }
+        init.op(Code.RETURN, 0);
+    }
+
+    private void token(Token token) {
+        String field = tokens.get(token);
+        if (field == null) {
+            field = "k" + tokens.size();
+            tokens.put(token, field);
+            constants.add(token);
+            builder.addField(ClassBuilder.ACC_PRIVATE | ClassBuilder.ACC_FINAL, field, "L" + TOKEN + ";");
+        }
+        code.local(Code.ALOAD, 0);
+        code.field(Code.GETFIELD, className, field, "L" + TOKEN + ";");
+    }
+
+    // ---- analysis: which variable each node refers to and which locals are numbers ----
+
+    private void analyze() {
+        List<Local[]> scopes = new ArrayList<>();
+        Local[] frame = new Local[declaration.slots];
+        for (int i = 0; i < declaration.parameters.size(); i++) {
+            frame[i] = new Local(true);
+            parameters.add(frame[i]);
+            allLocals.add(frame[i]);
+        }
+        scopes.add(frame);
+        for (Stmt statement : declaration.body) {
+            analyze(statement, scopes);
+        }
+        for (Local local : allLocals) {
+            local.numeric = local.parameter ? local.numericUse : !local.values.isEmpty();
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Local local : allLocals) {
+                if (!local.numeric) continue;
+                for (Expr value : local.values) {
+                    if (value == null || !isNumeric(value)) {
+                        local.numeric = false;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void analyze(Stmt stmt, List<Local[]> scopes) {
+        if (stmt instanceof Expression) {
+            analyze(((Expression) stmt).expression, scopes);
+        } else if (stmt instanceof Print) {
+            analyze(((Print) stmt).expression, scopes);
+        } else if (stmt instanceof Var) {
+            Var var = (Var) stmt;
+            if (var.initializer != null) analyze(var.initializer, scopes);
+            Local[] scope = scopes.get(scopes.size() - 1);
+            if (scope[var.slot] == null) {
+                scope[var.slot] = new Local(false);
+                allLocals.add(scope[var.slot]);
+            }
+            scope[var.slot].values.add(var.initializer);
+            locals.put(var, scope[var.slot]);
+        } else if (stmt instanceof Block) {
+            Block block = (Block) stmt;
+            if (block.slots > 0) scopes.add(new Local[block.slots]);
+            for (Stmt statement : block.statements) {
+                analyze(statement, scopes);
+            }
+            if (block.slots > 0) scopes.remove(scopes.size() - 1);
+        } else if (stmt instanceof If) {
+            If ifStmt = (If) stmt;
+            analyze(ifStmt.condition, scopes);
+            analyze(ifStmt.thenBranch, scopes);
+            if (ifStmt.elseBranch != null) analyze(ifStmt.elseBranch, scopes);
+        } else if (stmt instanceof While) {
+            analyze(((While) stmt).condition, scopes);
+            analyze(((While) stmt).body, scopes);
+        } else if (stmt instanceof Return) {
+            Return returnStmt = (Return) stmt;
+            if (returnStmt.tailCall && !isSelfCall((Call) returnStmt.value)) {
+                throw new Unsupported("tail call");
+            }
+            if (returnStmt.value != null) analyze(returnStmt.value, scopes);
+        } else {
+            throw new Unsupported("nested function");
+        }
+    }
+
+    private void analyze(Expr expr, List<Local[]> scopes) {
+        if (expr instanceof Variable) {
+            Variable variable = (Variable) expr;
+            refer(expr, variable.depth, variable.slot, scopes);
+        } else if (expr instanceof Assign) {
+            Assign assign = (Assign) expr;
+            analyze(assign.value, scopes);
+            Local local = refer(expr, assign.depth, assign.slot, scopes);
+            if (local != null) local.values.add(assign.value);
+        } else if (expr instanceof Binary) {
+            Binary binary = (Binary) expr;
+            analyze(binary.left, scopes);
+            analyze(binary.right, scopes);
+            numericUse(binary.left);
+            numericUse(binary.right);
+        } else if (expr instanceof Unary) {
+            Unary unary = (Unary) expr;
+            analyze(unary.right, scopes);
+            if (unary.operator.type == TokenType.MINUS) numericUse(unary.right);
+        } else if (expr instanceof Logical) {
+            analyze(((Logical) expr).left, scopes);
+            analyze(((Logical) expr).right, scopes);
+        } else if (expr instanceof Call) {
+            Call call = (Call) expr;
+            analyze(call.callee, scopes);
+            for (Expr argument : call.arguments) {
+                analyze(argument, scopes);
+            }
+        } else if (expr instanceof Grouping) {
+            analyze(((Grouping) expr).expression, scopes);
+        }
+    }
+
+    private Local refer(Expr expr, int depth, int slot, List<Local[]> scopes) {
+        if (depth < 0) return null;
+        if (depth >= scopes.size()) {
+            outer.put(expr, depth - scopes.size());
+            return null;
+        }
+        Local local = scopes.get(scopes.size() - 1 - depth)[slot];
+        if (local == null) throw new Unsupported("local read before its declaration");
+        locals.put(expr, local);
+        return local;
+    }
+
+    private void numericUse(Expr expr) {
+        Local local = locals.get(expr);
+        if (local != null) local.numericUse = true;
+    }
+
+    // a call of the global this function is bound to, checked again when it runs
+    private boolean isSelfCall(Call call) {
+        return declaration.slot < 0 && call.callee instanceof Variable
+                && ((Variable) call.callee).depth < 0
+                && ((Variable) call.callee).name.lexeme.equals(declaration.name.lexeme);
+    }
+
+    // whether the expression always evaluates to a number, or fails like the Interpreter does
+    private boolean isNumeric(Expr expr) {
+        if (expr instanceof Literal) return ((Literal) expr).value instanceof Double;
+        if (expr instanceof Binary) return isArithmetic(((Binary) expr).operator.type);
+        if (expr instanceof Unary) return ((Unary) expr).operator.type == TokenType.MINUS;
+        if (expr instanceof Grouping) return isNumeric(((Grouping) expr).expression);
+        if (expr instanceof Variable || expr instanceof Assign) {
+            Local local = locals.get(expr);
+            return local != null && local.numeric;
+        }
+        return false;
+    }
+
+    private static boolean isArithmetic(TokenType type) {
+        return type == TokenType.PLUS || type == TokenType.MINUS || type == TokenType.STAR || type == TokenType.SLASH;
+    }
+
+    // ---- code generation ----
+
+    private void emitBody() {
+        int arity = declaration.parameters.size();
+        StringBuilder descriptor = new StringBuilder("(L" + INTERPRETER + ";");
+        if (arity <= 4) {
+            descriptor.append("Ljava/lang/Object;".repeat(arity));
+        } else {
+            descriptor.append("[Ljava/lang/Object;");
+        }
+        descriptor.append(")Ljava/lang/Object;");
+        code = builder.addMethod(ClassBuilder.ACC_PUBLIC, arity <= 4 ? "call" + arity : "call", descriptor.toString());
+        Code.Label deopt = code.newLabel();
+        for (int i = 0; i < arity; i++) {
+            Local parameter = parameters.get(i);
+            int incoming;
+            if (arity <= 4) {
+                incoming = 2 + i;
+            } else {
+                incoming = code.newLocal(1);
+                code.local(Code.ALOAD, 2);
+                code.iconst(i);
+                code.op(Code.AALOAD, -1);
+                code.local(Code.ASTORE, incoming);
+            }
+            if (parameter.numeric) {
+                parameter.index = code.newLocal(2);
+                code.local(Code.ALOAD, incoming);
+                code.type(Code.INSTANCEOF, DOUBLE);
+                code.jump(Code.IFEQ, deopt);
+                code.local(Code.ALOAD, incoming);
+                unbox();
+                code.local(Code.DSTORE, parameter.index);
+            } else {
+                parameter.index = incoming;
+            }
+        }
+        for (Local local : allLocals) {
+            if (!local.parameter) local.index = code.newLocal(local.numeric ? 2 : 1);
+        }
+        start = code.newLabel();
+        code.mark(start);
+        for (Stmt statement : declaration.body) {
+            statement.accept(this);
+        }
+        code.op(Code.ACONST_NULL, 1);
+        code.op(Code.ARETURN, -1);
+        code.mark(deopt);
+        code.field(Code.GETSTATIC, BASE, "DEOPT", "Ljava/lang/Object;");
+        code.op(Code.ARETURN, -1);
+    }
+
+    private void emit(Expr expr, Kind kind) {
+        emit(expr, kind, null);
+    }
+
+    // an operand of operator, or the condition of an if or a while for a null operator
+    private void emit(Expr expr, Kind kind, Token operator) {
+        convert(expr.accept(this), kind, operator);
+    }
+
+    private void convert(Kind from, Kind to) {
+        convert(from, to, null);
+    }
+
+    private void convert(Kind from, Kind to, Token operator) {
+        if (from == to) return;
+        if (from == Kind.DOUBLE) {
+            code.invoke(Code.INVOKESTATIC, DOUBLE, "valueOf", "(D)Ljava/lang/Double;");
+        } else if (from == Kind.BOOLEAN) {
+            code.invoke(Code.INVOKESTATIC, BOOLEAN, "valueOf", "(Z)Ljava/lang/Boolean;");
+        }
+        // from here on the checks fail for the wrong type just like the Interpreter's
+        if (to == Kind.DOUBLE) {
+            if (operator != null) {
+                token(operator);
+            } else {
+                code.op(Code.ACONST_NULL, 1);
+            }
+            code.invoke(Code.INVOKESTATIC, BASE, "number", "(Ljava/lang/Object;L" + TOKEN + ";)D");
+        } else if (to == Kind.BOOLEAN && operator == null) {
+            code.invoke(Code.INVOKESTATIC, BASE, "condition", "(Ljava/lang/Object;)Z");
+        } else if (to == Kind.BOOLEAN) {
+            token(operator);
+            code.invoke(Code.INVOKESTATIC, BASE, "bool", "(Ljava/lang/Object;L" + TOKEN + ";)Z");
+        }
+    }
+
+    // a Double the code has checked for already
+    private void unbox() {
+        code.type(Code.CHECKCAST, DOUBLE);
+        code.invoke(Code.INVOKEVIRTUAL, DOUBLE, "doubleValue", "()D");
+    }
+
+    private void pop(Kind kind) {
+        code.op(kind == Kind.DOUBLE ? Code.POP2 : Code.POP, kind == Kind.DOUBLE ? -2 : -1);
+    }
+
+    // jumps to the target if the condition is true (when) or false (!when), without boxing;
+    // the condition is an operand of operator, or of an if or a while for a null operator
+    private void branch(Expr condition, Code.Label target, boolean when, Token operator) {
+        if (condition instanceof Binary && !isArithmetic(((Binary) condition).operator.type)) {
+            Binary binary = (Binary) condition;
+            operands(binary);
+            // dcmpl and dcmpg make every comparison with NaN false, as in Java
+            switch (binary.operator.type) {
+                case GREATER:
+                    code.op(Code.DCMPL, -3);
+                    code.jump(when ? Code.IFGT : Code.IFLE, target);
+                    return;
+                case GREATER_EQUAL:
+                    code.op(Code.DCMPL, -3);
+                    code.jump(when ? Code.IFGE : Code.IFLT, target);
+                    return;
+                case LESS:
+                    code.op(Code.DCMPG, -3);
+                    code.jump(when ? Code.IFLT : Code.IFGE, target);
+                    return;
+                default:
+                    code.op(Code.DCMPG, -3);
+                    code.jump(when ? Code.IFLE : Code.IFGT, target);
+                    return;
+            }
+        }
+        if (condition instanceof Logical) {
+            Logical logical = (Logical) condition;
+            switch (logical.operator.type) {
+                case AND:
+                case OR: {
+                    // a and b jumps on false as soon as one is false, a or b on true as soon as one is true
+                    boolean shortCircuit = logical.operator.type == TokenType.OR;
+                    if (when == shortCircuit) {
+                        branch(logical.left, target, when, logical.operator);
+                        branch(logical.right, target, when, logical.operator);
+                    } else {
+                        Code.Label skip = code.newLabel();
+                        branch(logical.left, skip, shortCircuit, logical.operator);
+                        branch(logical.right, target, when, logical.operator);
+                        code.mark(skip);
+                    }
+                    return;
+                }
+                default: {
+                    boolean equal = logical.operator.type == TokenType.EQUAL_EQUAL;
+                    if (isNumeric(logical.left) && isNumeric(logical.right)) {
+                        // Double.equals is Double.compare == 0, NaN equals itself and 0.0 is not -0.0
+                        emit(logical.left, Kind.DOUBLE);
+                        emit(logical.right, Kind.DOUBLE);
+                        code.invoke(Code.INVOKESTATIC, DOUBLE, "compare", "(DD)I");
+                        code.jump(equal == when ? Code.IFEQ : Code.IFNE, target);
+                    } else {
+                        emit(logical.left, Kind.OBJECT);
+                        emit(logical.right, Kind.OBJECT);
+                        code.invoke(Code.INVOKESTATIC, "java/util/Objects", "equals",
+                                "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+                        code.jump(equal == when ? Code.IFNE : Code.IFEQ, target);
+                    }
+                    return;
+                }
+            }
+        }
+        if (condition instanceof Unary && ((Unary) condition).operator.type == TokenType.BANG) {
+            branch(((Unary) condition).right, target, !when, ((Unary) condition).operator);
+            return;
+        }
+        emit(condition, Kind.BOOLEAN, operator);
+        code.jump(when ? Code.IFNE : Code.IFEQ, target);
+    }
+
+    private Kind materialize(Expr condition) {
+        Code.Label isFalse = code.newLabel();
+        Code.Label end = code.newLabel();
+        branch(condition, isFalse, false, null);
+        code.op(Code.ICONST_1, 1);
+        code.jump(Code.GOTO, end);
+        code.mark(isFalse);
+        code.op(Code.ICONST_0, 1);
+        code.mark(end);
+        return Kind.BOOLEAN;
+    }
+
+    private void loadGlobals() {
+        code.local(Code.ALOAD, 1);
+        code.field(Code.GETFIELD, INTERPRETER, "globals", "L" + ENVIRONMENT + ";");
+    }
+
+    // counts a back edge against the interpreter's budget, like the interpreted loops do
+    private void step() {
+        code.local(Code.ALOAD, 1);
+        code.invoke(Code.INVOKEVIRTUAL, INTERPRETER, "step", "()V");
+    }
+
+    private void loadField(String name, String type) {
+        code.local(Code.ALOAD, 0);
+        code.field(Code.GETFIELD, className, name, "L" + type + ";");
+    }
+
+    @Override
+    public Kind visitAssignExpr(Assign expr) {
+        Local local = locals.get(expr);
+        if (local != null) {
+            if (local.numeric) {
+                emit(expr.value, Kind.DOUBLE);
+                code.op(Code.DUP2, 2);
+                code.local(Code.DSTORE, local.index);
+                return Kind.DOUBLE;
+            }
+            emit(expr.value, Kind.OBJECT);
+            code.op(Code.DUP, 1);
+            code.local(Code.ASTORE, local.index);
+            return Kind.OBJECT;
+        }
+        Integer depth = outer.get(expr);
+        if (depth != null) {
+            int value = code.newLocal(1);
+            emit(expr.value, Kind.OBJECT);
+            code.local(Code.ASTORE, value);
+            loadField("closure", ENVIRONMENT);
+            code.iconst(depth);
+            code.iconst(expr.slot);
+            code.local(Code.ALOAD, value);
+            code.invoke(Code.INVOKEVIRTUAL, ENVIRONMENT, "assignAt", "(IILjava/lang/Object;)V");
+            code.local(Code.ALOAD, value);
+            return Kind.OBJECT;
+        }
+        loadGlobals();
+        token(expr.name);
+        emit(expr.value, Kind.OBJECT);
+        // DUP_X2 leaves the value below the receiver and token
+        code.op(0x5b, 1);
+        code.invoke(Code.INVOKEVIRTUAL, ENVIRONMENT, "assign", "(L" + TOKEN + ";Ljava/lang/Object;)V");
+        return Kind.OBJECT;
+    }
+
+    @Override
+    public Kind visitBinaryExpr(Binary expr) {
+        if (!isArithmetic(expr.operator.type)) return materialize(expr);
+        if (expr.operator.type == TokenType.SLASH) {
+            Kind left = expr.left.accept(this);
+            if (left != Kind.DOUBLE) {
+                // the divisor is checked first, the left operand only after the zero
+                convert(left, Kind.OBJECT);
+                emit(expr.right, Kind.DOUBLE, expr.operator);
+                token(expr.operator);
+                code.invoke(Code.INVOKESTATIC, BASE, "divide", "(Ljava/lang/Object;DL" + TOKEN + ";)D");
+                return Kind.DOUBLE;
+            }
+            emit(expr.right, Kind.DOUBLE, expr.operator);
+            token(expr.operator);
+            code.invoke(Code.INVOKESTATIC, BASE, "divide", "(DDL" + TOKEN + ";)D");
+            return Kind.DOUBLE;
+        }
+        operands(expr);
+        switch (expr.operator.type) {
+            case PLUS:
+                code.op(Code.DADD, -2);
+                break;
+            case MINUS:
+                code.op(Code.DSUB, -2);
+                break;
+            default:
+                code.op(Code.DMUL, -2);
+                break;
+        }
+        return Kind.DOUBLE;
+    }
+
+    // both operands of a numeric operator as doubles; as in the Interpreter both are evaluated
+    // before either is checked, so the right one runs even if the left one is not a number
+    private void operands(Binary expr) {
+        Kind left = expr.left.accept(this);
+        if (left == Kind.DOUBLE) {
+            emit(expr.right, Kind.DOUBLE, expr.operator);
+            return;
+        }
+        convert(left, Kind.OBJECT);
+        Kind right = expr.right.accept(this);
+        if (right == Kind.DOUBLE) {
+            int value = code.newLocal(2);
+            code.local(Code.DSTORE, value);
+            convert(Kind.OBJECT, Kind.DOUBLE, expr.operator);
+            code.local(Code.DLOAD, value);
+            return;
+        }
+        convert(right, Kind.OBJECT);
+        int value = code.newLocal(1);
+        code.local(Code.ASTORE, value);
+        convert(Kind.OBJECT, Kind.DOUBLE, expr.operator);
+        code.local(Code.ALOAD, value);
+        convert(Kind.OBJECT, Kind.DOUBLE, expr.operator);
+    }
+
+    @Override
+    public Kind visitCallExpr(Call expr) {
+        emit(expr.callee, Kind.OBJECT);
+        emitCall(expr);
+        return Kind.OBJECT;
+    }
+
+    // with the callee on the stack, evaluates the arguments and calls it
+    private void emitCall(Call expr) {
+        int count = expr.arguments.size();
+        if (count <= 4) {
+            for (Expr argument : expr.arguments) {
+                emit(argument, Kind.OBJECT);
+            }
+        } else {
+            code.iconst(count);
+            code.type(Code.ANEWARRAY, OBJECT);
+            for (int i = 0; i < count; i++) {
+                code.op(Code.DUP, 1);
+                code.iconst(i);
+                emit(expr.arguments.get(i), Kind.OBJECT);
+                code.op(Code.AASTORE, -3);
+            }
+        }
+        invoke(count, expr.paren);
+    }
+
+    private void invoke(int count, Token paren) {
+        code.local(Code.ALOAD, 1);
+        token(paren);
+        String tail = "L" + INTERPRETER + ";L" + TOKEN + ";)Ljava/lang/Object;";
+        if (count <= 4) {
+            code.invoke(Code.INVOKESTATIC, BASE, "invoke" + count, "(" + "Ljava/lang/Object;".repeat(count + 1) + tail);
+        } else {
+            code.invoke(Code.INVOKESTATIC, BASE, "invoke", "(Ljava/lang/Object;[Ljava/lang/Object;" + tail);
+        }
+    }
+
+    @Override
+    public Kind visitGroupingExpr(Grouping expr) {
+        return expr.expression.accept(this);
+    }
+
+    @Override
+    public Kind visitLiteralExpr(Literal expr) {
+        Object value = expr.value;
+        if (value instanceof Double) {
+            code.dconst((Double) value);
+            return Kind.DOUBLE;
+        }
+        if (value instanceof Boolean) {
+            code.iconst((Boolean) value ? 1 : 0);
+            return Kind.BOOLEAN;
+        }
+        if (value instanceof String) {
+            code.sconst((String) value);
+        } else {
+            code.op(Code.ACONST_NULL, 1);
+        }
+        return Kind.OBJECT;
+    }
+
+    @Override
+    public Kind visitLogicalExpr(Logical expr) {
+        return materialize(expr);
+    }
+
+    @Override
+    public Kind visitUnaryExpr(Unary expr) {
+        if (expr.operator.type == TokenType.BANG) return materialize(expr);
+        emit(expr.right, Kind.DOUBLE, expr.operator);
+        code.op(Code.DNEG, 0);
+        return Kind.DOUBLE;
+    }
+
+    @Override
+    public Kind visitVariableExpr(Variable expr) {
+        Local local = locals.get(expr);
+        if (local != null) {
+            code.local(local.numeric ? Code.DLOAD : Code.ALOAD, local.index);
+            return local.numeric ? Kind.DOUBLE : Kind.OBJECT;
+        }
+        Integer depth = outer.get(expr);
+        if (depth != null) {
+            loadField("closure", ENVIRONMENT);
+            code.iconst(depth);
+            code.iconst(expr.slot);
+            code.invoke(Code.INVOKEVIRTUAL, ENVIRONMENT, "getAt", "(II)Ljava/lang/Object;");
+            return Kind.OBJECT;
+        }
+        loadGlobals();
+        token(expr.name);
+        code.invoke(Code.INVOKEVIRTUAL, ENVIRONMENT, "get", "(L" + TOKEN + ";)Ljava/lang/Object;");
+        return Kind.OBJECT;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        for (Stmt statement : stmt.statements) {
+            statement.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        pop(stmt.expression.accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Function stmt) {
+        throw new Unsupported("nested function");
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        Code.Label otherwise = code.newLabel();
+        branch(stmt.condition, otherwise, false, null);
+        stmt.thenBranch.accept(this);
+        if (stmt.elseBranch != null) {
+            Code.Label end = code.newLabel();
+            code.jump(Code.GOTO, end);
+            code.mark(otherwise);
+            stmt.elseBranch.accept(this);
+            code.mark(end);
+        } else {
+            code.mark(otherwise);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        code.local(Code.ALOAD, 1);
+        code.field(Code.GETFIELD, INTERPRETER, "out", "Ljava/io/PrintStream;");
+        emit(stmt.expression, Kind.OBJECT);
+        code.invoke(Code.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/Object;)V");
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Return stmt) {
+        if (stmt.tailCall) {
+            selfTailCall((Call) stmt.value);
+            return null;
+        }
+        if (stmt.value != null) {
+            emit(stmt.value, Kind.OBJECT);
+        } else {
+            code.op(Code.ACONST_NULL, 1);
+        }
+        code.op(Code.ARETURN, -1);
+        return null;
+    }
+
+    // evaluates callee and arguments into temporaries, if the callee still is this function
+    // the arguments become the new parameters and the body starts over, otherwise it is an
+    // ordinary call, as is one with an argument that is not the number a parameter needs
+    private void selfTailCall(Call call) {
+        int count = call.arguments.size();
+        int callee = code.newLocal(1);
+        emit(call.callee, Kind.OBJECT);
+        code.local(Code.ASTORE, callee);
+        int[] temporaries = new int[count];
+        Kind[] kinds = new Kind[count];
+        for (int i = 0; i < count; i++) {
+            Kind kind = call.arguments.get(i).accept(this);
+            if (kind == Kind.DOUBLE && i < parameters.size() && parameters.get(i).numeric) {
+                kinds[i] = Kind.DOUBLE;
+                temporaries[i] = code.newLocal(2);
+                code.local(Code.DSTORE, temporaries[i]);
+            } else {
+                convert(kind, Kind.OBJECT);
+                kinds[i] = Kind.OBJECT;
+                temporaries[i] = code.newLocal(1);
+                code.local(Code.ASTORE, temporaries[i]);
+            }
+        }
+        Code.Label ordinary = code.newLabel();
+        if (count == parameters.size()) {
+            code.local(Code.ALOAD, callee);
+            loadField("self", FUNCTION);
+            code.jump(Code.IF_ACMPNE, ordinary);
+            for (int i = 0; i < count; i++) {
+                if (parameters.get(i).numeric && kinds[i] == Kind.OBJECT) {
+                    code.local(Code.ALOAD, temporaries[i]);
+                    code.type(Code.INSTANCEOF, DOUBLE);
+                    code.jump(Code.IFEQ, ordinary);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                Local parameter = parameters.get(i);
+                if (kinds[i] == Kind.DOUBLE) {
+                    code.local(Code.DLOAD, temporaries[i]);
+                    code.local(Code.DSTORE, parameter.index);
+                } else if (parameter.numeric) {
+                    code.local(Code.ALOAD, temporaries[i]);
+                    unbox();
+                    code.local(Code.DSTORE, parameter.index);
+                } else {
+                    code.local(Code.ALOAD, temporaries[i]);
+                    code.local(Code.ASTORE, parameter.index);
+                }
+            }
+            step();
+            code.jump(Code.GOTO, start);
+        }
+        code.mark(ordinary);
+        code.local(Code.ALOAD, callee);
+        if (count > 4) {
+            code.iconst(count);
+            code.type(Code.ANEWARRAY, OBJECT);
+        }
+        for (int i = 0; i < count; i++) {
+            if (count > 4) {
+                code.op(Code.DUP, 1);
+                code.iconst(i);
+            }
+            code.local(kinds[i] == Kind.DOUBLE ? Code.DLOAD : Code.ALOAD, temporaries[i]);
+            convert(kinds[i], Kind.OBJECT);
+            if (count > 4) code.op(Code.AASTORE, -3);
+        }
+        invoke(count, call.paren);
+        code.op(Code.ARETURN, -1);
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        Local local = locals.get(stmt);
+        if (local.numeric) {
+            emit(stmt.initializer, Kind.DOUBLE);
+            code.local(Code.DSTORE, local.index);
+            return null;
+        }
+        if (stmt.initializer != null) {
+            emit(stmt.initializer, Kind.OBJECT);
+        } else {
+            code.op(Code.ACONST_NULL, 1);
+        }
+        code.local(Code.ASTORE, local.index);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        Code.Label loop = code.newLabel();
+        Code.Label end = code.newLabel();
+        code.mark(loop);
+        branch(stmt.condition, end, false, null);
+        stmt.body.accept(this);
+        step();
+        code.jump(Code.GOTO, loop);
+        code.mark(end);
+        return null;
+    }
+}
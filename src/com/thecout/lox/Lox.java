@@ -0,0 +1,132 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Closures.ClosureInterpreter;
+import com.thecout.lox.Flat.FlatAst;
+import com.thecout.lox.Flat.FlatInterpreter;
+import com.thecout.lox.Nodes.NodeInterpreter;
+import com.thecout.lox.Parser.ParallelParser;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Profiler;
+import com.thecout.lox.Traversal.InterpreterUtils.SamplingProfiler;
+import com.thecout.lox.Vm.VM;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line entry point:
+ * {@code Lox [--engine=ast|closures|flat|nodes|vm] [--parallel] [--cache[=dir]] [--profile] [--sample=file] [--sample-rate=n] [--serve[=port]] [script]}.
+ * Without a script the program is read from standard input. {@code --parallel} scans and
+ * parses the whole program on the fork/join pool instead of streaming it through the parser.
+ * {@code --cache} keeps the parsed program in an {@link AstCache}, in dir or the default
+ * directory, and runs it from there as long as the source does not change.
+ * The flat engine parses into a {@link FlatAst} and is not cached.
+ * {@code --profile} prints a per-function profile of the ast engine to standard error.
+ * {@code --sample=file} samples the Lox call stack of the ast engine
+ * {@code --sample-rate} times a second (1000 by default) and writes collapsed stacks to file.
+ * {@code --serve} runs scripts sent to port (7717 by default) on a {@link LoxServer}.
+ */
+public class Lox {
+    public static void main(String[] args) throws IOException {
+        String engine = "ast";
+        String path = null;
+        boolean parallel = false;
+        AstCache cache = null;
+        boolean profile = false;
+        String samples = null;
+        int sampleRate = 1000;
+        int serve = -1;
+        for (String arg : args) {
+            if (arg.equals("--parallel")) {
+                parallel = true;
+            } else if (arg.equals("--cache")) {
+                cache = new AstCache(AstCache.defaultDirectory());
+            } else if (arg.startsWith("--cache=")) {
+                cache = new AstCache(Path.of(arg.substring("--cache=".length())));
+            } else if (arg.equals("--profile")) {
+                profile = true;
+            } else if (arg.startsWith("--sample=")) {
+                samples = arg.substring("--sample=".length());
+            } else if (arg.startsWith("--sample-rate=")) {
+                sampleRate = Integer.parseInt(arg.substring("--sample-rate=".length()));
+            } else if (arg.equals("--serve")) {
+                serve = LoxServer.DEFAULT_PORT;
+            } else if (arg.startsWith("--serve=")) {
+                serve = Integer.parseInt(arg.substring("--serve=".length()));
+            } else if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else {
+                path = arg;
+            }
+        }
+
+        if (serve >= 0) {
+            try (LoxServer server = new LoxServer(serve)) {
+                server.warmUp(200);
+                System.err.println("Serving Lox on port " + server.port());
+                server.serve();
+            }
+            return;
+        }
+
+        if (engine.equals("flat")) {
+            try (Scanner scanner = scanner(path)) {
+                FlatAst ast = parallel ? FlatAst.parse(scanner.scanParallel()) : FlatAst.parse(scanner);
+                new FlatInterpreter().interpret(ast);
+            }
+            return;
+        }
+
+        List<Stmt> statements;
+        if (cache != null) {
+            statements = cache.parse(path == null ? System.in.readAllBytes() : Files.readAllBytes(Path.of(path)));
+        } else {
+            try (Scanner scanner = scanner(path)) {
+                statements = parallel
+                        ? ParallelParser.parse(scanner.scanParallel())
+                        : new Parser(scanner).parse();
+            }
+        }
+
+        switch (engine) {
+            case "ast":
+                SamplingProfiler sampler = samples != null ? new SamplingProfiler(sampleRate) : null;
+                Interpreter interpreter = new Interpreter(profile ? new Profiler() : null,
+                        sampler != null ? sampler.stack() : null);
+                if (sampler != null) sampler.start();
+                interpreter.interpret(statements);
+                if (sampler != null) {
+                    sampler.stop();
+                    try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(samples)))) {
+                        sampler.write(out);
+                    }
+                }
+                break;
+            case "closures":
+                new ClosureInterpreter().interpret(statements);
+                break;
+            case "nodes":
+                new NodeInterpreter().interpret(statements);
+                break;
+            case "vm":
+                new VM().interpret(statements);
+                break;
+            default:
+                System.err.println("Usage: Lox [--engine=ast|closures|flat|nodes|vm] [--parallel] [--cache[=dir]] [--profile] [--sample=file] [--sample-rate=n] [--serve[=port]] [script]");
+                System.exit(64);
+        }
+    }
+
+    private static Scanner scanner(String path) throws IOException {
+        return path == null
+                ? new Scanner(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : new Scanner(Path.of(path));
+    }
+}
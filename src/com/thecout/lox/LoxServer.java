@@ -0,0 +1,140 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.CompiledProgram;
+import com.thecout.lox.Traversal.InterpreterUtils.Budget;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs scripts for clients on the loopback interface, so many short scripts share one
+ * warmed-up JVM. A client sends a script and shuts down its side of the connection, the
+ * server runs it on the ast engine with fresh globals, streams everything it prints back
+ * and closes the connection. Scan and parse errors are sent instead of running the script,
+ * runtime errors as a message and the line, never as a Java stack trace. Every script runs
+ * within a {@link Budget}, ten seconds by default, so a script that never ends only costs
+ * its client, and scripts larger than {@link #MAX_SCRIPT_BYTES} are refused. Every client
+ * gets a virtual thread if the JVM has them and a pooled thread otherwise. From a shell:
+ * {@code nc -N localhost 7717 < script.lox}.
+ */
+public class LoxServer implements Closeable {
+    public static final int DEFAULT_PORT = 7717;
+    public static final int MAX_SCRIPT_BYTES = 1 << 20;
+
+    private static final String WARM_UP = """
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            fun count(n) { var i = 0; var sum = 0; while (i < n) { sum = sum + i; i = i + 1; } return sum; }
+            print fib(15) + count(1000);
+            """;
+
+    private final ServerSocket socket;
+    private final ExecutorService clients = newClientExecutor();
+    // shared by all scripts, every run starts its own count
+    private final Budget budget;
+
+    public LoxServer(int port) throws IOException {
+        this(port, new Budget().timeout(Duration.ofSeconds(10)));
+    }
+
+    public LoxServer(int port, Budget budget) throws IOException {
+        socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.budget = budget;
+    }
+
+    // one virtual thread per client on JVMs that have them, only looked up by name to still run on older ones
+    private static ExecutorService newClientExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    // runs a small program often enough for the JVM to compile the scanner, parser and interpreter
+    public void warmUp(int runs) {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        for (int i = 0; i < runs; i++) {
+            run(WARM_UP, discard, budget);
+        }
+    }
+
+    // accepts clients until the server is closed
+    public void serve() throws IOException {
+        while (true) {
+            Socket client;
+            try {
+                client = socket.accept();
+            } catch (SocketException e) {
+                if (socket.isClosed()) return;
+                throw e;
+            }
+            clients.execute(() -> handle(client));
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client) {
+            // one byte more than allowed tells a script that is too large from one that just fits
+            byte[] script = client.getInputStream().readNBytes(MAX_SCRIPT_BYTES + 1);
+            // flushed at every line, so the client sees the output while the script runs
+            PrintStream out = new PrintStream(new BufferedOutputStream(client.getOutputStream()), true,
+                    StandardCharsets.UTF_8);
+            if (script.length > MAX_SCRIPT_BYTES) {
+                out.println("Script is larger than " + MAX_SCRIPT_BYTES + " bytes.");
+            } else {
+                run(new String(script, StandardCharsets.UTF_8), out, budget);
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Lost client: " + e.getMessage());
+        }
+    }
+
+    static void run(String source, PrintStream out, Budget budget) {
+        List<String> scanErrors = new ArrayList<>();
+        List<String> parseErrors = new ArrayList<>();
+        List<Stmt> statements = new Parser(new Scanner(source, scanErrors), parseErrors).parse();
+        if (!scanErrors.isEmpty() || !parseErrors.isEmpty()) {
+            scanErrors.forEach(out::println);
+            parseErrors.forEach(out::print);
+            return;
+        }
+        try {
+            new CompiledProgram(statements).newSession(out, out, budget).run();
+        } catch (RuntimeError error) {
+            out.println(error.getMessage());
+            if (error.token() != null) out.println("[line " + error.token().line + "]");
+        } catch (StackOverflowError error) {
+            out.println("Stack overflow.");
+        } catch (RuntimeException error) {
+            out.println("Internal error.");
+            System.err.println("Script failed: " + error);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        clients.shutdown();
+    }
+}
@@ -0,0 +1,68 @@
+package com.thecout.lox;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes a UTF-8 file from read only memory mappings of at most {@link #REGION} bytes,
+ * so neither the bytes nor the characters of the whole file are ever on the heap.
+ */
+class MappedFileReader extends Reader {
+    private static final long REGION = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private MappedByteBuffer region;
+    private long regionStart;
+    private boolean done;
+
+    MappedFileReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+    }
+
+    private void map(long start) throws IOException {
+        regionStart = start;
+        region = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION, size - start));
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (done) return -1;
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off && len > 0) {
+            boolean last = regionStart + region.limit() == size;
+            CoderResult result = decoder.decode(region, out, last);
+            if (result.isError()) result.throwException();
+            if (result.isUnderflow()) {
+                if (last) {
+                    decoder.flush(out);
+                    done = true;
+                    break;
+                }
+                // a character cut by the region end stays unconsumed and starts the next region
+                map(regionStart + region.position());
+            }
+        }
+        int read = out.position() - off;
+        return done && read == 0 ? -1 : read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,90 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+
+/**
+ * {@code +}, which adds numbers and like the ast Interpreter fails on anything else. A new
+ * node starts out uninitialized and replaces itself on its first execution with the
+ * version for the operands it saw: {@link Doubles}, which stays on unboxed doubles, or
+ * {@link Generic}, which checks boxed values. A {@link Doubles} node that meets other
+ * operands later rewrites itself to the generic one for good.
+ */
+public abstract class AddNode extends BinaryNode {
+    AddNode(Token operator, ExprNode left, ExprNode right) {
+        super(operator, left, right);
+    }
+
+    static AddNode create(Token operator, ExprNode left, ExprNode right) {
+        return new Uninitialized(operator, left, right);
+    }
+
+    double add(Object a, Object b) {
+        return Operands.number(operator, a) + Operands.number(operator, b);
+    }
+
+    Generic generalize() {
+        return replace(new Generic(operator, left, right));
+    }
+
+    static final class Uninitialized extends AddNode {
+        Uninitialized(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            Object a = left.execute(frame);
+            Object b = right.execute(frame);
+            if (a instanceof Double && b instanceof Double) {
+                replace(new Doubles(operator, left, right));
+            } else {
+                generalize();
+            }
+            return add(a, b);
+        }
+    }
+
+    static final class Doubles extends AddNode {
+        Doubles(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return executeDouble(frame);
+        }
+
+        @Override
+        public double executeDouble(Environment frame) {
+            double a;
+            try {
+                a = left.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return generalize().add(e.result, right.execute(frame));
+            }
+            try {
+                return a + right.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return generalize().add(a, e.result);
+            }
+        }
+    }
+
+    static final class Generic extends AddNode {
+        Generic(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return executeDouble(frame);
+        }
+
+        @Override
+        public double executeDouble(Environment frame) {
+            return add(left.execute(frame), right.execute(frame));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+// -, * and /, which only take numbers and so run on unboxed doubles, other operands are
+// evaluated both and then checked like the ast Interpreter does
+abstract class ArithmeticNode extends BinaryNode {
+    ArithmeticNode(Token operator, ExprNode left, ExprNode right) {
+        super(operator, left, right);
+    }
+
+    abstract double apply(double a, double b);
+
+    double apply(Object a, Object b) {
+        return apply(Operands.number(operator, a), Operands.number(operator, b));
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        return executeDouble(frame);
+    }
+
+    @Override
+    public double executeDouble(Environment frame) {
+        double a;
+        try {
+            a = left.executeDouble(frame);
+        } catch (UnexpectedResultException e) {
+            return apply(e.result, right.execute(frame));
+        }
+        try {
+            return apply(a, right.executeDouble(frame));
+        } catch (UnexpectedResultException e) {
+            return apply(a, e.result);
+        }
+    }
+
+    static final class Subtract extends ArithmeticNode {
+        Subtract(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double a, double b) {
+            return a - b;
+        }
+    }
+
+    static final class Multiply extends ArithmeticNode {
+        Multiply(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double a, double b) {
+            return a * b;
+        }
+    }
+
+    static final class Divide extends ArithmeticNode {
+        Divide(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double apply(double a, double b) {
+            if (b == 0) throw new RuntimeError(operator, "Cannot divide by zero.");
+            return a / b;
+        }
+
+        // the divisor is checked before the dividend
+        @Override
+        double apply(Object a, Object b) {
+            double divisor = Operands.number(operator, b);
+            if (divisor == 0) throw new RuntimeError(operator, "Cannot divide by zero.");
+            return apply(Operands.number(operator, a), divisor);
+        }
+    }
+}
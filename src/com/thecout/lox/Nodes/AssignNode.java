@@ -0,0 +1,54 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// assigns a local by its slot or a global by its name
+abstract class AssignNode extends ExprNode {
+    protected ExprNode value;
+
+    AssignNode(ExprNode value) {
+        this.value = adopt(value);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (value == child) value = (ExprNode) replacement;
+    }
+
+    static final class Local extends AssignNode {
+        private final int depth;
+        private final int slot;
+
+        Local(int depth, int slot, ExprNode value) {
+            super(value);
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            Object result = value.execute(frame);
+            frame.assignAt(depth, slot, result);
+            return result;
+        }
+    }
+
+    static final class Global extends AssignNode {
+        private final Environment globals;
+        private final Token name;
+
+        Global(Environment globals, Token name, ExprNode value) {
+            super(value);
+            this.globals = globals;
+            this.name = name;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            Object result = value.execute(frame);
+            globals.assign(name, result);
+            return result;
+        }
+    }
+}
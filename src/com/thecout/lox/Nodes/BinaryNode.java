@@ -0,0 +1,22 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+
+// an expression with two operands, the operator token is kept for error messages
+abstract class BinaryNode extends ExprNode {
+    protected final Token operator;
+    protected ExprNode left;
+    protected ExprNode right;
+
+    BinaryNode(Token operator, ExprNode left, ExprNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (left == child) left = (ExprNode) replacement;
+        if (right == child) right = (ExprNode) replacement;
+    }
+}
@@ -0,0 +1,27 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// a list of statements, in a frame of its own when the block declares locals
+final class BlockNode extends StmtNode {
+    private final StmtNode[] statements;
+    private final int slots;
+
+    BlockNode(StmtNode[] statements, int slots) {
+        this.statements = statements;
+        this.slots = slots;
+        for (StmtNode statement : statements) {
+            adopt(statement);
+        }
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        if (slots > 0) frame = new Environment(frame, slots);
+        for (StmtNode statement : statements) {
+            Object completion = statement.execute(frame);
+            if (completion != null) return completion;
+        }
+        return null;
+    }
+}
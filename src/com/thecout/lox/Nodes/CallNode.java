@@ -0,0 +1,80 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+// calls through the LoxCallable entry point for the number of arguments
+final class CallNode extends ExprNode {
+    private final Token paren;
+    private ExprNode callee;
+    private final ExprNode[] arguments;
+
+    CallNode(Token paren, ExprNode callee, ExprNode[] arguments) {
+        this.paren = paren;
+        this.callee = adopt(callee);
+        this.arguments = arguments;
+        for (ExprNode argument : arguments) {
+            adopt(argument);
+        }
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (callee == child) callee = (ExprNode) replacement;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == child) arguments[i] = (ExprNode) replacement;
+        }
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        Object callee = this.callee.execute(frame);
+        ExprNode[] arguments = this.arguments;
+        switch (arguments.length) {
+            case 0:
+                return function(paren, callee, 0).call0(null);
+            case 1: {
+                Object a = arguments[0].execute(frame);
+                return function(paren, callee, 1).call1(null, a);
+            }
+            case 2: {
+                Object a = arguments[0].execute(frame);
+                Object b = arguments[1].execute(frame);
+                return function(paren, callee, 2).call2(null, a, b);
+            }
+            case 3: {
+                Object a = arguments[0].execute(frame);
+                Object b = arguments[1].execute(frame);
+                Object c = arguments[2].execute(frame);
+                return function(paren, callee, 3).call3(null, a, b, c);
+            }
+            case 4: {
+                Object a = arguments[0].execute(frame);
+                Object b = arguments[1].execute(frame);
+                Object c = arguments[2].execute(frame);
+                Object d = arguments[3].execute(frame);
+                return function(paren, callee, 4).call4(null, a, b, c, d);
+            }
+            default: {
+                Object[] values = new Object[arguments.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = arguments[i].execute(frame);
+                }
+                return function(paren, callee, values.length).call(null, values);
+            }
+        }
+    }
+
+    static LoxCallable function(Token paren, Object callee, int count) {
+        if (!(callee instanceof LoxCallable)) {
+            throw new RuntimeError(paren, "Can only call functions.");
+        }
+        LoxCallable function = (LoxCallable) callee;
+        if (count != function.arity()) {
+            throw new RuntimeError(paren, "Expected " + function.arity() + " arguments but got " + count + ".");
+        }
+        return function;
+    }
+}
@@ -0,0 +1,84 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+
+// <, <=, > and >= on unboxed doubles, a condition gets the result without a Boolean
+abstract class CompareNode extends BinaryNode {
+    CompareNode(Token operator, ExprNode left, ExprNode right) {
+        super(operator, left, right);
+    }
+
+    abstract boolean apply(double a, double b);
+
+    @Override
+    public Object execute(Environment frame) {
+        return executeBoolean(frame);
+    }
+
+    @Override
+    public boolean executeBoolean(Environment frame) {
+        double a;
+        try {
+            a = left.executeDouble(frame);
+        } catch (UnexpectedResultException e) {
+            Object b = right.execute(frame);
+            return apply(Operands.number(operator, e.result), Operands.number(operator, b));
+        }
+        try {
+            return apply(a, right.executeDouble(frame));
+        } catch (UnexpectedResultException e) {
+            return apply(a, Operands.number(operator, e.result));
+        }
+    }
+
+    @Override
+    public boolean executeCondition(Environment frame) {
+        return executeBoolean(frame);
+    }
+
+    static final class Less extends CompareNode {
+        Less(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean apply(double a, double b) {
+            return a < b;
+        }
+    }
+
+    static final class LessEqual extends CompareNode {
+        LessEqual(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean apply(double a, double b) {
+            return a <= b;
+        }
+    }
+
+    static final class Greater extends CompareNode {
+        Greater(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean apply(double a, double b) {
+            return a > b;
+        }
+    }
+
+    static final class GreaterEqual extends CompareNode {
+        GreaterEqual(Token operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean apply(double a, double b) {
+            return a >= b;
+        }
+    }
+}
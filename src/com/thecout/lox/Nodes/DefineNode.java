@@ -0,0 +1,54 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// a var declaration, the initializer is null for nil
+abstract class DefineNode extends StmtNode {
+    protected ExprNode initializer;
+
+    DefineNode(ExprNode initializer) {
+        this.initializer = adopt(initializer);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (initializer == child) initializer = (ExprNode) replacement;
+    }
+
+    protected Object value(Environment frame) {
+        return initializer != null ? initializer.execute(frame) : null;
+    }
+
+    static final class Local extends DefineNode {
+        private final int slot;
+
+        Local(int slot, ExprNode initializer) {
+            super(initializer);
+            this.slot = slot;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            frame.define(slot, value(frame));
+            return null;
+        }
+    }
+
+    static final class Global extends DefineNode {
+        private final Environment globals;
+        private final Token name;
+
+        Global(Environment globals, Token name, ExprNode initializer) {
+            super(initializer);
+            this.globals = globals;
+            this.name = name;
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            globals.define(name, value(frame));
+            return null;
+        }
+    }
+}
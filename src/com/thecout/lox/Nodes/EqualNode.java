@@ -0,0 +1,31 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+import java.util.Objects;
+
+// == and !=, which compare any two values
+final class EqualNode extends BinaryNode {
+    private final boolean negated;
+
+    EqualNode(Token operator, ExprNode left, ExprNode right, boolean negated) {
+        super(operator, left, right);
+        this.negated = negated;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        return executeBoolean(frame);
+    }
+
+    @Override
+    public boolean executeBoolean(Environment frame) {
+        return Objects.equals(left.execute(frame), right.execute(frame)) != negated;
+    }
+
+    @Override
+    public boolean executeCondition(Environment frame) {
+        return executeBoolean(frame);
+    }
+}
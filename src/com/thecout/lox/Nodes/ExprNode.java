@@ -0,0 +1,36 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+
+/**
+ * An expression of the node tree. {@link #executeDouble} and {@link #executeBoolean}
+ * hand out primitive values without boxing them. Nodes that know their result type
+ * override them, everybody else falls back to {@link #execute} and a type check.
+ * Operands of the wrong type fail the way they do in the ast Interpreter, through the
+ * checks of {@link Operands}.
+ */
+public abstract class ExprNode extends Node {
+    public abstract Object execute(Environment frame);
+
+    public double executeDouble(Environment frame) throws UnexpectedResultException {
+        Object value = execute(frame);
+        if (value instanceof Double) return (Double) value;
+        throw new UnexpectedResultException(value);
+    }
+
+    public boolean executeBoolean(Environment frame) throws UnexpectedResultException {
+        Object value = execute(frame);
+        if (value instanceof Boolean) return (Boolean) value;
+        throw new UnexpectedResultException(value);
+    }
+
+    // the condition of an if or a while, which has to be a boolean
+    public boolean executeCondition(Environment frame) {
+        try {
+            return executeBoolean(frame);
+        } catch (UnexpectedResultException e) {
+            return Operands.condition(e.result);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// an expression statement, or print when it prints the value
+final class ExpressionNode extends StmtNode {
+    private ExprNode expression;
+    private final boolean print;
+
+    ExpressionNode(ExprNode expression, boolean print) {
+        this.expression = adopt(expression);
+        this.print = print;
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (expression == child) expression = (ExprNode) replacement;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        Object value = expression.execute(frame);
+        if (print) System.out.println(value);
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// a function declaration, which closes over the frame it is executed in
+final class FunctionNode extends StmtNode {
+    private final Environment globals;
+    private final Token name;
+    private final int slot;
+    private final int arity;
+    private final int slots;
+    private final BlockNode body;
+
+    FunctionNode(Environment globals, Token name, int slot, int arity, int slots, BlockNode body) {
+        this.globals = globals;
+        this.name = name;
+        this.slot = slot;
+        this.arity = arity;
+        this.slots = slots;
+        this.body = adopt(body);
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        NodeFunction function = new NodeFunction(name.lexeme, arity, slots, body, frame);
+        if (slot < 0) {
+            globals.define(name, function);
+        } else {
+            frame.define(slot, function);
+        }
+        return null;
+    }
+}
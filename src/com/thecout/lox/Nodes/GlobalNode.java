@@ -0,0 +1,24 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Binding;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// reads a global, the cell is looked up once it exists and kept, globals are never removed
+final class GlobalNode extends ExprNode {
+    private final Environment globals;
+    private final Token name;
+    private Binding binding;
+
+    GlobalNode(Environment globals, Token name) {
+        this.globals = globals;
+        this.name = name;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        Binding binding = this.binding;
+        if (binding == null) binding = this.binding = globals.binding(name);
+        return binding.value();
+    }
+}
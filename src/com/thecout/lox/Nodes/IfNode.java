@@ -0,0 +1,26 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+final class IfNode extends StmtNode {
+    private ExprNode condition;
+    private final StmtNode thenBranch;
+    private final StmtNode elseBranch;
+
+    IfNode(ExprNode condition, StmtNode thenBranch, StmtNode elseBranch) {
+        this.condition = adopt(condition);
+        this.thenBranch = adopt(thenBranch);
+        this.elseBranch = adopt(elseBranch);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (condition == child) condition = (ExprNode) replacement;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        if (condition.executeCondition(frame)) return thenBranch.execute(frame);
+        return elseBranch != null ? elseBranch.execute(frame) : null;
+    }
+}
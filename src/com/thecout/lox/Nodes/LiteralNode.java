@@ -0,0 +1,16 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+final class LiteralNode extends ExprNode {
+    private final Object value;
+
+    LiteralNode(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+// reads a local from the slot the Resolver gave it
+final class LocalNode extends ExprNode {
+    private final int depth;
+    private final int slot;
+
+    LocalNode(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        return frame.getAt(depth, slot);
+    }
+}
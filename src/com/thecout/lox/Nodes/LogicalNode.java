@@ -0,0 +1,39 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+
+// and and or on booleans, the right operand is only evaluated when it decides the result
+final class LogicalNode extends BinaryNode {
+    private final boolean and;
+
+    LogicalNode(Token operator, ExprNode left, ExprNode right, boolean and) {
+        super(operator, left, right);
+        this.and = and;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        return executeBoolean(frame);
+    }
+
+    @Override
+    public boolean executeBoolean(Environment frame) {
+        if (operand(left, frame) != and) return !and;
+        return operand(right, frame);
+    }
+
+    private boolean operand(ExprNode operand, Environment frame) {
+        try {
+            return operand.executeBoolean(frame);
+        } catch (UnexpectedResultException e) {
+            return Operands.bool(operator, e.result);
+        }
+    }
+
+    @Override
+    public boolean executeCondition(Environment frame) {
+        return executeBoolean(frame);
+    }
+}
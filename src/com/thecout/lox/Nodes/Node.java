@@ -0,0 +1,26 @@
+package com.thecout.lox.Nodes;
+
+/**
+ * A node of the executable tree the {@link NodeBuilder} makes from the parser AST. Nodes
+ * can replace themselves in their parent with a version specialized to the values they
+ * have seen, see {@link AddNode}.
+ */
+public abstract class Node {
+    Node parent;
+
+    protected <T extends Node> T adopt(T child) {
+        if (child != null) child.parent = this;
+        return child;
+    }
+
+    protected <T extends Node> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        replacement.parent = parent;
+        return replacement;
+    }
+
+    // nodes with children that can be replaced swap the old child for the new one
+    protected void replaceChild(Node child, Node replacement) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no replaceable children.");
+    }
+}
@@ -0,0 +1,163 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+import java.util.List;
+
+/**
+ * Turns a resolved AST into the node tree. Operators become their own node classes here,
+ * so executing the tree never switches on a token type again.
+ */
+public class NodeBuilder implements ExprVisitor<ExprNode>, StmtVisitor<StmtNode> {
+    private final Environment globals;
+
+    public NodeBuilder(Environment globals) {
+        this.globals = globals;
+    }
+
+    public StmtNode build(List<Stmt> statements) {
+        return block(statements, 0);
+    }
+
+    private BlockNode block(List<Stmt> statements, int slots) {
+        StmtNode[] nodes = new StmtNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = build(statements.get(i));
+        }
+        return new BlockNode(nodes, slots);
+    }
+
+    private StmtNode build(Stmt stmt) {
+        return stmt != null ? stmt.accept(this) : null;
+    }
+
+    private ExprNode build(Expr expr) {
+        return expr != null ? expr.accept(this) : null;
+    }
+
+    @Override
+    public ExprNode visitAssignExpr(Assign expr) {
+        ExprNode value = build(expr.value);
+        if (expr.depth < 0) return new AssignNode.Global(globals, expr.name, value);
+        return new AssignNode.Local(expr.depth, expr.slot, value);
+    }
+
+    @Override
+    public ExprNode visitBinaryExpr(Binary expr) {
+        ExprNode left = build(expr.left);
+        ExprNode right = build(expr.right);
+        switch (expr.operator.type) {
+            case PLUS: return AddNode.create(expr.operator, left, right);
+            case MINUS: return new ArithmeticNode.Subtract(expr.operator, left, right);
+            case STAR: return new ArithmeticNode.Multiply(expr.operator, left, right);
+            case SLASH: return new ArithmeticNode.Divide(expr.operator, left, right);
+            case LESS: return new CompareNode.Less(expr.operator, left, right);
+            case LESS_EQUAL: return new CompareNode.LessEqual(expr.operator, left, right);
+            case GREATER: return new CompareNode.Greater(expr.operator, left, right);
+            case GREATER_EQUAL: return new CompareNode.GreaterEqual(expr.operator, left, right);
+            default: throw new IllegalArgumentException("Unknown operator '" + expr.operator.lexeme + "'.");
+        }
+    }
+
+    @Override
+    public ExprNode visitCallExpr(Call expr) {
+        ExprNode[] arguments = new ExprNode[expr.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = build(expr.arguments.get(i));
+        }
+        return new CallNode(expr.paren, build(expr.callee), arguments);
+    }
+
+    @Override
+    public ExprNode visitGroupingExpr(Grouping expr) {
+        return build(expr.expression);
+    }
+
+    @Override
+    public ExprNode visitLiteralExpr(Literal expr) {
+        return new LiteralNode(expr.value);
+    }
+
+    @Override
+    public ExprNode visitLogicalExpr(Logical expr) {
+        ExprNode left = build(expr.left);
+        ExprNode right = build(expr.right);
+        switch (expr.operator.type) {
+            case AND: return new LogicalNode(expr.operator, left, right, true);
+            case OR: return new LogicalNode(expr.operator, left, right, false);
+            case EQUAL_EQUAL: return new EqualNode(expr.operator, left, right, false);
+            case BANG_EQUAL: return new EqualNode(expr.operator, left, right, true);
+            default: throw new IllegalArgumentException("Unknown operator '" + expr.operator.lexeme + "'.");
+        }
+    }
+
+    @Override
+    public ExprNode visitUnaryExpr(Unary expr) {
+        ExprNode right = build(expr.right);
+        switch (expr.operator.type) {
+            case MINUS: return new UnaryNode.Negate(expr.operator, right);
+            case BANG: return new UnaryNode.Not(expr.operator, right);
+            default: throw new IllegalArgumentException("Unknown operator '" + expr.operator.lexeme + "'.");
+        }
+    }
+
+    @Override
+    public ExprNode visitVariableExpr(Variable expr) {
+        if (expr.depth < 0) return new GlobalNode(globals, expr.name);
+        return new LocalNode(expr.depth, expr.slot);
+    }
+
+    @Override
+    public StmtNode visitBlockStmt(Block stmt) {
+        return block(stmt.statements, stmt.slots);
+    }
+
+    @Override
+    public StmtNode visitExpressionStmt(Expression stmt) {
+        return new ExpressionNode(build(stmt.expression), false);
+    }
+
+    @Override
+    public StmtNode visitFunctionStmt(Function stmt) {
+        // the body runs in the frame of the call, which already has the slots of the body
+        return new FunctionNode(globals, stmt.name, stmt.slot, stmt.parameters.size(), stmt.slots,
+                block(stmt.body, 0));
+    }
+
+    @Override
+    public StmtNode visitIfStmt(If stmt) {
+        return new IfNode(build(stmt.condition), build(stmt.thenBranch), build(stmt.elseBranch));
+    }
+
+    @Override
+    public StmtNode visitPrintStmt(Print stmt) {
+        return new ExpressionNode(build(stmt.expression), true);
+    }
+
+    @Override
+    public StmtNode visitReturnStmt(Return stmt) {
+        if (stmt.tailCall) {
+            Call call = (Call) stmt.value;
+            ExprNode[] arguments = new ExprNode[call.arguments.size()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = build(call.arguments.get(i));
+            }
+            return new TailCallNode(call.paren, build(call.callee), arguments);
+        }
+        return new ReturnNode(build(stmt.value));
+    }
+
+    @Override
+    public StmtNode visitVarStmt(Var stmt) {
+        ExprNode initializer = build(stmt.initializer);
+        if (stmt.slot < 0) return new DefineNode.Global(globals, stmt.name, initializer);
+        return new DefineNode.Local(stmt.slot, initializer);
+    }
+
+    @Override
+    public StmtNode visitWhileStmt(While stmt) {
+        return new WhileNode(build(stmt.condition), build(stmt.body));
+    }
+}
@@ -0,0 +1,114 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+
+import java.util.List;
+
+// a function of the node engine, the body runs directly in the frame that holds the parameters
+final class NodeFunction implements LoxCallable {
+    // completion of a body that ended in a tail call, see TailCallNode
+    static final class TailCall {
+        final NodeFunction function;
+        final Environment frame;
+
+        TailCall(NodeFunction function, Environment frame) {
+            this.function = function;
+            this.frame = frame;
+        }
+    }
+
+    private final String name;
+    private final int arity;
+    private final int slots;
+    private final BlockNode body;
+    private final Environment closure;
+
+    NodeFunction(String name, int arity, int slots, BlockNode body, Environment closure) {
+        this.name = name;
+        this.arity = arity;
+        this.slots = slots;
+        this.body = body;
+        this.closure = closure;
+    }
+
+    @Override
+    public int arity() {
+        return arity;
+    }
+
+    Environment frame(Object[] arguments) {
+        Environment frame = new Environment(closure, slots);
+        for (int i = 0; i < arguments.length; i++) {
+            frame.define(i, arguments[i]);
+        }
+        return frame;
+    }
+
+    // tail calls run in this loop, so a chain of them needs no more Java stack than the first call
+    private Object run(Environment frame) {
+        NodeFunction function = this;
+        while (true) {
+            Object result = function.body.execute(frame);
+            if (!(result instanceof TailCall)) return result == StmtNode.NIL ? null : result;
+            TailCall call = (TailCall) result;
+            function = call.function;
+            frame = call.frame;
+        }
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call(interpreter, arguments.toArray());
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return run(frame(arguments));
+    }
+
+    @Override
+    public Object call0(Interpreter interpreter) {
+        return run(new Environment(closure, slots));
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        Environment frame = new Environment(closure, slots);
+        frame.define(0, a);
+        return run(frame);
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        Environment frame = new Environment(closure, slots);
+        frame.define(0, a);
+        frame.define(1, b);
+        return run(frame);
+    }
+
+    @Override
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        Environment frame = new Environment(closure, slots);
+        frame.define(0, a);
+        frame.define(1, b);
+        frame.define(2, c);
+        return run(frame);
+    }
+
+    @Override
+    public Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        Environment frame = new Environment(closure, slots);
+        frame.define(0, a);
+        frame.define(1, b);
+        frame.define(2, c);
+        frame.define(3, d);
+        return run(frame);
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + name + ">";
+    }
+}
@@ -0,0 +1,39 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.InterpreterUtils.Clock;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+import com.thecout.lox.Traversal.Optimizer;
+import com.thecout.lox.Traversal.Resolver;
+
+import java.util.List;
+
+/**
+ * Runs a program on the node tree instead of visiting the AST. Arithmetic on numbers
+ * stays on unboxed doubles between nodes, {@code +} specializes itself to the operands
+ * it sees, and conditions are evaluated without creating Booleans. Values behave as in
+ * the ast Interpreter: operators and conditions check their operands, so a value of the
+ * wrong type is the same runtime error, and tail calls do not grow the Java stack.
+ * Runtime errors are reported instead of thrown.
+ */
+public class NodeInterpreter {
+    public final Environment globals = new Environment();
+
+    public NodeInterpreter() {
+        globals.define("clock", new Clock());
+    }
+
+    public void interpret(List<Stmt> statements) {
+        new Optimizer().optimize(statements);
+        new Resolver().resolve(statements);
+        StmtNode program = new NodeBuilder(globals).build(statements);
+        try {
+            program.execute(globals);
+        } catch (RuntimeError error) {
+            System.err.println(error.getMessage());
+            // the type error of a condition has no token
+            if (error.token() != null) System.err.printf("[line %d]\n", error.token().line);
+        }
+    }
+}
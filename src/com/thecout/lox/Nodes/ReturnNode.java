@@ -0,0 +1,22 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+final class ReturnNode extends StmtNode {
+    private ExprNode value;
+
+    ReturnNode(ExprNode value) {
+        this.value = adopt(value);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (value == child) value = (ExprNode) replacement;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        Object result = value != null ? value.execute(frame) : null;
+        return result != null ? result : NIL;
+    }
+}
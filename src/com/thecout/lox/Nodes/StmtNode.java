@@ -0,0 +1,14 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+/**
+ * A statement of the node tree. {@link #execute} gives null when the statement completes
+ * normally and the returned value when it executed a return, {@link #NIL} for nil, or a
+ * {@link NodeFunction.TailCall} when it returned a call the function's caller still has to make.
+ */
+public abstract class StmtNode extends Node {
+    public static final Object NIL = new Object();
+
+    public abstract Object execute(Environment frame);
+}
@@ -0,0 +1,45 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+
+// return f(...) in a function, a call of a node function is left to the returning function's caller
+final class TailCallNode extends StmtNode {
+    private final Token paren;
+    private ExprNode callee;
+    private final ExprNode[] arguments;
+
+    TailCallNode(Token paren, ExprNode callee, ExprNode[] arguments) {
+        this.paren = paren;
+        this.callee = adopt(callee);
+        this.arguments = arguments;
+        for (ExprNode argument : arguments) {
+            adopt(argument);
+        }
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (callee == child) callee = (ExprNode) replacement;
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i] == child) arguments[i] = (ExprNode) replacement;
+        }
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        Object callee = this.callee.execute(frame);
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = arguments[i].execute(frame);
+        }
+        LoxCallable function = CallNode.function(paren, callee, values.length);
+        if (function instanceof NodeFunction) {
+            NodeFunction next = (NodeFunction) function;
+            return new NodeFunction.TailCall(next, next.frame(values));
+        }
+        Object result = function.call(null, values);
+        return result != null ? result : NIL;
+    }
+}
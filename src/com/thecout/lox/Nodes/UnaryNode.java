@@ -0,0 +1,66 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+
+// - and ! on one operand
+abstract class UnaryNode extends ExprNode {
+    protected final Token operator;
+    protected ExprNode right;
+
+    UnaryNode(Token operator, ExprNode right) {
+        this.operator = operator;
+        this.right = adopt(right);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (right == child) right = (ExprNode) replacement;
+    }
+
+    static final class Negate extends UnaryNode {
+        Negate(Token operator, ExprNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return executeDouble(frame);
+        }
+
+        @Override
+        public double executeDouble(Environment frame) {
+            try {
+                return -right.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return -Operands.number(operator, e.result);
+            }
+        }
+    }
+
+    static final class Not extends UnaryNode {
+        Not(Token operator, ExprNode right) {
+            super(operator, right);
+        }
+
+        @Override
+        public Object execute(Environment frame) {
+            return executeBoolean(frame);
+        }
+
+        @Override
+        public boolean executeBoolean(Environment frame) {
+            try {
+                return !right.executeBoolean(frame);
+            } catch (UnexpectedResultException e) {
+                return !Operands.bool(operator, e.result);
+            }
+        }
+
+        @Override
+        public boolean executeCondition(Environment frame) {
+            return executeBoolean(frame);
+        }
+    }
+}
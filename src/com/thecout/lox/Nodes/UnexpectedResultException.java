@@ -0,0 +1,17 @@
+package com.thecout.lox.Nodes;
+
+/**
+ * Thrown by the typed execute methods of an {@link ExprNode} when the value it produced
+ * does not have the expected type. The value itself is carried along so the caller can
+ * continue with it instead of evaluating the node again.
+ */
+public class UnexpectedResultException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public final Object result;
+
+    public UnexpectedResultException(Object result) {
+        super(null, null, false, false);
+        this.result = result;
+    }
+}
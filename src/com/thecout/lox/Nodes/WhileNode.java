@@ -0,0 +1,27 @@
+package com.thecout.lox.Nodes;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+
+final class WhileNode extends StmtNode {
+    private ExprNode condition;
+    private final StmtNode body;
+
+    WhileNode(ExprNode condition, StmtNode body) {
+        this.condition = adopt(condition);
+        this.body = adopt(body);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (condition == child) condition = (ExprNode) replacement;
+    }
+
+    @Override
+    public Object execute(Environment frame) {
+        while (condition.executeCondition(frame)) {
+            Object completion = body.execute(frame);
+            if (completion != null) return completion;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+package com.thecout.lox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scans a source that is completely in memory in chunks cut at line starts. Newlines are
+ * counted per chunk first, so every chunk knows its first line and lexes with the real
+ * line numbers. Chunks are lexed speculatively from the start state, which is only wrong
+ * when a string runs over the end of the previous chunk. Stitching the chunks in order
+ * catches exactly that case and lexes the chunk again from the end of the string. The
+ * errors of the chunks that are kept are collected in source order.
+ */
+class ParallelScanner {
+    private static final int MIN_CHUNK = 1 << 16;
+
+    private static class Chunk {
+        final int start;
+        final int stop;
+        int line;
+        final List<String> errors = new ArrayList<>();
+        TokenBuffer tokens;
+        // where scanning ended, past stop if the last token runs into the next chunk
+        int reach;
+        int endLine;
+
+        Chunk(int start, int stop) {
+            this.start = start;
+            this.stop = stop;
+        }
+
+        void scan(char[] source, int from, int to, int line) {
+            Scanner scanner = new Scanner(source, from, stop, to, line, errors);
+            tokens = new TokenBuffer((stop - from) / 3 + 16);
+            scanner.scanInto(tokens);
+            reach = scanner.position();
+            endLine = scanner.line();
+        }
+    }
+
+    static TokenBuffer scan(char[] source, int from, int to, int line, List<String> errors) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<Chunk> chunks = split(source, from, to, pool.getParallelism() * 4);
+
+        List<ForkJoinTask<?>> counts = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            counts.add(pool.submit(() -> chunk.line = newlines(source, chunk.start, chunk.stop)));
+        }
+        for (int i = 0; i < chunks.size(); i++) {
+            counts.get(i).join();
+            Chunk chunk = chunks.get(i);
+            int newlines = chunk.line;
+            chunk.line = line;
+            line += newlines;
+        }
+
+        List<ForkJoinTask<?>> scans = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            scans.add(pool.submit(() -> chunk.scan(source, chunk.start, to, chunk.line)));
+        }
+
+        TokenBuffer tokens = new TokenBuffer((to - from) / 3 + 16);
+        int position = from;
+        line = chunks.isEmpty() ? line : chunks.get(0).line;
+        for (int i = 0; i < chunks.size(); i++) {
+            scans.get(i).join();
+            Chunk chunk = chunks.get(i);
+            if (position >= chunk.stop) continue;
+            if (position != chunk.start) {
+                // a string of the previous chunk ended inside this one
+                chunk.errors.clear();
+                chunk.scan(source, position, to, line);
+            }
+            tokens.append(chunk.tokens);
+            errors.addAll(chunk.errors);
+            position = chunk.reach;
+            line = chunk.endLine;
+        }
+        tokens.add(TokenType.EOF, to, 0, line);
+        tokens.source = source;
+        return tokens;
+    }
+
+    private static List<Chunk> split(char[] source, int from, int to, int count) {
+        int size = Math.max(MIN_CHUNK, (to - from) / count);
+        List<Chunk> chunks = new ArrayList<>();
+        int start = from;
+        while (start < to) {
+            int stop = Math.min(to, start + size);
+            while (stop < to && source[stop - 1] != '\n') stop++;
+            chunks.add(new Chunk(start, stop));
+            start = stop;
+        }
+        return chunks;
+    }
+
+    private static int newlines(char[] source, int start, int stop) {
+        int count = 0;
+        for (int i = start; i < stop; i++) {
+            if (source[i] == '\n') count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,45 @@
+package com.thecout.lox.Parser;
+
+import com.thecout.lox.Token;
+
+import java.util.List;
+
+/**
+ * The back end of a {@link DescentParser}: creates the statements (S) and expressions (E)
+ * the grammar recognized, so the same parser can build the object tree or another
+ * representation directly. Optional parts are passed as null.
+ */
+public interface AstFactory<S, E> {
+    S block(List<S> statements);
+
+    S expression(E expression);
+
+    S function(Token name, List<Token> parameters, List<S> body);
+
+    S ifStmt(E condition, S thenBranch, S elseBranch);
+
+    S print(E expression);
+
+    S returnStmt(E value);
+
+    S var(Token name, E initializer);
+
+    S whileStmt(E condition, S body);
+
+    E assign(Token name, E value);
+
+    E binary(E left, Token operator, E right);
+
+    E call(E callee, Token paren, List<E> arguments);
+
+    E literal(Object value);
+
+    E logical(E left, Token operator, E right);
+
+    E unary(Token operator, E right);
+
+    E variable(Token name);
+
+    // the name if the expression is a variable, the only thing that can be assigned to
+    Token assignable(E expression);
+}
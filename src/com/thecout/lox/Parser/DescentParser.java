@@ -0,0 +1,418 @@
+package com.thecout.lox.Parser;
+
+
+import static com.thecout.lox.TokenType.AND;
+import static com.thecout.lox.TokenType.BANG;
+import static com.thecout.lox.TokenType.BANG_EQUAL;
+import static com.thecout.lox.TokenType.COMMA;
+import static com.thecout.lox.TokenType.ELSE;
+import static com.thecout.lox.TokenType.EOF;
+import static com.thecout.lox.TokenType.EQUAL;
+import static com.thecout.lox.TokenType.EQUAL_EQUAL;
+import static com.thecout.lox.TokenType.FALSE;
+import static com.thecout.lox.TokenType.FOR;
+import static com.thecout.lox.TokenType.FUN;
+import static com.thecout.lox.TokenType.GREATER;
+import static com.thecout.lox.TokenType.GREATER_EQUAL;
+import static com.thecout.lox.TokenType.IDENTIFIER;
+import static com.thecout.lox.TokenType.IF;
+import static com.thecout.lox.TokenType.LEFT_BRACE;
+import static com.thecout.lox.TokenType.LEFT_PAREN;
+import static com.thecout.lox.TokenType.LESS;
+import static com.thecout.lox.TokenType.LESS_EQUAL;
+import static com.thecout.lox.TokenType.MINUS;
+import static com.thecout.lox.TokenType.NIL;
+import static com.thecout.lox.TokenType.OR;
+import static com.thecout.lox.TokenType.PLUS;
+import static com.thecout.lox.TokenType.PRINT;
+import static com.thecout.lox.TokenType.RETURN;
+import static com.thecout.lox.TokenType.RIGHT_BRACE;
+import static com.thecout.lox.TokenType.RIGHT_PAREN;
+import static com.thecout.lox.TokenType.SEMICOLON;
+import static com.thecout.lox.TokenType.SLASH;
+import static com.thecout.lox.TokenType.STAR;
+import static com.thecout.lox.TokenType.TRUE;
+import static com.thecout.lox.TokenType.VAR;
+import static com.thecout.lox.TokenType.WHILE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenBuffer;
+import com.thecout.lox.TokenSource;
+import com.thecout.lox.TokenType;
+
+/**
+ * The recursive descent parser of Lox, independent of what it builds: every node is made
+ * by the {@link AstFactory}. {@link Parser} is the one that builds the object tree.
+ */
+public class DescentParser<S, E> {
+    private static class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    // tokens are either pulled one at a time from a source, keeping only the current and
+    // the previous one, or read by index from a buffer, materializing only those the AST keeps
+    private final TokenSource tokens;
+    private final TokenBuffer buffer;
+    private Token current;
+    private Token previous;
+    private int index;
+    // the buffer parser treats this index as EOF
+    private int end;
+    // errors are collected here instead of printed when set
+    private List<String> errors;
+    private final AstFactory<S, E> factory;
+
+    public DescentParser(TokenSource tokens, AstFactory<S, E> factory) {
+        this(tokens, null, factory);
+    }
+
+    // a parser that collects its errors in errors instead of printing them
+    public DescentParser(TokenSource tokens, List<String> errors, AstFactory<S, E> factory) {
+        this.factory = factory;
+        this.errors = errors;
+        this.tokens = tokens;
+        this.buffer = null;
+        this.current = tokens.next();
+    }
+
+    public DescentParser(TokenBuffer buffer, AstFactory<S, E> factory) {
+        this(buffer, 0, buffer.size() - 1, null, factory);
+    }
+
+    // parses the declarations in [from, to) of the buffer
+    DescentParser(TokenBuffer buffer, int from, int to, List<String> errors, AstFactory<S, E> factory) {
+        this.factory = factory;
+        this.tokens = null;
+        this.buffer = buffer;
+        this.index = from;
+        this.end = to;
+        this.errors = errors;
+    }
+
+    public List<S> parse() {
+        List<S> statements = new ArrayList<>();
+        while (!isAtEnd()) {
+            statements.add(declaration());
+        }
+
+        return statements;
+    }
+
+    private E expression() {
+        return assignment();
+    }
+
+    private S declaration() {
+        try {
+            if (match(FUN)) return function();
+            if (match(VAR)) return varDeclaration();
+
+            return statement();
+        } catch (ParseError error) {
+            return null;
+        }
+    }
+
+    private S statement() {
+        if (match(FOR)) return forStatement();
+        if (match(IF)) return ifStatement();
+        if (match(PRINT)) return printStatement();
+        if (match(RETURN)) return returnStatement();
+        if (match(WHILE)) return whileStatement();
+        if (match(LEFT_BRACE)) return factory.block(block());
+
+        return expressionStatement();
+    }
+
+    private S forStatement() {
+    	consume(LEFT_PAREN, "Expect '(' after 'for'.");
+    	S initializer = null;
+    	E increment = null;
+    	E condition = null;
+    	if (match(VAR)) {
+    		initializer = varDeclaration();
+    	} else if (!match(SEMICOLON)) {
+    		initializer = expressionStatement();
+    	}
+    	
+    	if (!match(SEMICOLON)) {
+    		condition = expression();
+    		consume(SEMICOLON, "Expected ';'.");
+    	}
+    	increment = expression();
+    	consume(RIGHT_PAREN, "Expect ')' after 'for' stmt.");
+    	S stmt = statement();
+    	S body = factory.block(Arrays.asList(stmt, factory.expression(increment)));
+        return factory.block(Arrays.asList(initializer, factory.whileStmt(condition, body)));
+    }
+
+    private S ifStatement() {
+        consume(LEFT_PAREN, "Expect '(' after 'if'.");
+        E condition = expression();
+        consume(RIGHT_PAREN, "Expect ')' after if condition."); // [parens]
+
+        S thenBranch = statement();
+        S elseBranch = null;
+        if (match(ELSE)) {
+            elseBranch = statement();
+        }
+
+        return factory.ifStmt(condition, thenBranch, elseBranch);
+    }
+
+    private S printStatement() {
+    	E expr = expression();
+    	consume(SEMICOLON, "Expected ';' after print stmt.");
+        return factory.print(expr);
+    }
+
+    private S returnStatement() {
+    	if (match(SEMICOLON)) {
+    		return factory.returnStmt(null);
+    	} 
+    	E expr = expression();
+    	consume(SEMICOLON, "Expected ';' at end of return stmt.");
+        return factory.returnStmt(expr);
+    }
+
+    private S varDeclaration() {
+    	consume(IDENTIFIER, "Expected identifier after variable keyword.");
+    	Token id = previous();
+    	E expr = null;
+    	if (match(EQUAL)) {
+    		expr = expression();
+    	}
+    	consume(SEMICOLON, "Expected ';' after variable declaration.");
+        return factory.var(id, expr);
+    }
+
+    private S whileStatement() {
+    	consume(LEFT_PAREN, "Expected '(' after 'while'.");
+    	E expr = expression();
+    	consume(RIGHT_PAREN, "Expected ')' after while condition.");
+    	S stmt = statement();
+        return factory.whileStmt(expr, stmt);
+    }
+
+    private S expressionStatement() {
+    	E expr = expression();
+    	consume(SEMICOLON, "Expected ';'.");
+        return factory.expression(expr);
+    }
+
+    private S function() {
+    	consume(IDENTIFIER, "Expected identifier after 'fun'.");
+    	Token id = previous();
+    	consume(LEFT_PAREN, "Expected '(' after identifier.");
+    	List<Token> params = new ArrayList<>();
+    	while(!match(RIGHT_PAREN)) {
+    		consume(IDENTIFIER, "Expected identifier.");
+    		params.add(previous());
+    		match(COMMA);
+    	}
+    	consume(LEFT_BRACE, "Expected '{' before block.");
+    	List<S> block = block();
+        return factory.function(id, params, block);
+    }
+
+    private List<S> block() {
+    	List<S> stmts = new ArrayList<>();
+    	// an unterminated block ends at the end of the input with an error instead of looping there
+    	while(!check(RIGHT_BRACE) && !isAtEnd()) {
+        	stmts.add(declaration());
+    	}
+    	consume(RIGHT_BRACE, "Expected '}' after block.");
+        return stmts;
+    }
+
+    private E assignment() {
+    	E expr = or();
+    	if (match(EQUAL)) {
+    		E value = assignment();
+    		Token name = factory.assignable(expr);
+    		if (name != null) {
+    			return factory.assign(name, value);
+    		}
+    	}
+        return expr;
+    }
+
+    private E or() {
+        E expr = and();
+
+        while (match(OR)) {
+            Token operator = previous();
+            E right = and();
+            expr = factory.logical(expr, operator, right);
+        }
+
+        return expr;
+    }
+
+    private E and() {
+    	E equ = equality();
+    	while(match(AND)) {
+    		Token operator = previous();
+    		E right = equality();
+    		equ = factory.logical(equ, operator, right);
+    	}
+        return equ;
+    }
+
+    private E equality() {
+    	E comp = comparison();
+    	while(match(BANG_EQUAL) || match(EQUAL_EQUAL)) {
+    		Token operator = previous();
+    		E right = comparison();
+    		comp = factory.logical(comp, operator, right);
+    	}
+        return comp;
+    }
+
+    private E comparison() {
+    	E add = addition();
+    	while(match(GREATER) || match(GREATER_EQUAL) || match(LESS) || match(LESS_EQUAL)) {
+    		Token operator = previous();
+    		E right = addition();
+    		add = factory.binary(add, operator, right);
+    	}
+        return add;
+    }
+
+    private E addition() {
+    	E mult = multiplication();
+    	while (match(MINUS) || match(PLUS)) {
+    		Token operator = previous();
+    		E right = multiplication();
+    		mult = factory.binary(mult, operator, right);
+    	}
+        return mult;
+    }
+
+    private E multiplication() {
+    	E unary = unary();
+    	while (match(SLASH) || match(STAR)) {
+    		Token operator = previous();
+    		E right = unary();
+    		unary = factory.binary(unary, operator, right);
+    	}
+        return unary;
+    }
+
+    private E unary() {
+    	if (match(BANG) || match(MINUS)) {
+    		Token operator = previous();
+    		return factory.unary(operator, unary());
+    	}
+        return call();
+    }
+
+    private E call() {
+    	E expr = primary();
+    	if (match(LEFT_PAREN)) {
+    		List<E> exprs = new ArrayList<>();
+    		if (!check(RIGHT_PAREN)) {
+    			exprs = arguments();
+    		}
+    		consume(RIGHT_PAREN, "Expected ')'.");
+    		Token paren = previous();
+    		return factory.call(expr, paren, exprs);
+    	}
+    	return expr;
+    }
+    
+    private List<E> arguments() {
+    	List<E> exprs = new ArrayList<>();
+    	exprs.add(expression());
+    	while(match(COMMA)) {
+    		exprs.add(expression());
+    	}
+    	return exprs;
+    }
+
+    private E primary() {
+    	if (match(LEFT_PAREN)) {
+    		E expr = expression();
+    		consume(RIGHT_PAREN, "Expected ')'.");
+    		return expr;
+    	} else if (match(IDENTIFIER)) {
+            return factory.variable(previous());
+    	} else if (match(TRUE)) {
+    		return factory.literal(true);
+    	} else if (match(FALSE)) {
+    		return factory.literal(false);
+    	} else if (match(NIL)) {
+    		return factory.literal(null);
+    	}
+    	Object value = buffer != null ? buffer.literal(index) : current.literal;
+    	consume(peekType(), "Parsing literal NUMBER | STRING | NIL | TRUE | FALSE.");
+    	return factory.literal(value);
+    }
+
+    private boolean match(TokenType... types) {
+        for (TokenType type : types) {
+            if (check(type)) {
+                advance();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void consume(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
+
+        throw error(peek(), message);
+    }
+
+    private boolean check(TokenType tokenType) {
+        if (isAtEnd()) return false;
+        return peekType() == tokenType;
+    }
+
+    private void advance() {
+        if (isAtEnd()) return;
+        if (buffer != null) {
+            index++;
+        } else {
+            previous = current;
+            current = tokens.next();
+        }
+    }
+
+    private boolean isAtEnd() {
+        return peekType() == EOF;
+    }
+
+    private TokenType peekType() {
+        if (buffer != null) return index < end ? buffer.type(index) : EOF;
+        return current.type;
+    }
+
+    private Token peek() {
+        return buffer != null ? buffer.token(index) : current;
+    }
+
+    private Token previous() {
+        return buffer != null ? buffer.token(index - 1) : previous;
+    }
+
+    private ParseError error(Token token, String message) {
+        if (errors != null) {
+            errors.add(ParserError.message(token, message));
+        } else {
+            ParserError.error(token, message);
+        }
+        return new ParseError();
+    }
+
+
+}
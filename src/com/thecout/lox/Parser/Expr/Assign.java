@@ -10,6 +10,9 @@ public class Assign extends Expr {
 
     public final Token name;
     public final Expr value;
+    // filled in by the Resolver, depth -1 means global
+    public int depth = -1;
+    public int slot = -1;
 
     @Override
     public String print() {
@@ -1,17 +1,32 @@
 package com.thecout.lox.Parser.Expr;
 
+import com.thecout.lox.Token;
+import com.thecout.lox.Traversal.InterpreterUtils.InlineCache;
+
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class Call extends Expr {
-    public Call(Expr callee, List<Expr> arguments) {
+    public Call(Expr callee, Token paren, List<Expr> arguments) {
         this.callee = callee;
+        this.paren = paren;
         this.arguments = arguments;
     }
 
 
     public final Expr callee;
+    public final Token paren;
     public final List<Expr> arguments;
+    // inline cache of the Interpreter, see Interpreter.callee
+    private InlineCache cache;
+
+    public InlineCache cache() {
+        return cache;
+    }
+
+    public void cache(InlineCache cache) {
+        this.cache = cache;
+    }
 
     @Override
     public String print() {
@@ -9,6 +9,9 @@ public class Variable extends Expr {
 
 
     public final Token name;
+    // filled in by the Resolver, depth -1 means global
+    public int depth = -1;
+    public int slot = -1;
 
     @Override
     public String print() {
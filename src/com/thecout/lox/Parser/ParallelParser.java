@@ -0,0 +1,84 @@
+package com.thecout.lox.Parser;
+
+import static com.thecout.lox.TokenType.ELSE;
+import static com.thecout.lox.TokenType.LEFT_BRACE;
+import static com.thecout.lox.TokenType.LEFT_PAREN;
+import static com.thecout.lox.TokenType.RIGHT_BRACE;
+import static com.thecout.lox.TokenType.RIGHT_PAREN;
+import static com.thecout.lox.TokenType.SEMICOLON;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.thecout.lox.TokenBuffer;
+import com.thecout.lox.TokenType;
+import com.thecout.lox.Parser.Stmts.Stmt;
+
+/**
+ * Parses the top level declarations of a token buffer on the common
+ * {@link ForkJoinPool}. A pre-pass over the token types finds where declarations end:
+ * a ';' or '}' outside of any braces and parentheses that is not followed by 'else'.
+ * Consecutive declarations are grouped into batches of similar token counts, each batch
+ * is parsed by its own {@link Parser} and the statements are put back in source order.
+ */
+public class ParallelParser {
+    private static class Batch {
+        final int from;
+        final int to;
+        final List<String> errors = new ArrayList<>();
+        List<Stmt> statements;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    public static List<Stmt> parse(TokenBuffer tokens) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<Batch> batches = split(tokens, pool.getParallelism() * 4);
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Batch batch : batches) {
+            tasks.add(pool.submit(() -> {
+                batch.statements = new Parser(tokens, batch.from, batch.to, batch.errors).parse();
+            }));
+        }
+
+        List<Stmt> statements = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            tasks.get(i).join();
+            Batch batch = batches.get(i);
+            statements.addAll(batch.statements);
+            batch.errors.forEach(System.out::print);
+        }
+        return statements;
+    }
+
+    // cuts the tokens before the EOF into batches of about size / count tokens at declaration ends
+    private static List<Batch> split(TokenBuffer tokens, int count) {
+        int end = tokens.size() - 1;
+        int batchSize = Math.max(1, end / count);
+        List<Batch> batches = new ArrayList<>();
+        int from = 0;
+        int depth = 0;
+        for (int i = 0; i < end; i++) {
+            TokenType type = tokens.type(i);
+            if (type == LEFT_BRACE || type == LEFT_PAREN) {
+                depth++;
+            } else if (type == RIGHT_BRACE || type == RIGHT_PAREN) {
+                depth--;
+            }
+            boolean declarationEnd = depth <= 0 && (type == SEMICOLON || type == RIGHT_BRACE)
+                    && tokens.type(i + 1) != ELSE;
+            if (declarationEnd && i + 1 - from >= batchSize) {
+                batches.add(new Batch(from, i + 1));
+                from = i + 1;
+            }
+        }
+        if (from < end) batches.add(new Batch(from, end));
+        return batches;
+    }
+}
@@ -9,6 +9,8 @@ public class Block extends Stmt {
     }
 
     public final List<Stmt> statements;
+    // number of locals declared directly in this block, 0 means no own scope
+    public int slots = 0;
 
     @Override
     public String print() {
@@ -17,6 +17,9 @@ public class Function extends Stmt {
     public final Token name;
     public final List<Token> parameters;
     public final List<Stmt> body;
+    // filled in by the Resolver: slot of the name (-1 means global) and size of the call frame
+    public int slot = -1;
+    public int slots = 0;
 
     @Override
     public String print() {
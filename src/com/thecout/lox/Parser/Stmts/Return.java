@@ -8,6 +8,8 @@ public class Return extends Stmt {
     }
 
     public final Expr value;
+    // set by the Resolver when a function returns the result of a call directly
+    public boolean tailCall = false;
 
     @Override
     public String print() {
@@ -11,6 +11,8 @@ public class Var extends Stmt {
 
     public final Token name;
     public final Expr initializer;
+    // filled in by the Resolver, -1 means global
+    public int slot = -1;
 
     @Override
     public String print() {
@@ -0,0 +1,92 @@
+package com.thecout.lox.Parser;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Token;
+
+import java.util.List;
+
+// the AstFactory of the object tree the Parser produces
+final class TreeFactory implements AstFactory<Stmt, Expr> {
+    static final TreeFactory INSTANCE = new TreeFactory();
+
+    @Override
+    public Stmt block(List<Stmt> statements) {
+        return new Block(statements);
+    }
+
+    @Override
+    public Stmt expression(Expr expression) {
+        return new Expression(expression);
+    }
+
+    @Override
+    public Stmt function(Token name, List<Token> parameters, List<Stmt> body) {
+        return new Function(name, parameters, body);
+    }
+
+    @Override
+    public Stmt ifStmt(Expr condition, Stmt thenBranch, Stmt elseBranch) {
+        return new If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt print(Expr expression) {
+        return new Print(expression);
+    }
+
+    @Override
+    public Stmt returnStmt(Expr value) {
+        return new Return(value);
+    }
+
+    @Override
+    public Stmt var(Token name, Expr initializer) {
+        return new Var(name, initializer);
+    }
+
+    @Override
+    public Stmt whileStmt(Expr condition, Stmt body) {
+        return new While(condition, body);
+    }
+
+    @Override
+    public Expr assign(Token name, Expr value) {
+        return new Assign(name, value);
+    }
+
+    @Override
+    public Expr binary(Expr left, Token operator, Expr right) {
+        return new Binary(left, operator, right);
+    }
+
+    @Override
+    public Expr call(Expr callee, Token paren, List<Expr> arguments) {
+        return new Call(callee, paren, arguments);
+    }
+
+    @Override
+    public Expr literal(Object value) {
+        return new Literal(value);
+    }
+
+    @Override
+    public Expr logical(Expr left, Token operator, Expr right) {
+        return new Logical(left, operator, right);
+    }
+
+    @Override
+    public Expr unary(Token operator, Expr right) {
+        return new Unary(operator, right);
+    }
+
+    @Override
+    public Expr variable(Token name) {
+        return new Variable(name);
+    }
+
+    @Override
+    public Token assignable(Expr expression) {
+        return expression instanceof Variable ? ((Variable) expression).name : null;
+    }
+}
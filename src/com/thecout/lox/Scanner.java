@@ -1,184 +1,484 @@
 package com.thecout.lox;
 
-import java.util.ArrayDeque;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
-public class Scanner {
-	private static final int WHITESPACE = 32;
-	private static final int TABSPACE = 9;
-	private String source;
+/**
+ * Table driven scanner. Every character is mapped to a character class, a DFA over
+ * those classes finds the longest token at the current index (maximal munch) and
+ * keywords are told apart from identifiers with a perfect hash, so no intermediate
+ * strings are built while lexing. The source is scanned through a window that is
+ * refilled from a {@link Reader} or a memory mapped file, tokens are handed out one
+ * at a time by {@link #next()}.
+ */
+public class Scanner implements TokenSource, Closeable {
+	// character classes
+	private static final int OTHER = 0;
+	private static final int LETTER = 1;
+	private static final int DIGIT = 2;
+	private static final int DOT = 3;
+	private static final int QUOTE = 4;
+	private static final int NEWLINE = 5;
+	private static final int SLASH = 6;
+	private static final int EQUAL = 7;
+	private static final int BANG = 8;
+	private static final int LESS = 9;
+	private static final int GREATER = 10;
+	private static final int WHITESPACE = 11;
+	private static final int PUNCTUATION = 12;
+	private static final int CLASSES = 13;
+
+	// states, ERROR ends the token
+	private static final int ERROR = 0;
+	private static final int START = 1;
+	private static final int IDENTIFIER = 2;
+	private static final int INTEGER = 3;
+	private static final int NUMBER_DOT = 4;
+	private static final int FRACTION = 5;
+	private static final int STRING = 6;
+	private static final int STRING_END = 7;
+	private static final int SLASH_SEEN = 8;
+	private static final int COMMENT = 9;
+	private static final int BANG_SEEN = 10;
+	private static final int EQUAL_SEEN = 11;
+	private static final int LESS_SEEN = 12;
+	private static final int GREATER_SEEN = 13;
+	private static final int TWO_CHAR = 14;
+	private static final int SINGLE_CHAR = 15;
+	private static final int STATES = 16;
+
+	private static final byte[] CHAR_CLASS = new byte[128];
+	private static final byte[][] TRANSITIONS = new byte[STATES][CLASSES];
+	// token type of accepting states, null for the others
+	private static final TokenType[] ACCEPT = new TokenType[STATES];
+	private static final TokenType[] SINGLE_CHAR_TYPE = new TokenType[128];
+	private static final String[] SINGLE_CHAR_LEXEME = new String[128];
+
+	// keywords hashed by (first char + 5 * last char + length) & 31, collision free
+	private static final String[] KEYWORDS = new String[32];
+	private static final TokenType[] KEYWORD_TYPES = new TokenType[32];
+
+	static {
+		for (char c = 0; c < 128; c++) SINGLE_CHAR_LEXEME[c] = String.valueOf(c);
+		for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = LETTER;
+		for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = LETTER;
+		CHAR_CLASS['_'] = LETTER;
+		for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+		CHAR_CLASS['.'] = DOT;
+		CHAR_CLASS['"'] = QUOTE;
+		CHAR_CLASS['\n'] = NEWLINE;
+		CHAR_CLASS['/'] = SLASH;
+		CHAR_CLASS['='] = EQUAL;
+		CHAR_CLASS['!'] = BANG;
+		CHAR_CLASS['<'] = LESS;
+		CHAR_CLASS['>'] = GREATER;
+		CHAR_CLASS[' '] = WHITESPACE;
+		CHAR_CLASS['\t'] = WHITESPACE;
+		CHAR_CLASS['\r'] = WHITESPACE;
+		singleChar('(', TokenType.LEFT_PAREN);
+		singleChar(')', TokenType.RIGHT_PAREN);
+		singleChar('{', TokenType.LEFT_BRACE);
+		singleChar('}', TokenType.RIGHT_BRACE);
+		singleChar(',', TokenType.COMMA);
+		singleChar('-', TokenType.MINUS);
+		singleChar('+', TokenType.PLUS);
+		singleChar(';', TokenType.SEMICOLON);
+		singleChar('*', TokenType.STAR);
+
+		on(START, LETTER, IDENTIFIER);
+		on(IDENTIFIER, LETTER, IDENTIFIER);
+		on(IDENTIFIER, DIGIT, IDENTIFIER);
+		on(START, DIGIT, INTEGER);
+		on(INTEGER, DIGIT, INTEGER);
+		on(INTEGER, DOT, NUMBER_DOT);
+		on(NUMBER_DOT, DIGIT, FRACTION);
+		on(FRACTION, DIGIT, FRACTION);
+		on(START, DOT, SINGLE_CHAR);
+		on(START, PUNCTUATION, SINGLE_CHAR);
+		on(START, QUOTE, STRING);
+		for (int c = 0; c < CLASSES; c++) {
+			if (c != QUOTE) on(STRING, c, STRING);
+			if (c != NEWLINE) on(COMMENT, c, COMMENT);
+		}
+		on(STRING, QUOTE, STRING_END);
+		on(START, SLASH, SLASH_SEEN);
+		on(SLASH_SEEN, SLASH, COMMENT);
+		on(START, BANG, BANG_SEEN);
+		on(BANG_SEEN, EQUAL, TWO_CHAR);
+		on(START, EQUAL, EQUAL_SEEN);
+		on(EQUAL_SEEN, EQUAL, TWO_CHAR);
+		on(START, LESS, LESS_SEEN);
+		on(LESS_SEEN, EQUAL, TWO_CHAR);
+		on(START, GREATER, GREATER_SEEN);
+		on(GREATER_SEEN, EQUAL, TWO_CHAR);
+
+		ACCEPT[IDENTIFIER] = TokenType.IDENTIFIER;
+		ACCEPT[INTEGER] = TokenType.NUMBER;
+		ACCEPT[FRACTION] = TokenType.NUMBER;
+		ACCEPT[STRING_END] = TokenType.STRING;
+		ACCEPT[SLASH_SEEN] = TokenType.SLASH;
+		ACCEPT[COMMENT] = TokenType.COMMENT;
+		ACCEPT[BANG_SEEN] = TokenType.BANG;
+		ACCEPT[EQUAL_SEEN] = TokenType.EQUAL;
+		ACCEPT[LESS_SEEN] = TokenType.LESS;
+		ACCEPT[GREATER_SEEN] = TokenType.GREATER;
+		// TWO_CHAR and SINGLE_CHAR depend on the characters, see token()
+		ACCEPT[TWO_CHAR] = TokenType.EQUAL_EQUAL;
+		ACCEPT[SINGLE_CHAR] = TokenType.DOT;
+
+		keyword("and", TokenType.AND);
+		keyword("else", TokenType.ELSE);
+		keyword("false", TokenType.FALSE);
+		keyword("fun", TokenType.FUN);
+		keyword("for", TokenType.FOR);
+		keyword("if", TokenType.IF);
+		keyword("nil", TokenType.NIL);
+		keyword("or", TokenType.OR);
+		keyword("print", TokenType.PRINT);
+		keyword("return", TokenType.RETURN);
+		keyword("true", TokenType.TRUE);
+		keyword("var", TokenType.VAR);
+		keyword("while", TokenType.WHILE);
+	}
+
+	private static void on(int state, int charClass, int next) {
+		TRANSITIONS[state][charClass] = (byte) next;
+	}
+
+	private static void singleChar(char c, TokenType type) {
+		CHAR_CLASS[c] = PUNCTUATION;
+		SINGLE_CHAR_TYPE[c] = type;
+	}
+
+	private static void keyword(String keyword, TokenType type) {
+		int hash = keywordHash(keyword.charAt(0), keyword.charAt(keyword.length() - 1), keyword.length());
+		if (KEYWORDS[hash] != null) throw new IllegalStateException("Keyword hash collision: " + keyword);
+		KEYWORDS[hash] = keyword;
+		KEYWORD_TYPES[hash] = type;
+	}
+
+	private static int keywordHash(char first, char last, int length) {
+		return (first + 5 * last + length) & 31;
+	}
+
+	private static int charClass(char c) {
+		if (c < 128) return CHAR_CLASS[c];
+		return Character.isLetter(c) ? LETTER : OTHER;
+	}
+
+	// characters read from the input at a time, the window only grows for longer tokens
+	private static final int WINDOW = 1 << 16;
+
+	// null when the whole source is already in the buffer
+	private final Reader reader;
+	private char[] buffer;
+	private int position;
+	private int limit;
+	private int line;
+	private boolean exhausted;
+	// set once the whole source has to stay in the buffer, see scanBuffer()
+	private boolean retain;
+
+	// no token starts at or after stop
+	private int stop = Integer.MAX_VALUE;
+	// errors are collected here instead of printed when set
+	private List<String> errors;
+	private boolean hadError;
+
+	// the token found by the last scanToken()
+	private int tokenStart;
+	private int tokenEnd;
+	private int tokenState;
+	private int tokenLine;
 
 	public Scanner(String source) {
-		this.source = source;
+		this(source, 0);
+	}
+
+	// a scanner that collects its errors in errors instead of printing them
+	public Scanner(String source, List<String> errors) {
+		this(source, 0);
+		this.errors = errors;
+	}
+
+	private Scanner(String source, int line) {
+		this.reader = null;
+		this.buffer = source.toCharArray();
+		this.limit = buffer.length;
+		this.line = line;
+		this.exhausted = true;
+	}
+
+	/**
+	 * Scans the characters of reader as they are needed, so only the current window
+	 * of the source is held in memory.
+	 */
+	public Scanner(Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[WINDOW];
+	}
+
+	/**
+	 * Scans a UTF-8 file through memory mappings of the file.
+	 */
+	public Scanner(Path path) throws IOException {
+		this(new MappedFileReader(path));
+	}
+
+	public boolean hadError() {
+		return hadError;
 	}
 
 	public List<Token> scan() {
-		List<Token> tokens = new ArrayList<>();
-		String[] lines = source.split("\n");
-		for (int i = 0; i < lines.length; i++) {
-			tokens.addAll(scanLine(lines[i], i));
-		}
-		tokens.add(new Token(TokenType.EOF, "", "", lines.length));
+		List<Token> tokens = new ArrayList<>(exhausted ? limit / 4 + 16 : 1024);
+		Token token;
+		do {
+			token = next();
+			tokens.add(token);
+		} while (token.type != TokenType.EOF);
 		return tokens;
 	}
 
 	public List<Token> scanLine(String line, int lineNumber) {
-		List<Token> tokens = new ArrayList<>();
-		List<Character> memory = new ArrayList<>();
-		Deque<Character> deque = new ArrayDeque<>();
-		initializeStack(deque, line);
-		while (!deque.isEmpty()) {
-			memory.add(deque.pop());
-			String possibleToken = buildFromMemory(memory);
-			if (!possibleToken.isEmpty() && possibleToken.chars().allMatch(Character::isDigit)) {
-				while (!deque.isEmpty() && (Character.isDigit(deque.peek()) || deque.peek() == '.')) {
-					char c = deque.pop();
-					if (Character.isDigit(c)) {
-						memory.add(c);
-					} else if (c == '.' && memory.stream().filter(ch -> ch == '.').collect(Collectors.toList()).isEmpty()) {
-						memory.add(c);
-					} else {
-						tokens.add(new Token(TokenType.NUMBER, buildFromMemory(memory), buildFromMemory(memory), lineNumber));
-						memory.clear();
-						memory.add(c);
-					}
+		List<Token> tokens = new Scanner(line, lineNumber).scan();
+		tokens.remove(tokens.size() - 1);
+		return tokens;
+	}
+
+	@Override
+	public Token next() {
+		if (!scanToken()) return new Token(TokenType.EOF, "", "", line);
+		return token(tokenStart, tokenEnd, tokenState, tokenLine);
+	}
+
+	/**
+	 * Scans the rest of the source into a {@link TokenBuffer} without creating tokens.
+	 * The buffer refers to the characters of the source, so input from a reader or a
+	 * file is kept in memory completely.
+	 */
+	public TokenBuffer scanBuffer() {
+		retain = true;
+		TokenBuffer tokens = new TokenBuffer(exhausted ? limit / 3 + 16 : 1024);
+		scanInto(tokens);
+		tokens.add(TokenType.EOF, limit, 0, line);
+		tokens.source = buffer;
+		return tokens;
+	}
+
+	/**
+	 * Like {@link #scanBuffer()}, but lexes chunks of the source on the common
+	 * {@link java.util.concurrent.ForkJoinPool}, see {@link ParallelScanner}.
+	 */
+	public TokenBuffer scanParallel() {
+		retain = true;
+		while (fill()) {
+			// read the whole input, chunks are cut from the buffer
+		}
+		List<String> chunkErrors = new ArrayList<>();
+		TokenBuffer tokens = ParallelScanner.scan(buffer, position, limit, line, chunkErrors);
+		// reported like the errors of a sequential scan, so hadError and the errors list see them
+		chunkErrors.forEach(this::error);
+		position = limit;
+		line = tokens.line(tokens.size() - 1);
+		return tokens;
+	}
+
+	// scans a chunk of a source that is completely in memory, only tokens starting before stop are taken
+	Scanner(char[] source, int start, int stop, int limit, int line, List<String> errors) {
+		this.reader = null;
+		this.buffer = source;
+		this.position = start;
+		this.limit = limit;
+		this.stop = stop;
+		this.line = line;
+		this.exhausted = true;
+		this.errors = errors;
+	}
+
+	void scanInto(TokenBuffer tokens) {
+		while (scanToken()) {
+			if (tokenState == STRING_END) {
+				tokens.add(TokenType.STRING, tokenStart + 1, tokenEnd - tokenStart - 2, tokenLine);
+			} else {
+				tokens.add(type(tokenStart, tokenEnd, tokenState), tokenStart, tokenEnd - tokenStart, tokenLine);
+			}
+		}
+	}
+
+	int position() {
+		return position;
+	}
+
+	int line() {
+		return line;
+	}
+
+	// finds the next token and leaves it in tokenStart, tokenEnd, tokenState and tokenLine, false at the end
+	private boolean scanToken() {
+		while (true) {
+			if (position >= stop || position == limit && !fill()) return false;
+			char c = buffer[position];
+			if (c == '\n') {
+				line++;
+				position++;
+				continue;
+			}
+			if (c == ' ' || c == '\t' || c == '\r') {
+				position++;
+				continue;
+			}
+
+			int state = START;
+			int acceptedState = ERROR;
+			int acceptedEnd = position;
+			int newlines = 0;
+			int acceptedNewlines = 0;
+			int i = position;
+			while (true) {
+				if (i == limit) {
+					int start = position;
+					boolean more = fill();
+					i -= start - position;
+					acceptedEnd -= start - position;
+					if (!more) break;
+				}
+				char current = buffer[i];
+				state = TRANSITIONS[state][charClass(current)];
+				if (state == ERROR) break;
+				if (current == '\n') newlines++;
+				i++;
+				if (ACCEPT[state] != null) {
+					acceptedState = state;
+					acceptedEnd = i;
+					acceptedNewlines = newlines;
 				}
-				possibleToken = buildFromMemory(memory);
-				tokens.add(new Token(TokenType.NUMBER, possibleToken, Double.parseDouble(possibleToken), lineNumber));
-				memory.clear();
-			} else if (memory.stream().allMatch(c -> !Character.isDigit(c))) {
-				if ("(".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.LEFT_PAREN, possibleToken, '(', lineNumber));
-					memory.clear();
-				} else if (")".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.RIGHT_PAREN, possibleToken, ')', lineNumber));
-					memory.clear();
-				} else if ("{".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.LEFT_BRACE, possibleToken, '{', lineNumber));
-					memory.clear();
-				} else if ("}".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.RIGHT_BRACE, possibleToken, '}', lineNumber));
-					memory.clear();
-				} else if ("\"".equals(possibleToken)) {
-					while (!deque.isEmpty() && deque.peek() != '"') {
-						memory.add(deque.pop());
-					}
-					memory.add(deque.pop());
-					possibleToken = memory.stream().filter(c -> c != '"').map(String::valueOf)
-												   .collect(Collectors.joining());
-					tokens.add(new Token(TokenType.STRING, possibleToken, possibleToken.trim(), lineNumber));
-					memory.clear();
-				} else if (",".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.COMMA, possibleToken, ',', lineNumber));
-					memory.clear();
-				} else if (";".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.SEMICOLON, possibleToken, ';', lineNumber));
-					memory.clear();
-				} else if ("+".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.PLUS, possibleToken, '+', lineNumber));
-					memory.clear();
-				} else if ("-".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.MINUS, possibleToken, '-', lineNumber));
-					memory.clear();
-				} else if ("*".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.STAR, possibleToken, '*', lineNumber));
-					memory.clear();
-				} else if ("/".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.SLASH, possibleToken, '/', lineNumber));
-					memory.clear();
-				} else if (".".equals(possibleToken) && (deque.isEmpty() || !Character.isDigit(deque.peek()))) {
-					tokens.add(new Token(TokenType.DOT, possibleToken, '.', lineNumber));
-					memory.clear();
-				} else if ("!".equals(possibleToken) && (deque.isEmpty() || deque.peek() != '=')) {
-					tokens.add(new Token(TokenType.BANG, possibleToken, '!', lineNumber));
-					memory.clear();
-				} else if ("!=".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.BANG_EQUAL, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("=".equals(possibleToken) && (deque.isEmpty() || deque.peek() != '=')) {
-					tokens.add(new Token(TokenType.EQUAL, possibleToken, '=', lineNumber));
-					memory.clear();
-				} else if ("==".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.EQUAL_EQUAL, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("<".equals(possibleToken) && (deque.isEmpty() || deque.peek() != '=')) {
-					tokens.add(new Token(TokenType.LESS, possibleToken, '<', lineNumber));
-					memory.clear();
-				} else if ("<=".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.LESS_EQUAL, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if (">".equals(possibleToken) && (deque.isEmpty() || deque.peek() != '=')) {
-					tokens.add(new Token(TokenType.GREATER, possibleToken, '>', lineNumber));
-					memory.clear();
-				} else if (">=".equals(possibleToken)) {
-					tokens.add(new Token(TokenType.GREATER_EQUAL, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("print".equals(possibleToken) && (deque.isEmpty() || deque.peek() == WHITESPACE)) {
-					tokens.add(new Token(TokenType.PRINT, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("if".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.IF, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("else".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.ELSE, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("for".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.FOR, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("while".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.WHILE, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("var".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.VAR, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("nil".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.NIL, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("or".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.OR, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("and".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.AND, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("return".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.RETURN, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("true".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.TRUE, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("false".equals(possibleToken) && (deque.isEmpty() || !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.FALSE, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if ("fun".equals(possibleToken) && (deque.isEmpty() || deque.peek() == WHITESPACE)) {
-					tokens.add(new Token(TokenType.FUN, possibleToken, possibleToken, lineNumber));
-					memory.clear();
-				} else if (!possibleToken.isEmpty() && possibleToken.chars().allMatch(c -> Character.isDigit(c) || Character.isLetter(c)) 
-						&& (deque.isEmpty() || !Character.isDigit(deque.peek()) && !Character.isLetter(deque.peek()))) {
-					tokens.add(new Token(TokenType.IDENTIFIER, possibleToken, possibleToken, lineNumber));
-					memory.clear();
+			}
+
+			if (acceptedState == ERROR) {
+				if (state == STRING) {
+					error(line + " Unterminated string.");
+					line += newlines;
+					position = limit;
+					continue;
 				}
+				error(line + " Unexpected character '" + c + "'.");
+				position++;
+				continue;
 			}
+			tokenStart = position;
+			tokenEnd = acceptedEnd;
+			tokenState = acceptedState;
+			tokenLine = line;
+			line += acceptedNewlines;
+			position = acceptedEnd;
+			if (acceptedState != COMMENT) return true;
 		}
-		return tokens;
 	}
 
-	private void initializeStack(Deque<Character> deque, String line) {
-		char[] chars = line.toCharArray();
-		for (int i = chars.length - 1; i >= 0; i--) {
-			deque.push(chars[i]);
+	private void error(String message) {
+		hadError = true;
+		if (errors != null) {
+			errors.add(message);
+		} else {
+			System.err.println(message);
+		}
+	}
+
+	// moves the unscanned rest of the window to the front (unless the source is retained) and reads more input
+	private boolean fill() {
+		if (exhausted) return false;
+		int keep = retain ? 0 : position;
+		int rest = limit - keep;
+		if (rest == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		} else {
+			System.arraycopy(buffer, keep, buffer, 0, rest);
+		}
+		position -= keep;
+		limit = rest;
+		try {
+			int read = reader.read(buffer, limit, buffer.length - limit);
+			if (read < 0) {
+				exhausted = true;
+				return false;
+			}
+			limit += read;
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (reader != null) reader.close();
+	}
+
+	private Token token(int start, int end, int state, int line) {
+		char first = buffer[start];
+		switch (state) {
+			case IDENTIFIER: {
+				TokenType type = type(start, end, state);
+				if (type != TokenType.IDENTIFIER) {
+					String keyword = TokenBuffer.lexeme(type);
+					return new Token(type, keyword, keyword, line);
+				}
+				int symbol = Symbols.intern(buffer, start, end - start);
+				String lexeme = symbol >= 0 ? Symbols.name(symbol) : new String(buffer, start, end - start);
+				return new Token(TokenType.IDENTIFIER, lexeme, lexeme, line, symbol);
+			}
+			case INTEGER:
+			case FRACTION: {
+				String lexeme = new String(buffer, start, end - start);
+				return new Token(TokenType.NUMBER, lexeme, Double.parseDouble(lexeme), line);
+			}
+			case STRING_END: {
+				String value = new String(buffer, start + 1, end - start - 2);
+				return new Token(TokenType.STRING, value, value, line);
+			}
+			case TWO_CHAR: {
+				TokenType type = type(start, end, state);
+				return new Token(type, TokenBuffer.lexeme(type), TokenBuffer.lexeme(type), line);
+			}
+			default:
+				return new Token(type(start, end, state), SINGLE_CHAR_LEXEME[first], first, line);
 		}
 	}
 
-	private String buildFromMemory(List<Character> memory) {
-		StringBuilder builder = new StringBuilder();
-		for (char c : memory) {
-			if (c != WHITESPACE && c != TABSPACE) {
-				builder.append(c);
+	private TokenType type(int start, int end, int state) {
+		char first = buffer[start];
+		switch (state) {
+			case IDENTIFIER: {
+				int length = end - start;
+				int hash = keywordHash(first, buffer[end - 1], length);
+				String keyword = KEYWORDS[hash];
+				if (keyword != null && keyword.length() == length && matches(keyword, start)) {
+					return KEYWORD_TYPES[hash];
+				}
+				return TokenType.IDENTIFIER;
 			}
+			case SINGLE_CHAR:
+				return first == '.' ? TokenType.DOT : SINGLE_CHAR_TYPE[first];
+			case TWO_CHAR:
+				if (first == '!') return TokenType.BANG_EQUAL;
+				if (first == '=') return TokenType.EQUAL_EQUAL;
+				if (first == '<') return TokenType.LESS_EQUAL;
+				return TokenType.GREATER_EQUAL;
+			default:
+				return ACCEPT[state];
+		}
+	}
+
+	private boolean matches(String keyword, int start) {
+		for (int i = 0; i < keyword.length(); i++) {
+			if (buffer[start + i] != keyword.charAt(i)) return false;
 		}
-		return builder.toString();
+		return true;
 	}
 }
@@ -0,0 +1,118 @@
+package com.thecout.lox;
+
+import java.util.Arrays;
+
+/**
+ * Global table of interned identifier names. Every distinct name gets a dense int id
+ * in the order it was first seen, and all tokens of that name share one String. The
+ * scanner looks names up straight from its character buffer, so an identifier that was
+ * seen before costs no allocation. The table is shared by all scanners, including the
+ * parallel ones: names already in it are found without taking the lock, only adding one
+ * locks. It holds at most {@link #CAPACITY} names, so a long running server does not
+ * keep every name a client ever sent; a name that does not fit gets no id and a String
+ * of its own. Ids only identify names, nothing is keyed or sized by them.
+ */
+public final class Symbols {
+    public static final int CAPACITY = Integer.getInteger("lox.symbols", 1 << 16);
+
+    // open addressing table of id + 1, 0 marks a free entry, replaced whole when it grows
+    private static volatile int[] table = new int[1024];
+    // only replaced under the lock, a reader holding an id from intern always finds its name
+    private static volatile String[] names = new String[512];
+    private static int count;
+
+    private Symbols() {
+    }
+
+    public static int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    // the id of the name, -1 if it is not in the table and the table is full
+    public static int intern(char[] chars, int start, int length) {
+        int hash = hash(chars, start, length);
+        int symbol = find(chars, start, length, hash);
+        return symbol >= 0 ? symbol : add(chars, start, length, hash);
+    }
+
+    // the id of a name that was interned before, -1 if it never was; unlike intern it adds nothing
+    public static int lookup(String name) {
+        char[] chars = name.toCharArray();
+        return find(chars, 0, chars.length, hash(chars, 0, chars.length));
+    }
+
+    public static String name(int symbol) {
+        return names[symbol];
+    }
+
+    public static synchronized int size() {
+        return count;
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    // without the lock: a name added concurrently may be missed, but never a wrong one found
+    private static int find(char[] chars, int start, int length, int hash) {
+        int[] table = Symbols.table;
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) return -1;
+            String[] names = Symbols.names;
+            String name = entry <= names.length ? names[entry - 1] : null;
+            // an entry whose name is not visible yet is looked up again under the lock
+            if (name == null) return -1;
+            if (matches(name, chars, start, length)) return entry - 1;
+        }
+    }
+
+    private static synchronized int add(char[] chars, int start, int length, int hash) {
+        int[] table = Symbols.table;
+        int mask = table.length - 1;
+        int index = hash & mask;
+        for (int entry = table[index]; entry != 0; entry = table[index]) {
+            if (matches(names[entry - 1], chars, start, length)) return entry - 1;
+            index = (index + 1) & mask;
+        }
+        if (count == CAPACITY) return -1;
+        String[] names = Symbols.names;
+        if (count == names.length) names = Arrays.copyOf(names, count * 2);
+        names[count] = new String(chars, start, length);
+        Symbols.names = names;
+        table[index] = ++count;
+        // keep the table at most half full
+        if (count * 2 > table.length) rehash();
+        return count - 1;
+    }
+
+    private static boolean matches(String name, char[] chars, int start, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) return false;
+        }
+        return true;
+    }
+
+    private static void rehash() {
+        int[] old = table;
+        int[] table = new int[old.length * 2];
+        int mask = table.length - 1;
+        for (int entry : old) {
+            if (entry == 0) continue;
+            String name = names[entry - 1];
+            int hash = hash(name.toCharArray(), 0, name.length());
+            int i = hash & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = entry;
+        }
+        Symbols.table = table;
+    }
+}
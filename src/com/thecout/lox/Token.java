@@ -5,15 +5,31 @@ public class Token {
     public final String lexeme;
     public final Object literal;
     public final int line;
+    // id of the identifier in Symbols, -1 for every other token
+    public final int symbol;
 
     Token(TokenType type, String lexeme, Object literal, int line) {
+        this(type, lexeme, literal, line, type == TokenType.IDENTIFIER ? Symbols.intern(lexeme) : -1);
+    }
+
+    Token(TokenType type, String lexeme, Object literal, int line, int symbol) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.symbol = symbol;
+    }
+
+    // rebuilds a token that was kept as its type, line and name, like the tokens of a FlatAst
+    public static Token of(TokenType type, int line, String name) {
+        if (name == null) {
+            String lexeme = TokenBuffer.lexeme(type);
+            return new Token(type, lexeme, lexeme, line, -1);
+        }
+        return new Token(type, name, name, line, Symbols.lookup(name));
     }
 
     public String toString() {
         return type + " " + lexeme + " " + literal;
     }
-}
\ No newline at end of file
+}
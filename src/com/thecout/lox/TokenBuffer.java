@@ -0,0 +1,144 @@
+package com.thecout.lox;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Scanned tokens stored as parallel arrays of types, source offsets, lengths and lines.
+ * Lexemes are views into the source characters, {@link Token} objects are only created
+ * by {@link #token(int)} when somebody asks for one. String tokens cover the characters
+ * between the quotes, like {@link Token#lexeme} does.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    // lexemes of the tokens that always look the same, null for identifiers, numbers and strings
+    private static final String[] LEXEMES = new String[TYPES.length];
+
+    static {
+        String singleChars = "(){},.-+;/*";
+        for (int i = 0; i < singleChars.length(); i++) {
+            LEXEMES[TokenType.LEFT_PAREN.ordinal() + i] = String.valueOf(singleChars.charAt(i));
+        }
+        String[] operators = {"!", "!=", "=", "==", ">", ">=", "<", "<="};
+        for (int i = 0; i < operators.length; i++) {
+            LEXEMES[TokenType.BANG.ordinal() + i] = operators[i];
+        }
+        for (int i = TokenType.AND.ordinal(); i <= TokenType.WHILE.ordinal(); i++) {
+            LEXEMES[i] = TYPES[i].name().toLowerCase();
+        }
+        LEXEMES[TokenType.EOF.ordinal()] = "";
+    }
+
+    static String lexeme(TokenType type) {
+        return LEXEMES[type.ordinal()];
+    }
+
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+    char[] source;
+
+    TokenBuffer(int capacity) {
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int length, int line) {
+        if (size == types.length) grow(size * 2 + 16);
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    // appends the tokens of a buffer over the same source
+    void append(TokenBuffer other) {
+        if (size + other.size > types.length) grow(Math.max(size * 2, size + other.size));
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.lines, 0, lines, size, other.size);
+        size += other.size;
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public CharSequence lexeme(int index) {
+        return CharBuffer.wrap(source, starts[index], lengths[index]);
+    }
+
+    public Object literal(int index) {
+        TokenType type = type(index);
+        switch (type) {
+            case NUMBER:
+                return Double.parseDouble(new String(source, starts[index], lengths[index]));
+            case STRING:
+                return new String(source, starts[index], lengths[index]);
+            case IDENTIFIER:
+                return name(index, Symbols.intern(source, starts[index], lengths[index]));
+            default:
+                String lexeme = LEXEMES[type.ordinal()];
+                return isSingleChar(type) ? (Object) lexeme.charAt(0) : lexeme;
+        }
+    }
+
+    // a name that did not fit in the full symbol table gets a String of its own
+    private String name(int index, int symbol) {
+        return symbol >= 0 ? Symbols.name(symbol) : new String(source, starts[index], lengths[index]);
+    }
+
+    // the scanner gives single character tokens a Character literal
+    private static boolean isSingleChar(TokenType type) {
+        return type.ordinal() < TokenType.IDENTIFIER.ordinal() && LEXEMES[type.ordinal()].length() == 1;
+    }
+
+    public Token token(int index) {
+        TokenType type = type(index);
+        if (type == TokenType.IDENTIFIER) {
+            int symbol = Symbols.intern(source, starts[index], lengths[index]);
+            String name = name(index, symbol);
+            return new Token(type, name, name, lines[index], symbol);
+        }
+        String lexeme = LEXEMES[type.ordinal()];
+        if (lexeme == null) lexeme = new String(source, starts[index], lengths[index]);
+        Object literal;
+        if (type == TokenType.NUMBER) {
+            literal = Double.parseDouble(lexeme);
+        } else if (isSingleChar(type)) {
+            literal = lexeme.charAt(0);
+        } else {
+            literal = lexeme;
+        }
+        return new Token(type, lexeme, literal, lines[index]);
+    }
+}
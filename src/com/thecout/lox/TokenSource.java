@@ -0,0 +1,23 @@
+package com.thecout.lox;
+
+import java.util.List;
+
+/**
+ * Pull based stream of tokens. Once the source is used up every call returns an EOF token.
+ */
+public interface TokenSource {
+    Token next();
+
+    static TokenSource of(List<Token> tokens) {
+        return new TokenSource() {
+            private int current = 0;
+
+            @Override
+            public Token next() {
+                Token token = tokens.get(current);
+                if (current < tokens.size() - 1) current++;
+                return token;
+            }
+        };
+    }
+}
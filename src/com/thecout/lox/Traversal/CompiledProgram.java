@@ -0,0 +1,60 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Jit.CodeCache;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Scanner;
+import com.thecout.lox.Traversal.InterpreterUtils.Budget;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A program that is parsed, optimized and resolved once and then run by any number of
+ * {@link Session}s, also at the same time on different threads. The tree is never changed
+ * after compilation: globals and frames belong to a session, and the call sites of a shared
+ * tree keep no inline caches. A function declaration is compiled once for all sessions, by
+ * the first one that calls it often enough.
+ */
+public final class CompiledProgram {
+    private final List<Stmt> statements;
+    private final CodeCache codeCache = new CodeCache();
+
+    // the statements are optimized in place and must not be run by anything else afterwards
+    public CompiledProgram(List<Stmt> statements) {
+        List<Stmt> program = new ArrayList<>(statements);
+        new Optimizer().optimize(program);
+        new Resolver().resolve(program);
+        this.statements = Collections.unmodifiableList(program);
+    }
+
+    // throws an IllegalArgumentException listing the scan and parse errors of source, if any
+    public static CompiledProgram compile(String source) {
+        List<String> errors = new ArrayList<>();
+        List<Stmt> statements = new Parser(new Scanner(source, errors), errors).parse();
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(errors.stream().map(String::strip).collect(Collectors.joining("\n")));
+        }
+        return new CompiledProgram(statements);
+    }
+
+    List<Stmt> statements() {
+        return statements;
+    }
+
+    public Session newSession() {
+        return newSession(System.out, System.err);
+    }
+
+    public Session newSession(PrintStream out, PrintStream err) {
+        return newSession(out, err, null);
+    }
+
+    // every run of the session is limited by the budget, null for none
+    public Session newSession(PrintStream out, PrintStream err, Budget budget) {
+        return new Session(this, new Interpreter(out, err, codeCache, budget));
+    }
+}
@@ -1,72 +1,223 @@
 package com.thecout.lox.Traversal;
 
 
+import com.thecout.lox.Jit.CodeCache;
 import com.thecout.lox.Parser.Expr.*;
 import com.thecout.lox.Parser.Stmts.*;
 import com.thecout.lox.Token;
 import com.thecout.lox.TokenType;
+import com.thecout.lox.Traversal.InterpreterUtils.Binding;
+import com.thecout.lox.Traversal.InterpreterUtils.Budget;
+import com.thecout.lox.Traversal.InterpreterUtils.BudgetExceeded;
+import com.thecout.lox.Traversal.InterpreterUtils.CallStack;
+import com.thecout.lox.Traversal.InterpreterUtils.Clock;
 import com.thecout.lox.Traversal.InterpreterUtils.Environment;
+import com.thecout.lox.Traversal.InterpreterUtils.InlineCache;
 import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
 import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
 import com.thecout.lox.Traversal.InterpreterUtils.LoxReturn;
+import com.thecout.lox.Traversal.InterpreterUtils.Operands;
+import com.thecout.lox.Traversal.InterpreterUtils.Profiler;
 import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.PrintStream;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
+// statements complete with null, or with the LoxReturn of a return statement
 public class Interpreter implements ExprVisitor<Object>,
-        StmtVisitor<Void> {
+        StmtVisitor<LoxReturn> {
 
     public final Environment globals = new Environment();
+    // where print statements write to, and runtime errors and the profile are reported
+    public final PrintStream out;
+    private final PrintStream err;
     private Environment environment = globals;
-
+    private final LoxReturn returned = new LoxReturn();
+    // both null unless the program is profiled, LoxFunction checks instrumented once per call
+    private final Profiler profiler;
+    private final CallStack callStack;
+    private final boolean instrumented;
+    // the tree is shared with other interpreters, so its call sites keep no inline caches and
+    // its functions are compiled into the code cache of the program, null for a tree of its own
+    private final CodeCache codeCache;
+    private final boolean shared;
+    // null without limits; steps are counted down in countdown, which is charged to steps
+    // and checked against the budget whenever it reaches 0, see Budget
+    private final Budget budget;
+    private final int maxDepth;
+    private int countdown = Integer.MAX_VALUE;
+    private int charged;
+    private long steps;
+    private long deadline;
+    private int depth;
 
 
 
     public Interpreter() {
-        globals.define("clock", new LoxCallable() {
-            @Override
-            public int arity() {
-                return 0;
-            }
+        this(null);
+    }
 
-            @Override
-            public Object call(Interpreter interpreter,
-                               List<Object> arguments) {
-                return (double) System.currentTimeMillis() / 1000.0;
-            }
+    /**
+     * An interpreter that records every Lox function call in the profiler and prints its
+     * report to System.err when {@link #interpret} is done.
+     */
+    public Interpreter(Profiler profiler) {
+        this(profiler, null);
+    }
 
-            @Override
-            public String toString() {
-                return "<native fn>";
-            }
-        });
+    /**
+     * An interpreter that also keeps the Lox functions it is running on the call stack,
+     * for a {@link com.thecout.lox.Traversal.InterpreterUtils.SamplingProfiler} to sample.
+     */
+    public Interpreter(Profiler profiler, CallStack callStack) {
+        this(profiler, callStack, System.out, System.err, null, null);
+    }
+
+    /**
+     * An interpreter that prints to out and reports errors to err instead of the standard
+     * streams, so several programs can run at the same time, see {@link com.thecout.lox.LoxServer}.
+     */
+    public Interpreter(PrintStream out, PrintStream err) {
+        this(out, err, null);
+    }
+
+    /**
+     * An interpreter whose every run stops with a
+     * {@link com.thecout.lox.Traversal.InterpreterUtils.BudgetExceeded} once it takes more
+     * steps or time than the budget allows, nests calls too deep or is cancelled.
+     */
+    public Interpreter(PrintStream out, PrintStream err, Budget budget) {
+        this(null, null, out, err, null, budget);
+    }
+
+    // an interpreter of a Session, running a tree other sessions may run at the same time
+    Interpreter(PrintStream out, PrintStream err, CodeCache codeCache, Budget budget) {
+        this(null, null, out, err, codeCache, budget);
+    }
+
+    private Interpreter(Profiler profiler, CallStack callStack, PrintStream out, PrintStream err, CodeCache codeCache,
+                        Budget budget) {
+        this.codeCache = codeCache;
+        this.shared = codeCache != null;
+        this.budget = budget;
+        this.maxDepth = budget == null ? Integer.MAX_VALUE : budget.maxDepth();
+        this.out = out;
+        this.err = err;
+        this.profiler = profiler;
+        this.callStack = callStack;
+        this.instrumented = profiler != null || callStack != null;
+        globals.define("clock", new Clock());
+    }
+
+    public Profiler profiler() {
+        return profiler;
+    }
+
+    public CallStack callStack() {
+        return callStack;
+    }
+
+    // where the functions of a shared tree are compiled, null if the tree is not shared
+    public CodeCache codeCache() {
+        return codeCache;
+    }
+
+    public boolean instrumented() {
+        return instrumented;
     }
 
     public void interpret(List<Stmt> statements) {
+        new Optimizer().optimize(statements);
+        new Resolver().resolve(statements);
         try {
-            for (Stmt statement : statements) {
-                execute(statement);
-            }
+            execute(statements);
         } catch (RuntimeError error) {
-            error.printStackTrace();
+            error.printStackTrace(err);
+        } finally {
+            if (profiler != null) {
+                profiler.commit();
+                profiler.report(err);
+            }
+        }
+    }
+
+    // runs an optimized and resolved program, runtime errors are thrown
+    void execute(List<Stmt> statements) {
+        startBudget();
+        for (Stmt statement : statements) {
+            if (execute(statement) != null) break;
+        }
+    }
+
+    private void startBudget() {
+        depth = 0;
+        if (budget == null) return;
+        steps = 0;
+        long timeout = budget.timeoutNanos();
+        deadline = timeout == Long.MAX_VALUE ? 0 : System.nanoTime() + timeout;
+        charge();
+        checkCancelled();
+    }
+
+    /**
+     * Counts a loop iteration or a call against the budget. Called at every back edge and
+     * tail call, also by compiled code, so the common case has to stay this small.
+     */
+    public void step() {
+        if (--countdown == 0) checkBudget();
+    }
+
+    // counts a call of function and its depth, LoxFunction pairs it with exit
+    public void enter(Token function) {
+        if (++depth > maxDepth) {
+            throw new BudgetExceeded(function, "Calls nested deeper than " + maxDepth + ".");
         }
+        if (--countdown == 0) checkBudget();
+    }
+
+    public void exit() {
+        depth--;
     }
 
-    public void executeBlock(List<Stmt> statements,
-                             Environment environment) {
+    private void checkBudget() {
+        if (budget == null) {
+            countdown = Integer.MAX_VALUE;
+            return;
+        }
+        steps += charged;
+        checkCancelled();
+        if (steps > budget.maxSteps()) {
+            throw new BudgetExceeded(null, "Exceeded the budget of " + budget.maxSteps() + " steps.");
+        }
+        if (deadline != 0 && System.nanoTime() - deadline > 0) {
+            throw new BudgetExceeded(null, "Exceeded the time limit of "
+                    + budget.timeoutNanos() / 1_000_000 + " ms.");
+        }
+        charge();
+    }
+
+    // the countdown reaches 0 at the latest on the first step over the budget
+    private void charge() {
+        charged = (int) Math.min(Budget.CHECK_INTERVAL, budget.maxSteps() - steps) + 1;
+        countdown = charged;
+    }
+
+    private void checkCancelled() {
+        if (budget.cancelled()) throw new BudgetExceeded(null, "Cancelled.");
+    }
+
+    public LoxReturn executeBlock(List<Stmt> statements,
+                                  Environment environment) {
         Environment previous = this.environment;
         try {
             this.environment = environment;
 
             for (Stmt statement : statements) {
-                execute(statement);
+                LoxReturn returnValue = execute(statement);
+                if (returnValue != null) return returnValue;
             }
-        } catch (LoxReturn lr) {
-        	throw lr;
+            return null;
         } finally {
             this.environment = previous;
         }
@@ -76,15 +227,19 @@ public class Interpreter implements ExprVisitor<Object>,
         return expr.accept(this);
     }
 
-    public void execute(Stmt stmt) {
-        stmt.accept(this);
+    public LoxReturn execute(Stmt stmt) {
+        return stmt.accept(this);
     }
 
 
     @Override
     public Object visitAssignExpr(Assign expr) {
     	Object result = this.evaluate(expr.value);
-        this.environment.assign(expr.name, result);
+    	if (expr.depth < 0) {
+    		this.globals.assign(expr.name, result);
+    	} else {
+    		this.environment.assignAt(expr.depth, expr.slot, result);
+    	}
         return result;
     }
 
@@ -92,32 +247,29 @@ public class Interpreter implements ExprVisitor<Object>,
     public Object visitBinaryExpr(Binary expr) {
     	Object left = this.evaluate(expr.left);
     	Object right = this.evaluate(expr.right);
-    	if (left instanceof Literal) {
-    		left = ((Literal) left).value;
-    	}
-    	if (right instanceof Literal) {
-    		right = ((Literal) right).value;
-    	}
-    	switch (expr.operator.type) {
+    	Token operator = expr.operator;
+    	switch (operator.type) {
     	case GREATER:
-    		return (double) left > (double) right;
+    		return Operands.number(operator, left) > Operands.number(operator, right);
     	case GREATER_EQUAL:
-    		return (double) left >= (double) right;
+    		return Operands.number(operator, left) >= Operands.number(operator, right);
     	case LESS:
-    		return (double) left < (double) right;
+    		return Operands.number(operator, left) < Operands.number(operator, right);
     	case LESS_EQUAL:
-    		return (double) left <= (double) right;
+    		return Operands.number(operator, left) <= Operands.number(operator, right);
     	case PLUS:
-    		return (double) left + (double) right;
+    		return Operands.number(operator, left) + Operands.number(operator, right);
     	case MINUS:
-    		return (double) left - (double) right;
+    		return Operands.number(operator, left) - Operands.number(operator, right);
     	case STAR:
-    		return (double) left * (double) right;
-    	case SLASH:
-    		if ((double) right == 0) {
-    			throw new RuntimeError(expr.operator, "Cannot divide by zero.");
+    		return Operands.number(operator, left) * Operands.number(operator, right);
+    	case SLASH: {
+    		double divisor = Operands.number(operator, right);
+    		if (divisor == 0) {
+    			throw new RuntimeError(operator, "Cannot divide by zero.");
     		}
-    		return (double) left / (double) right;
+    		return Operands.number(operator, left) / divisor;
+    	}
     	default:
     		break;
     	}
@@ -126,15 +278,82 @@ public class Interpreter implements ExprVisitor<Object>,
 
     @Override
     public Object visitCallExpr(Call expr) {
-    	if (this.environment.get(((Variable) expr.callee).name) instanceof LoxFunction) {
-    		LoxFunction fun = (LoxFunction) this.environment.get(((Variable) expr.callee).name);
-        	return fun.call(this, expr.arguments.stream().map(Object.class::cast).collect(Collectors.toList()));
+    	Object callee = this.callee(expr);
+    	List<Expr> arguments = expr.arguments;
+    	switch (arguments.size()) {
+    		case 0:
+    			return this.function(expr, callee, 0).call0(this);
+    		case 1: {
+    			Object a = this.evaluate(arguments.get(0));
+    			return this.function(expr, callee, 1).call1(this, a);
+    		}
+    		case 2: {
+    			Object a = this.evaluate(arguments.get(0));
+    			Object b = this.evaluate(arguments.get(1));
+    			return this.function(expr, callee, 2).call2(this, a, b);
+    		}
+    		case 3: {
+    			Object a = this.evaluate(arguments.get(0));
+    			Object b = this.evaluate(arguments.get(1));
+    			Object c = this.evaluate(arguments.get(2));
+    			return this.function(expr, callee, 3).call3(this, a, b, c);
+    		}
+    		case 4: {
+    			Object a = this.evaluate(arguments.get(0));
+    			Object b = this.evaluate(arguments.get(1));
+    			Object c = this.evaluate(arguments.get(2));
+    			Object d = this.evaluate(arguments.get(3));
+    			return this.function(expr, callee, 4).call4(this, a, b, c, d);
+    		}
+    		default: {
+    			Object[] values = this.evaluateArguments(expr);
+    			return this.function(expr, callee, values.length).call(this, values);
+    		}
     	}
-    	if (this.environment.get(((Variable) expr.callee).name) instanceof Interpreter) {
-    		Interpreter intpt = (Interpreter) this.environment.get(((Variable) expr.callee).name);
-    		return ((LoxCallable)intpt.globals.get(((Variable) expr.callee).name)).call(intpt, null);
+    }
+
+    // evaluates the callee of a call, a global function the call site has seen before is
+    // taken from the inline cache as long as its binding was not assigned since
+    private Object callee(Call expr) {
+    	InlineCache cache = shared ? null : expr.cache();
+    	if (cache != null && cache.binding != null
+    			&& cache.globals == this.globals && cache.binding.version() == cache.version) {
+    		return cache.function;
     	}
-    	return null;
+    	if (expr.callee instanceof Variable && ((Variable) expr.callee).depth < 0) {
+    		Binding binding = this.globals.binding(((Variable) expr.callee).name);
+    		Object callee = binding.value();
+    		if (!shared && callee instanceof LoxCallable && ((LoxCallable) callee).arity() == expr.arguments.size()) {
+    			expr.cache(new InlineCache(this.globals, binding, (LoxCallable) callee));
+    		}
+    		return callee;
+    	}
+    	return this.evaluate(expr.callee);
+    }
+
+    // checks that the callee can take the arguments, skipped for the function the call site saw last
+    private LoxCallable function(Call expr, Object callee, int count) {
+    	InlineCache cache = shared ? null : expr.cache();
+    	if (cache != null && callee == cache.function) {
+    		return cache.function;
+    	}
+    	if (!(callee instanceof LoxCallable)) {
+    		throw new RuntimeError(expr.paren, "Can only call functions.");
+    	}
+    	LoxCallable function = (LoxCallable) callee;
+    	if (count != function.arity()) {
+    		throw new RuntimeError(expr.paren, "Expected " + function.arity() + " arguments but got " + count + ".");
+    	}
+    	if (!shared) expr.cache(new InlineCache(this.globals, null, function));
+    	return function;
+    }
+
+    private Object[] evaluateArguments(Call expr) {
+    	Object[] values = new Object[expr.arguments.size()];
+    	for (int i = 0; i < values.length; i++) {
+    		values[i] = this.evaluate(expr.arguments.get(i));
+    	}
+    	return values;
     }
 
     @Override
@@ -150,12 +369,15 @@ public class Interpreter implements ExprVisitor<Object>,
     @Override
     public Object visitLogicalExpr(Logical expr) {
     	Object left = this.evaluate(expr.left);
-    	Object right = this.evaluate(expr.right);
     	switch (expr.operator.type) {
     	case AND:
-    		return (boolean) left && (boolean) right;
+    		return Operands.bool(expr.operator, left) && Operands.bool(expr.operator, this.evaluate(expr.right));
     	case OR:
-    		return (boolean) left || (boolean) right;
+    		return Operands.bool(expr.operator, left) || Operands.bool(expr.operator, this.evaluate(expr.right));
+    	case EQUAL_EQUAL:
+    		return Objects.equals(left, this.evaluate(expr.right));
+    	case BANG_EQUAL:
+    		return !Objects.equals(left, this.evaluate(expr.right));
     	default:
     		break;
     	}
@@ -167,9 +389,9 @@ public class Interpreter implements ExprVisitor<Object>,
     	Object right = this.evaluate(expr.right);
     	switch (expr.operator.type) {
     	case MINUS:
-    		return -(double) right;
+    		return -Operands.number(expr.operator, right);
     	case BANG:
-    		return !(boolean) right;
+    		return !Operands.bool(expr.operator, right);
     	default:
     		break;
     	}
@@ -178,64 +400,93 @@ public class Interpreter implements ExprVisitor<Object>,
 
     @Override
     public Object visitVariableExpr(Variable expr) {
-        return this.environment.get(expr.name);
+    	if (expr.depth < 0) {
+    		return this.globals.get(expr.name);
+    	}
+        return this.environment.getAt(expr.depth, expr.slot);
     }
 
     @Override
-    public Void visitBlockStmt(Block stmt) {
+    public LoxReturn visitBlockStmt(Block stmt) {
+    	if (stmt.slots > 0) {
+    		return this.executeBlock(stmt.statements, new Environment(this.environment, stmt.slots));
+    	}
     	for (Stmt statement: stmt.statements) {
-    		statement.accept(this);
+    		LoxReturn returnValue = statement.accept(this);
+    		if (returnValue != null) return returnValue;
     	}
         return null;
     }
 
     @Override
-    public Void visitExpressionStmt(Expression stmt) {
+    public LoxReturn visitExpressionStmt(Expression stmt) {
     	this.evaluate(stmt.expression);
         return null;
     }
 
     @Override
-    public Void visitFunctionStmt(Function stmt) {
-    	this.environment.define(stmt.name.lexeme, new LoxFunction(stmt, environment));
+    public LoxReturn visitFunctionStmt(Function stmt) {
+    	LoxFunction function = new LoxFunction(stmt, environment);
+    	if (stmt.slot < 0) {
+    		this.globals.define(stmt.name, function);
+    	} else {
+    		this.environment.define(stmt.slot, function);
+    	}
         return null;
     }
 
     @Override
-    public Void visitIfStmt(If stmt) {
+    public LoxReturn visitIfStmt(If stmt) {
     	Object condition = this.evaluate(stmt.condition);
-    	if ((boolean) condition) {
-    		stmt.thenBranch.accept(this);
+    	if (Operands.condition(condition)) {
+    		return stmt.thenBranch.accept(this);
     	} else {
     		if (stmt.elseBranch != null) {
-    			stmt.elseBranch.accept(this);
+    			return stmt.elseBranch.accept(this);
     		}
     	}
         return null;
     }
 
     @Override
-    public Void visitPrintStmt(Print stmt) {
-    	System.out.println(this.evaluate(stmt.expression));
+    public LoxReturn visitPrintStmt(Print stmt) {
+    	out.println(this.evaluate(stmt.expression));
         return null;
     }
 
     @Override
-    public Void visitReturnStmt(Return stmt) {
-    	throw new LoxReturn(this.evaluate(stmt.value));
+    public LoxReturn visitReturnStmt(Return stmt) {
+    	if (stmt.tailCall) {
+    		Call call = (Call) stmt.value;
+    		Object callee = this.callee(call);
+    		Object[] arguments = this.evaluateArguments(call);
+    		LoxCallable function = this.function(call, callee, arguments.length);
+    		if (function instanceof LoxFunction) {
+    			return this.returned.tailCall((LoxFunction) function, ((LoxFunction) function).frame(arguments));
+    		}
+    		return this.returned.value(function.call(this, arguments));
+    	}
+    	return this.returned.value(stmt.value != null ? this.evaluate(stmt.value) : null);
     }
 
     @Override
-    public Void visitVarStmt(Var stmt) {
-    	this.environment.define(stmt.name.lexeme, this.evaluate(stmt.initializer));
+    public LoxReturn visitVarStmt(Var stmt) {
+    	Object value = stmt.initializer != null ? this.evaluate(stmt.initializer) : null;
+    	if (stmt.slot < 0) {
+    		this.globals.define(stmt.name, value);
+    	} else {
+    		this.environment.define(stmt.slot, value);
+    	}
 		return null;
     }
 
     @Override
-    public Void visitWhileStmt(While stmt) {
+    public LoxReturn visitWhileStmt(While stmt) {
     	Object condition = this.evaluate(stmt.condition);
-    	while((boolean) condition) {
-    		stmt.body.accept(this);
+    	while(Operands.condition(condition)) {
+    		LoxReturn returnValue = stmt.body.accept(this);
+    		if (returnValue != null) return returnValue;
+    		step();
     		condition = this.evaluate(stmt.condition);
     	}
         return null;
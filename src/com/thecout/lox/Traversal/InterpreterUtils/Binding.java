@@ -0,0 +1,33 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+/**
+ * Cell holding a global variable. The version changes whenever the variable is defined or
+ * assigned again, so an inline cache that kept the cell can tell whether the value it saw
+ * is still the current one without looking the name up.
+ */
+public class Binding {
+    private Object value;
+    private int version;
+
+    Binding(Object value) {
+        this.value = value;
+    }
+
+    public Object value() {
+        return value;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    void set(Object value) {
+        this.value = value;
+        version++;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
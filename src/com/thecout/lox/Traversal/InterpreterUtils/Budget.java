@@ -0,0 +1,70 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import java.time.Duration;
+
+/**
+ * Limits for the runs of an {@link com.thecout.lox.Traversal.Interpreter}: how many steps
+ * a run may take, where a step is a loop iteration or a Lox function call, how long it may
+ * take, how deep Lox calls may nest, and a flag another thread sets with {@link #cancel}.
+ * The interpreter counts steps down in a field and only looks at the clock and the flag
+ * every {@link #CHECK_INTERVAL} steps, so a step costs a decrement and a compare. A run
+ * that exceeds its budget stops with a {@link BudgetExceeded}. Cancelling is not limited to
+ * one run: a cancelled budget stops every run that uses it until {@link #resume} is called,
+ * so a cancel that comes just before a run starts is not lost.
+ */
+public final class Budget {
+    public static final int CHECK_INTERVAL = 4096;
+
+    private long maxSteps = Long.MAX_VALUE;
+    private long timeoutNanos = Long.MAX_VALUE;
+    private int maxDepth = Integer.MAX_VALUE;
+    private volatile boolean cancelled;
+
+    public Budget maxSteps(long steps) {
+        if (steps <= 0) throw new IllegalArgumentException("maxSteps must be positive: " + steps);
+        this.maxSteps = steps;
+        return this;
+    }
+
+    // counted from the start of every run
+    public Budget timeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        this.timeoutNanos = timeout.toNanos();
+        return this;
+    }
+
+    public Budget maxDepth(int depth) {
+        if (depth <= 0) throw new IllegalArgumentException("maxDepth must be positive: " + depth);
+        this.maxDepth = depth;
+        return this;
+    }
+
+    public long maxSteps() {
+        return maxSteps;
+    }
+
+    // Long.MAX_VALUE without a timeout
+    public long timeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    // may be called from any thread, the run stops within CHECK_INTERVAL steps
+    public void cancel() {
+        cancelled = true;
+    }
+
+    // lets runs that start afterwards use the budget again after a cancel
+    public void resume() {
+        cancelled = false;
+    }
+
+    public boolean cancelled() {
+        return cancelled;
+    }
+}
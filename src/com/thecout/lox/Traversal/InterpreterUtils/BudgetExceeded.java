@@ -0,0 +1,12 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import com.thecout.lox.Token;
+
+// a run ran out of its Budget, the token is the called function for calls that nest too deep and null otherwise
+public class BudgetExceeded extends RuntimeError {
+    private static final long serialVersionUID = 1L;
+
+    public BudgetExceeded(Token token, String message) {
+        super(token, message);
+    }
+}
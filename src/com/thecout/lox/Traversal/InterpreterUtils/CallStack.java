@@ -0,0 +1,45 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import com.thecout.lox.Parser.Stmts.Function;
+
+import java.util.Arrays;
+
+/**
+ * The Lox functions an interpreter is running right now, innermost last. The interpreter
+ * thread pushes and pops without synchronization and a {@link SamplingProfiler} reads
+ * the stack from its own thread, so a sample can miss a call that just started or ended,
+ * which a sampling profile does not mind.
+ */
+public class CallStack {
+    private Function[] frames = new Function[64];
+    private int depth;
+
+    public void push(Function declaration) {
+        if (depth == frames.length) frames = Arrays.copyOf(frames, depth * 2);
+        frames[depth++] = declaration;
+    }
+
+    public void pop() {
+        frames[--depth] = null;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * The stack as one line of collapsed-stack output without the count, outermost
+     * frame first: {@code <script>;main:3;fib:1}.
+     */
+    public String collapsed() {
+        Function[] frames = this.frames;
+        int depth = Math.min(this.depth, frames.length);
+        StringBuilder line = new StringBuilder("<script>");
+        for (int i = 0; i < depth; i++) {
+            Function frame = frames[i];
+            if (frame == null) continue;
+            line.append(';').append(frame.name.lexeme).append(':').append(frame.name.line + 1);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import com.thecout.lox.Traversal.Interpreter;
+
+import java.util.List;
+
+// the native clock() of both engines, seconds since the epoch
+public class Clock implements LoxCallable {
+    @Override
+    public int arity() {
+        return 0;
+    }
+
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return call0(interpreter);
+    }
+
+    @Override
+    public Object call0(Interpreter interpreter) {
+        return (double) System.currentTimeMillis() / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "<native fn>";
+    }
+}
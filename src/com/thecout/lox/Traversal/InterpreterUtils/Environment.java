@@ -2,28 +2,55 @@ package com.thecout.lox.Traversal.InterpreterUtils;
 
 import com.thecout.lox.Token;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Environment {
+    private static final Object[] NO_SLOTS = new Object[0];
+
     final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    // globals are looked up by name in a map of their own, every other scope by the slot the Resolver assigned
+    private final Map<String, Binding> values;
+    private final Object[] slots;
 
     public Environment() {
         enclosing = null;
+        values = new HashMap<>();
+        slots = NO_SLOTS;
     }
 
-    public Environment(Environment enclosing) {
+    public Environment(Environment enclosing, int size) {
         this.enclosing = enclosing;
+        values = null;
+        slots = new Object[size];
     }
 
     public void define(String name, Object value) {
-        values.put(name, value);
+        Binding binding = values.get(name);
+        if (binding == null) {
+            values.put(name, new Binding(value));
+        } else {
+            binding.set(value);
+        }
+    }
+
+    public void define(Token name, Object value) {
+        define(name.lexeme, value);
+    }
+
+    public void define(int slot, Object value) {
+        slots[slot] = value;
+    }
+
+    private Binding lookup(String name) {
+        return values != null ? values.get(name) : null;
     }
 
     public void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
+        Binding binding = lookup(name.lexeme);
+        if (binding != null) {
+            binding.set(value);
             return;
         }
         if (enclosing != null) {
@@ -34,19 +61,49 @@ public class Environment {
                 "Undefined variable '" + name.lexeme + "'.");
     }
 
+    public void assignAt(int depth, int slot, Object value) {
+        ancestor(depth).slots[slot] = value;
+    }
+
     public Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
-        }
-        if (enclosing != null) return enclosing.get(name);
+        return binding(name).value();
+    }
+
+    // the value of a global, null if it is not defined
+    public Object get(String name) {
+        Binding binding = lookup(name);
+        return binding != null ? binding.value() : null;
+    }
+
+    public Binding binding(Token name) {
+        Binding binding = lookup(name.lexeme);
+        if (binding != null) return binding;
+        if (enclosing != null) return enclosing.binding(name);
 
         throw new RuntimeError(name,
                 "Undefined variable '" + name.lexeme + "'.");
     }
 
+    public Object getAt(int depth, int slot) {
+        return ancestor(depth).slots[slot];
+    }
+
+    private Environment ancestor(int depth) {
+        Environment environment = this;
+        for (int i = 0; i < depth; i++) {
+            environment = environment.enclosing;
+        }
+        return environment;
+    }
+
     @Override
     public String toString() {
-        String result = values.toString();
+        String result;
+        if (values != null) {
+            result = values.toString();
+        } else {
+            result = Arrays.toString(slots);
+        }
         if (enclosing != null) {
             result += " -> " + enclosing;
         }
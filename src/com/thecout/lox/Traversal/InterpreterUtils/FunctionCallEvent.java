@@ -0,0 +1,29 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// one call of a Lox function while profiling, only calls above the threshold are recorded by default
+@Name("com.thecout.lox.FunctionCall")
+@Label("Lox Function Call")
+@Category("Lox")
+@Description("A call of a Lox function, including its callees")
+@Threshold("1 ms")
+@StackTrace(false)
+class FunctionCallEvent extends Event {
+    @Label("Function")
+    final String function;
+
+    @Label("Line")
+    final int line;
+
+    FunctionCallEvent(String function, int line) {
+        this.function = function;
+        this.line = line;
+    }
+}
@@ -0,0 +1,39 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// the totals of one Lox function, committed by Profiler.commit when a program ends
+@Name("com.thecout.lox.FunctionProfile")
+@Label("Lox Function Profile")
+@Category("Lox")
+@Description("Calls, time and allocation of a Lox function over a whole program")
+@StackTrace(false)
+class FunctionProfileEvent extends Event {
+    @Label("Function")
+    String function;
+
+    @Label("Line")
+    int line;
+
+    @Label("Calls")
+    long calls;
+
+    @Label("Inclusive Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long inclusiveTime;
+
+    @Label("Exclusive Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long exclusiveTime;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+}
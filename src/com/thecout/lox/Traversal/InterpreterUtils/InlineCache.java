@@ -0,0 +1,20 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+/**
+ * Monomorphic inline cache of a call site, what the Interpreter keeps on a Call node.
+ * It is replaced as a whole, so it is never seen half written.
+ */
+public final class InlineCache {
+    // the global the callee was read from, null if the callee is another expression
+    public final Environment globals;
+    public final Binding binding;
+    public final int version;
+    public final LoxCallable function;
+
+    public InlineCache(Environment globals, Binding binding, LoxCallable function) {
+        this.globals = globals;
+        this.binding = binding;
+        this.version = binding != null ? binding.version() : 0;
+        this.function = function;
+    }
+}
@@ -3,10 +3,41 @@ package com.thecout.lox.Traversal.InterpreterUtils;
 
 import com.thecout.lox.Traversal.Interpreter;
 
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Something Lox code can call. Callers have checked the arity already and use the entry
+ * point matching the number of arguments: call0 to call4 pass them directly, more go
+ * through the array form. Implementations only have to provide the list form, the other
+ * entry points fall back to it and can be overridden to avoid the list.
+ */
 public interface LoxCallable {
     int arity();
 
     Object call(Interpreter interpreter, List<Object> arguments);
-}
\ No newline at end of file
+
+    default Object call(Interpreter interpreter, Object[] arguments) {
+        return call(interpreter, Arrays.asList(arguments));
+    }
+
+    default Object call0(Interpreter interpreter) {
+        return call(interpreter, List.of());
+    }
+
+    default Object call1(Interpreter interpreter, Object a) {
+        return call(interpreter, new Object[]{a});
+    }
+
+    default Object call2(Interpreter interpreter, Object a, Object b) {
+        return call(interpreter, new Object[]{a, b});
+    }
+
+    default Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        return call(interpreter, new Object[]{a, b, c});
+    }
+
+    default Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        return call(interpreter, new Object[]{a, b, c, d});
+    }
+}
@@ -1,6 +1,9 @@
 package com.thecout.lox.Traversal.InterpreterUtils;
 
 
+import com.thecout.lox.Jit.CodeCache;
+import com.thecout.lox.Jit.CompiledFunction;
+import com.thecout.lox.Jit.FunctionCompiler;
 import com.thecout.lox.Parser.Stmts.Function;
 import com.thecout.lox.Traversal.Interpreter;
 
@@ -9,12 +12,51 @@ import java.util.List;
 public class LoxFunction implements LoxCallable {
     private final Function declaration;
     private final Environment closure;
+    // calls so far until the function is compiled, -1 once it is not going to be
+    private int calls;
+    private int deoptimizations;
+    private CompiledFunction compiled;
 
     public LoxFunction(Function declaration, Environment closure) {
         this.closure = closure;
         this.declaration = declaration;
     }
 
+    public Function declaration() {
+        return declaration;
+    }
+
+    public Environment closure() {
+        return closure;
+    }
+
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    // the compiled code once the function got hot, never while the interpreter is profiled;
+    // a function of a shared tree takes the code another interpreter compiled from its first call
+    private CompiledFunction compiled(Interpreter interpreter) {
+        if (interpreter.instrumented()) return null;
+        if (compiled == null && calls >= 0) {
+            CodeCache codeCache = interpreter.codeCache();
+            if (codeCache != null && calls == 0) compiled = codeCache.lookup(this);
+            if (compiled == null && ++calls == FunctionCompiler.THRESHOLD) {
+                compiled = codeCache == null ? FunctionCompiler.compile(this) : codeCache.compile(this);
+                if (compiled == null) calls = -1;
+            }
+        }
+        return compiled;
+    }
+
+    // the compiled code bailed out before running, after too many of those it is dropped
+    private void deoptimized() {
+        if (++deoptimizations == 100) {
+            compiled = null;
+            calls = -1;
+        }
+    }
+
     @Override
     public int arity() {
         return declaration.parameters.size();
@@ -25,20 +67,119 @@ public class LoxFunction implements LoxCallable {
         return "<fn " + declaration.name.lexeme + ">";
     }
 
+    // the arguments go straight into the slots of the new frame, which is the only allocation of a call
+    public Environment frame(Object[] arguments) {
+        Environment environment = new Environment(closure, declaration.slots);
+        for (int i = 0; i < arguments.length; i++) {
+            environment.define(i, arguments[i]);
+        }
+        return environment;
+    }
+
     @Override
     public Object call(Interpreter interpreter,
                        List<Object> arguments) {
-        Environment environment = new Environment(closure);
-        for (int i = 0; i < declaration.parameters.size(); i++) {
-            environment.define(declaration.parameters.get(i).lexeme,
-                    arguments.get(i));
-        }
+        return call(interpreter, arguments.toArray());
+    }
 
+    @Override
+    public Object call(Interpreter interpreter, Object[] arguments) {
+        return invoke(interpreter, frame(arguments));
+    }
+
+    @Override
+    public Object call0(Interpreter interpreter) {
+        return invoke(interpreter, new Environment(closure, declaration.slots));
+    }
+
+    @Override
+    public Object call1(Interpreter interpreter, Object a) {
+        Environment environment = new Environment(closure, declaration.slots);
+        environment.define(0, a);
+        return invoke(interpreter, environment);
+    }
+
+    @Override
+    public Object call2(Interpreter interpreter, Object a, Object b) {
+        Environment environment = new Environment(closure, declaration.slots);
+        environment.define(0, a);
+        environment.define(1, b);
+        return invoke(interpreter, environment);
+    }
+
+    @Override
+    public Object call3(Interpreter interpreter, Object a, Object b, Object c) {
+        Environment environment = new Environment(closure, declaration.slots);
+        environment.define(0, a);
+        environment.define(1, b);
+        environment.define(2, c);
+        return invoke(interpreter, environment);
+    }
+
+    @Override
+    public Object call4(Interpreter interpreter, Object a, Object b, Object c, Object d) {
+        Environment environment = new Environment(closure, declaration.slots);
+        environment.define(0, a);
+        environment.define(1, b);
+        environment.define(2, c);
+        environment.define(3, d);
+        return invoke(interpreter, environment);
+    }
+
+    // every call ends up here with its arguments bound in the frame; the compiled code takes
+    // them from there, and if it bails out the frame is still untouched for the interpreter
+    private Object invoke(Interpreter interpreter, Environment frame) {
         try {
-            interpreter.executeBlock(declaration.body, environment);
-        } catch (LoxReturn returnValue) {
-            return returnValue.value;
+            // inside the try, so a call that is over the budget still undoes its depth
+            interpreter.enter(declaration.name);
+            CompiledFunction compiled = compiled(interpreter);
+            if (compiled != null) {
+                Object result = compiled.call(interpreter, frame);
+                if (result != CompiledFunction.DEOPT) return result;
+                deoptimized();
+            }
+            return run(interpreter, frame);
+        } finally {
+            interpreter.exit();
+        }
+    }
+
+    // tail calls come back here as a LoxReturn with the callee's frame already bound and
+    // run in this loop, so a chain of tail calls needs no more Java stack than the first call,
+    // and counts as one call deep but a step per call against the budget
+    private Object run(Interpreter interpreter, Environment environment) {
+        if (interpreter.instrumented()) return instrumented(interpreter, environment);
+        LoxFunction function = this;
+        while (true) {
+            LoxReturn returnValue = interpreter.executeBlock(function.declaration.body, environment);
+            if (returnValue == null) return null;
+            if (returnValue.tailCall == null) return returnValue.value;
+            interpreter.step();
+            function = returnValue.tailCall;
+            environment = returnValue.frame;
+        }
+    }
+
+    // the loop of run with every function of a tail call chain counted as its own call
+    private Object instrumented(Interpreter interpreter, Environment environment) {
+        Profiler profiler = interpreter.profiler();
+        CallStack callStack = interpreter.callStack();
+        LoxFunction function = this;
+        while (true) {
+            LoxReturn returnValue;
+            if (profiler != null) profiler.enter(function.declaration);
+            if (callStack != null) callStack.push(function.declaration);
+            try {
+                returnValue = interpreter.executeBlock(function.declaration.body, environment);
+            } finally {
+                if (callStack != null) callStack.pop();
+                if (profiler != null) profiler.exit();
+            }
+            if (returnValue == null) return null;
+            if (returnValue.tailCall == null) return returnValue.value;
+            interpreter.step();
+            function = returnValue.tailCall;
+            environment = returnValue.frame;
         }
-        return null;
     }
-}
\ No newline at end of file
+}
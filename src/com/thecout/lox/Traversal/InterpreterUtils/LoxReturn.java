@@ -1,10 +1,28 @@
 package com.thecout.lox.Traversal.InterpreterUtils;
 
-public class LoxReturn extends RuntimeException {
-    final Object value;
+/**
+ * Completion of a statement that executed a return. Statements that complete normally
+ * give null, so a return travels back up through the statement visitors as a plain value
+ * until LoxFunction.call picks it up. Every interpreter reuses one instance, nothing runs
+ * between the return statement filling it in and the returning function reading it.
+ */
+public class LoxReturn {
+    Object value;
+    // a tail call still to be made by the returning function's caller, see LoxFunction.call
+    LoxFunction tailCall;
+    Environment frame;
 
-    public LoxReturn(Object value) {
-        super(null, null, false, false);
+    public LoxReturn value(Object value) {
         this.value = value;
+        this.tailCall = null;
+        this.frame = null;
+        return this;
+    }
+
+    public LoxReturn tailCall(LoxFunction tailCall, Environment frame) {
+        this.value = null;
+        this.tailCall = tailCall;
+        this.frame = frame;
+        return this;
     }
 }
@@ -0,0 +1,28 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import com.thecout.lox.Token;
+
+/**
+ * The type checks of operands, shared by every engine so they fail alike: a value of the
+ * wrong type is a {@link RuntimeError} at the operator. Conditions of if and while have
+ * no token of their own, their errors come without a line.
+ */
+public final class Operands {
+    private Operands() {
+    }
+
+    public static double number(Token operator, Object value) {
+        if (value instanceof Double) return (Double) value;
+        throw new RuntimeError(operator, "Operand must be a number.");
+    }
+
+    public static boolean bool(Token operator, Object value) {
+        if (value instanceof Boolean) return (Boolean) value;
+        throw new RuntimeError(operator, "Operand must be a boolean.");
+    }
+
+    public static boolean condition(Object value) {
+        if (value instanceof Boolean) return (Boolean) value;
+        throw new RuntimeError(null, "Condition must be a boolean.");
+    }
+}
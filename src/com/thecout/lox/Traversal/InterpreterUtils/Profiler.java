@@ -0,0 +1,149 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import com.thecout.lox.Parser.Stmts.Function;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in profile of the Lox functions an {@link com.thecout.lox.Traversal.Interpreter}
+ * calls: call counts, inclusive and exclusive wall time and the bytes allocated while a
+ * function ran, per declared {@link Function}. Every call is also reported to Java Flight
+ * Recorder as a {@link FunctionCallEvent}, and {@link #commit()} sends one
+ * {@link FunctionProfileEvent} per function. Exclusive numbers leave out the callees,
+ * inclusive time counts recursive activations of a function only once.
+ */
+public class Profiler {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static class Entry {
+        public final String name;
+        public final int line;
+        long calls;
+        long inclusiveNanos;
+        long exclusiveNanos;
+        long allocatedBytes;
+        // activations of this function currently on the stack
+        int active;
+
+        Entry(Function declaration) {
+            this.name = declaration.name.lexeme;
+            this.line = declaration.name.line + 1;
+        }
+
+        public long calls() {
+            return calls;
+        }
+
+        public long inclusiveNanos() {
+            return inclusiveNanos;
+        }
+
+        public long exclusiveNanos() {
+            return exclusiveNanos;
+        }
+
+        public long allocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    private final Map<Function, Entry> entries = new LinkedHashMap<>();
+    // the functions being called right now, with what their callees used so far
+    private Entry[] stack = new Entry[64];
+    private FunctionCallEvent[] events = new FunctionCallEvent[64];
+    private long[] starts = new long[64];
+    private long[] allocations = new long[64];
+    private long[] childNanos = new long[64];
+    private long[] childBytes = new long[64];
+    private int depth;
+
+    public void enter(Function declaration) {
+        Entry entry = entries.computeIfAbsent(declaration, Entry::new);
+        if (depth == stack.length) grow();
+        entry.calls++;
+        entry.active++;
+        FunctionCallEvent event = new FunctionCallEvent(entry.name, entry.line);
+        event.begin();
+        stack[depth] = entry;
+        events[depth] = event;
+        childNanos[depth] = 0;
+        childBytes[depth] = 0;
+        allocations[depth] = THREADS.getCurrentThreadAllocatedBytes();
+        starts[depth] = System.nanoTime();
+        depth++;
+    }
+
+    public void exit() {
+        long nanos = System.nanoTime() - starts[--depth];
+        long bytes = THREADS.getCurrentThreadAllocatedBytes() - allocations[depth];
+        Entry entry = stack[depth];
+        FunctionCallEvent event = events[depth];
+        stack[depth] = null;
+        events[depth] = null;
+        if (--entry.active == 0) entry.inclusiveNanos += nanos;
+        entry.exclusiveNanos += nanos - childNanos[depth];
+        entry.allocatedBytes += bytes - childBytes[depth];
+        if (depth > 0) {
+            childNanos[depth - 1] += nanos;
+            childBytes[depth - 1] += bytes;
+        }
+        event.end();
+        if (event.shouldCommit()) event.commit();
+    }
+
+    private void grow() {
+        int capacity = stack.length * 2;
+        stack = Arrays.copyOf(stack, capacity);
+        events = Arrays.copyOf(events, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        allocations = Arrays.copyOf(allocations, capacity);
+        childNanos = Arrays.copyOf(childNanos, capacity);
+        childBytes = Arrays.copyOf(childBytes, capacity);
+    }
+
+    /**
+     * The profiled functions, the most expensive first by exclusive time.
+     */
+    public List<Entry> entries() {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong(Entry::exclusiveNanos).reversed());
+        return sorted;
+    }
+
+    public Entry entry(String name) {
+        for (Entry entry : entries.values()) {
+            if (entry.name.equals(name)) return entry;
+        }
+        return null;
+    }
+
+    public void commit() {
+        for (Entry entry : entries.values()) {
+            FunctionProfileEvent event = new FunctionProfileEvent();
+            event.function = entry.name;
+            event.line = entry.line;
+            event.calls = entry.calls;
+            event.inclusiveTime = entry.inclusiveNanos;
+            event.exclusiveTime = entry.exclusiveNanos;
+            event.allocated = entry.allocatedBytes;
+            event.commit();
+        }
+    }
+
+    public void report(PrintStream out) {
+        out.printf("%-24s %6s %10s %14s %14s %14s%n",
+                "function", "line", "calls", "inclusive ms", "exclusive ms", "allocated KB");
+        for (Entry entry : entries()) {
+            out.printf("%-24s %6d %10d %14.3f %14.3f %14d%n", entry.name, entry.line, entry.calls,
+                    entry.inclusiveNanos / 1e6, entry.exclusiveNanos / 1e6, entry.allocatedBytes / 1024);
+        }
+    }
+}
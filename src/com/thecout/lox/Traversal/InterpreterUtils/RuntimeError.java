@@ -9,4 +9,8 @@ public class RuntimeError extends RuntimeException {
         super(message);
         this.token = token;
     }
+
+    public Token token() {
+        return token;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.thecout.lox.Traversal.InterpreterUtils;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Samples the {@link CallStack} of an interpreter from a daemon thread at a fixed rate
+ * and counts how often every stack was seen. {@link #write} prints the counts in the
+ * collapsed-stack format of Brendan Gregg's flamegraph.pl, one {@code a;b;c count} line
+ * per stack, so the flame graph shows Lox functions instead of interpreter frames.
+ */
+public class SamplingProfiler {
+    private final CallStack stack = new CallStack();
+    private final long intervalNanos;
+    private final Map<String, Long> samples = new HashMap<>();
+    private Thread sampler;
+    private volatile boolean running;
+
+    public SamplingProfiler(int samplesPerSecond) {
+        if (samplesPerSecond <= 0) throw new IllegalArgumentException("Sample rate must be positive.");
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / samplesPerSecond;
+    }
+
+    // the stack to hand to the Interpreter that should be sampled
+    public CallStack stack() {
+        return stack;
+    }
+
+    public synchronized void start() {
+        if (sampler != null) return;
+        running = true;
+        sampler = new Thread(this::sample, "lox-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    public synchronized void stop() {
+        if (sampler == null) return;
+        running = false;
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sampler = null;
+    }
+
+    private void sample() {
+        long next = System.nanoTime();
+        while (running) {
+            next += intervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // fell behind, skip the missed samples instead of taking them all at once
+                next = System.nanoTime();
+            }
+            String line = stack.collapsed();
+            synchronized (samples) {
+                samples.merge(line, 1L, Long::sum);
+            }
+        }
+    }
+
+    public Map<String, Long> samples() {
+        synchronized (samples) {
+            return new TreeMap<>(samples);
+        }
+    }
+
+    public void write(PrintStream out) {
+        for (Map.Entry<String, Long> entry : samples().entrySet()) {
+            out.println(entry.getKey() + " " + entry.getValue());
+        }
+    }
+}
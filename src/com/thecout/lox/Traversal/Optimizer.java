@@ -0,0 +1,245 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Folds constant expressions and prunes constant branches before the Resolver runs.
+ * Only operations that cannot fail are folded, so every runtime error is still raised
+ * by an unchanged node carrying its original Token. Identities like {@code x * 1} are
+ * only applied when x is known to be a number (or {@code true and x} when x is known
+ * to be a boolean), because otherwise they would hide a type error. {@code x + 0} is
+ * never simplified since it turns -0 into 0.
+ * Statement lists are updated in place, rebuilt nodes reuse the tokens of the old ones.
+ */
+public class Optimizer implements ExprVisitor<Expr>, StmtVisitor<Stmt> {
+
+    public List<Stmt> optimize(List<Stmt> statements) {
+        for (int i = 0; i < statements.size(); i++) {
+            statements.set(i, optimize(statements.get(i)));
+        }
+        return statements;
+    }
+
+    private Stmt optimize(Stmt stmt) {
+        return stmt != null ? stmt.accept(this) : null;
+    }
+
+    private Expr optimize(Expr expr) {
+        return expr != null ? expr.accept(this) : null;
+    }
+
+    private static boolean isNumber(Expr expr) {
+        if (expr instanceof Literal) return ((Literal) expr).value instanceof Double;
+        if (expr instanceof Unary) return ((Unary) expr).operator.type == TokenType.MINUS;
+        if (expr instanceof Binary) {
+            switch (((Binary) expr).operator.type) {
+                case PLUS:
+                case MINUS:
+                case STAR:
+                case SLASH:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBoolean(Expr expr) {
+        if (expr instanceof Literal) return ((Literal) expr).value instanceof Boolean;
+        if (expr instanceof Unary) return ((Unary) expr).operator.type == TokenType.BANG;
+        if (expr instanceof Binary) return !isNumber(expr);
+        return expr instanceof Logical;
+    }
+
+    private static boolean isConstant(Expr expr, Object value) {
+        return expr instanceof Literal && value.equals(((Literal) expr).value);
+    }
+
+    private static Stmt empty() {
+        return new Block(new ArrayList<>());
+    }
+
+    @Override
+    public Expr visitAssignExpr(Assign expr) {
+        Expr value = optimize(expr.value);
+        return value == expr.value ? expr : new Assign(expr.name, value);
+    }
+
+    @Override
+    public Expr visitBinaryExpr(Binary expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+        if (left instanceof Literal && right instanceof Literal
+                && ((Literal) left).value instanceof Double && ((Literal) right).value instanceof Double) {
+            double a = (Double) ((Literal) left).value;
+            double b = (Double) ((Literal) right).value;
+            switch (expr.operator.type) {
+                case GREATER: return new Literal(a > b);
+                case GREATER_EQUAL: return new Literal(a >= b);
+                case LESS: return new Literal(a < b);
+                case LESS_EQUAL: return new Literal(a <= b);
+                case PLUS: return new Literal(a + b);
+                case MINUS: return new Literal(a - b);
+                case STAR: return new Literal(a * b);
+                case SLASH:
+                    // dividing by zero is a runtime error
+                    if (b != 0) return new Literal(a / b);
+                    break;
+                default:
+                    break;
+            }
+        }
+        switch (expr.operator.type) {
+            case STAR:
+                if (isConstant(right, 1.0) && isNumber(left)) return left;
+                if (isConstant(left, 1.0) && isNumber(right)) return right;
+                break;
+            case SLASH:
+                if (isConstant(right, 1.0) && isNumber(left)) return left;
+                break;
+            case MINUS:
+                if (isConstant(right, 0.0) && isNumber(left)) return left;
+                break;
+            default:
+                break;
+        }
+        return left == expr.left && right == expr.right ? expr : new Binary(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitCallExpr(Call expr) {
+        Expr callee = optimize(expr.callee);
+        List<Expr> arguments = new ArrayList<>(expr.arguments.size());
+        boolean changed = callee != expr.callee;
+        for (Expr argument : expr.arguments) {
+            Expr optimized = optimize(argument);
+            changed |= optimized != argument;
+            arguments.add(optimized);
+        }
+        return changed ? new Call(callee, expr.paren, arguments) : expr;
+    }
+
+    @Override
+    public Expr visitGroupingExpr(Grouping expr) {
+        return optimize(expr.expression);
+    }
+
+    @Override
+    public Expr visitLiteralExpr(Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogicalExpr(Logical expr) {
+        Expr left = optimize(expr.left);
+        Expr right = optimize(expr.right);
+        switch (expr.operator.type) {
+            case AND:
+                if (isConstant(left, false)) return left;
+                if (isConstant(left, true) && isBoolean(right)) return right;
+                break;
+            case OR:
+                if (isConstant(left, true)) return left;
+                if (isConstant(left, false) && isBoolean(right)) return right;
+                break;
+            case EQUAL_EQUAL:
+                if (left instanceof Literal && right instanceof Literal) {
+                    return new Literal(Objects.equals(((Literal) left).value, ((Literal) right).value));
+                }
+                break;
+            case BANG_EQUAL:
+                if (left instanceof Literal && right instanceof Literal) {
+                    return new Literal(!Objects.equals(((Literal) left).value, ((Literal) right).value));
+                }
+                break;
+            default:
+                break;
+        }
+        return left == expr.left && right == expr.right ? expr : new Logical(left, expr.operator, right);
+    }
+
+    @Override
+    public Expr visitUnaryExpr(Unary expr) {
+        Expr right = optimize(expr.right);
+        if (right instanceof Literal) {
+            Object value = ((Literal) right).value;
+            if (expr.operator.type == TokenType.MINUS && value instanceof Double) return new Literal(-(Double) value);
+            if (expr.operator.type == TokenType.BANG && value instanceof Boolean) return new Literal(!(Boolean) value);
+        }
+        // !!x is x for booleans
+        if (expr.operator.type == TokenType.BANG && right instanceof Unary
+                && ((Unary) right).operator.type == TokenType.BANG && isBoolean(((Unary) right).right)) {
+            return ((Unary) right).right;
+        }
+        return right == expr.right ? expr : new Unary(expr.operator, right);
+    }
+
+    @Override
+    public Expr visitVariableExpr(Variable expr) {
+        return expr;
+    }
+
+    @Override
+    public Stmt visitBlockStmt(Block stmt) {
+        optimize(stmt.statements);
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitExpressionStmt(Expression stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Expression(expression);
+    }
+
+    @Override
+    public Stmt visitFunctionStmt(Function stmt) {
+        optimize(stmt.body);
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitIfStmt(If stmt) {
+        Expr condition = optimize(stmt.condition);
+        Stmt thenBranch = optimize(stmt.thenBranch);
+        Stmt elseBranch = optimize(stmt.elseBranch);
+        if (condition instanceof Literal && ((Literal) condition).value instanceof Boolean) {
+            Stmt taken = (Boolean) ((Literal) condition).value ? thenBranch : elseBranch;
+            return taken != null ? taken : empty();
+        }
+        if (condition == stmt.condition && thenBranch == stmt.thenBranch && elseBranch == stmt.elseBranch) return stmt;
+        return new If(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public Stmt visitPrintStmt(Print stmt) {
+        Expr expression = optimize(stmt.expression);
+        return expression == stmt.expression ? stmt : new Print(expression);
+    }
+
+    @Override
+    public Stmt visitReturnStmt(Return stmt) {
+        Expr value = optimize(stmt.value);
+        return value == stmt.value ? stmt : new Return(value);
+    }
+
+    @Override
+    public Stmt visitVarStmt(Var stmt) {
+        Expr initializer = optimize(stmt.initializer);
+        return initializer == stmt.initializer ? stmt : new Var(stmt.name, initializer);
+    }
+
+    @Override
+    public Stmt visitWhileStmt(While stmt) {
+        Expr condition = optimize(stmt.condition);
+        Stmt body = optimize(stmt.body);
+        if (isConstant(condition, false)) return empty();
+        return condition == stmt.condition && body == stmt.body ? stmt : new While(condition, body);
+    }
+}
@@ -0,0 +1,203 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Token;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static pass between the Parser and the Interpreter. Every local variable gets a
+ * (depth, slot) pair so the Interpreter can index the Environment directly instead of
+ * searching the scope chain by name. Everything declared at the top level stays global.
+ */
+public class Resolver implements ExprVisitor<Void>, StmtVisitor<Void> {
+    private static class Scope {
+        final Map<String, Integer> slots = new HashMap<>();
+        int size = 0;
+    }
+
+    // innermost scope last
+    private final List<Scope> scopes = new ArrayList<>();
+    // number of function bodies around the current statement
+    private int functions = 0;
+
+    public void resolve(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            resolve(statement);
+        }
+    }
+
+    private void resolve(Stmt stmt) {
+        if (stmt != null) stmt.accept(this);
+    }
+
+    private void resolve(Expr expr) {
+        if (expr != null) expr.accept(this);
+    }
+
+    private void beginScope() {
+        scopes.add(new Scope());
+    }
+
+    private int endScope() {
+        return scopes.remove(scopes.size() - 1).size;
+    }
+
+    private int declare(Token name) {
+        if (scopes.isEmpty()) return -1;
+        Scope scope = scopes.get(scopes.size() - 1);
+        // redeclaring in the same scope reuses the old slot
+        return scope.slots.computeIfAbsent(name.lexeme, key -> scope.size++);
+    }
+
+    private int[] lookup(Token name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Integer slot = scopes.get(i).slots.get(name.lexeme);
+            if (slot != null) {
+                return new int[]{scopes.size() - 1 - i, slot};
+            }
+        }
+        return new int[]{-1, -1};
+    }
+
+    // blocks without own declarations are executed in the enclosing scope
+    private static boolean declaresLocals(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (statement instanceof Var || statement instanceof Function) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        resolve(expr.value);
+        int[] location = lookup(expr.name);
+        expr.depth = location[0];
+        expr.slot = location[1];
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Call expr) {
+        resolve(expr.callee);
+        for (Expr argument : expr.arguments) {
+            resolve(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        resolve(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Logical expr) {
+        resolve(expr.left);
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        resolve(expr.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        int[] location = lookup(expr.name);
+        expr.depth = location[0];
+        expr.slot = location[1];
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        if (!declaresLocals(stmt.statements)) {
+            stmt.slots = 0;
+            resolve(stmt.statements);
+            return null;
+        }
+        beginScope();
+        resolve(stmt.statements);
+        stmt.slots = endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Function stmt) {
+        // declared before the body so the function can call itself
+        stmt.slot = declare(stmt.name);
+        beginScope();
+        // parameter i always lives in slot i, a repeated name refers to the last one
+        Scope frame = scopes.get(scopes.size() - 1);
+        for (Token param : stmt.parameters) {
+            frame.slots.put(param.lexeme, frame.size++);
+        }
+        functions++;
+        resolve(stmt.body);
+        functions--;
+        stmt.slots = endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.thenBranch);
+        resolve(stmt.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        resolve(stmt.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Return stmt) {
+        resolve(stmt.value);
+        stmt.tailCall = functions > 0 && stmt.value instanceof Call;
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        // the initializer still sees an outer variable of the same name
+        resolve(stmt.initializer);
+        stmt.slot = declare(stmt.name);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        resolve(stmt.condition);
+        resolve(stmt.body);
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.thecout.lox.Traversal;
+
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+
+/**
+ * One run of a {@link CompiledProgram} with globals of its own. Inputs are defined as
+ * globals before {@link #run}, results are read from the globals afterwards. Values are
+ * Lox values: Double, String, Boolean, a function or null for nil. A session is meant
+ * for one thread at a time; run many sessions to use many threads.
+ */
+public final class Session {
+    private final CompiledProgram program;
+    private final Interpreter interpreter;
+
+    Session(CompiledProgram program, Interpreter interpreter) {
+        this.program = program;
+        this.interpreter = interpreter;
+    }
+
+    public Session define(String name, Object value) {
+        interpreter.globals.define(name, value);
+        return this;
+    }
+
+    // the value of a global, null if it is nil or not defined
+    public Object get(String name) {
+        return interpreter.globals.get(name);
+    }
+
+    // runs the program, unlike Interpreter.interpret a runtime error is thrown to the caller
+    public Session run() throws RuntimeError {
+        interpreter.execute(program.statements());
+        return this;
+    }
+}
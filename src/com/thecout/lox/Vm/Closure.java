@@ -0,0 +1,16 @@
+package com.thecout.lox.Vm;
+
+public class Closure {
+    final FunctionProto proto;
+    final Object[] enclosing;
+
+    Closure(FunctionProto proto, Object[] enclosing) {
+        this.proto = proto;
+        this.enclosing = enclosing;
+    }
+
+    @Override
+    public String toString() {
+        return proto.toString();
+    }
+}
@@ -0,0 +1,549 @@
+package com.thecout.lox.Vm;
+
+import com.thecout.lox.Parser.Expr.*;
+import com.thecout.lox.Parser.Stmts.*;
+import com.thecout.lox.Token;
+import com.thecout.lox.TokenType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the AST into one Chunk per function. Locals of nested blocks are flattened
+ * into the frame of their function, variables of enclosing functions are reached through
+ * the frame chain and globals get a fixed index into the global table of the VM.
+ * A block that declares variables and contains a function declaration gets a frame of
+ * its own every time it is entered instead, so closures made in different iterations of
+ * a loop see different variables.
+ */
+public class Compiler implements ExprVisitor<Void>, StmtVisitor<Void> {
+    private static final int MAX_U16 = 0xffff;
+
+    // the locals of a call, or of one entry of a block with its own frame, slot 0 links to the enclosing frame
+    private static class Frame {
+        int nextSlot = 1;
+    }
+
+    private static class Scope {
+        final Frame frame;
+        final Map<String, Integer> names = new HashMap<>();
+
+        Scope(Frame frame) {
+            this.frame = frame;
+        }
+    }
+
+    private static class FunctionState {
+        final FunctionState enclosing;
+        final FunctionProto proto;
+        final Frame frame = new Frame();
+        final List<Scope> scopes = new ArrayList<>();
+        int stackDepth = 0;
+
+        FunctionState(FunctionState enclosing, FunctionProto proto) {
+            this.enclosing = enclosing;
+            this.proto = proto;
+        }
+
+        Frame innermostFrame() {
+            return scopes.isEmpty() ? frame : scopes.get(scopes.size() - 1).frame;
+        }
+    }
+
+    private final Map<String, Integer> globals = new LinkedHashMap<>();
+    private FunctionState current;
+    private int line = 0;
+
+    public int declareGlobal(String name) {
+        return globals.computeIfAbsent(name, key -> globals.size());
+    }
+
+    public String[] globalNames() {
+        return globals.keySet().toArray(new String[0]);
+    }
+
+    public FunctionProto compile(List<Stmt> statements) {
+        current = new FunctionState(null, new FunctionProto(null, 0));
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+        emitReturn();
+        return finish();
+    }
+
+    private void compile(Stmt stmt) {
+        if (stmt != null) stmt.accept(this);
+    }
+
+    private void compile(Expr expr) {
+        expr.accept(this);
+    }
+
+    private FunctionProto finish() {
+        FunctionProto proto = current.proto;
+        proto.frameSize = current.frame.nextSlot;
+        proto.chunk.finish();
+        current = current.enclosing;
+        return proto;
+    }
+
+    // ---------------------------------------------------------------- emitting
+
+    private Chunk chunk() {
+        return current.proto.chunk;
+    }
+
+    private void emit(byte op, int stackEffect) {
+        chunk().write(op, line);
+        current.stackDepth += stackEffect;
+        if (current.stackDepth > current.proto.maxStack) {
+            current.proto.maxStack = current.stackDepth;
+        }
+    }
+
+    private void emitShort(int value) {
+        if (value > MAX_U16) throw new VmError(line, "Operand too large.");
+        chunk().write(value >> 8, line);
+        chunk().write(value, line);
+    }
+
+    private void emitConstant(Object value) {
+        emit(OpCode.CONSTANT, 1);
+        emitShort(chunk().addConstant(value));
+    }
+
+    private void emitReturn() {
+        emit(OpCode.NIL, 1);
+        emit(OpCode.RETURN, -1);
+    }
+
+    private int emitJump(byte op, int stackEffect) {
+        emit(op, stackEffect);
+        emitShort(0);
+        return chunk().size() - 2;
+    }
+
+    private void patchJump(int offset) {
+        int jump = chunk().size() - offset - 2;
+        if (jump > MAX_U16) throw new VmError(line, "Too much code to jump over.");
+        chunk().code[offset] = (byte) (jump >> 8);
+        chunk().code[offset + 1] = (byte) jump;
+    }
+
+    private void emitLoop(int loopStart) {
+        emit(OpCode.LOOP, 0);
+        int offset = chunk().size() - loopStart + 2;
+        if (offset > MAX_U16) throw new VmError(line, "Loop body too large.");
+        emitShort(offset);
+    }
+
+    // ---------------------------------------------------------------- variables
+
+    private void beginScope(Frame frame) {
+        current.scopes.add(new Scope(frame));
+    }
+
+    private void endScope() {
+        // slots are not reused, closures keep the whole frame alive
+        current.scopes.remove(current.scopes.size() - 1);
+    }
+
+    // a block whose variables a closure may capture, a function declared in it or below
+    private static boolean needsFrame(Block block) {
+        boolean declares = false;
+        for (Stmt statement : block.statements) {
+            if (statement instanceof Var || statement instanceof Function) declares = true;
+        }
+        return declares && declaresFunction(block.statements);
+    }
+
+    private static boolean declaresFunction(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (declaresFunction(statement)) return true;
+        }
+        return false;
+    }
+
+    private static boolean declaresFunction(Stmt statement) {
+        if (statement instanceof Function) return true;
+        if (statement instanceof Block) return declaresFunction(((Block) statement).statements);
+        if (statement instanceof While) return declaresFunction(((While) statement).body);
+        if (statement instanceof If) {
+            If branch = (If) statement;
+            return declaresFunction(branch.thenBranch)
+                    || branch.elseBranch != null && declaresFunction(branch.elseBranch);
+        }
+        return false;
+    }
+
+    // returns the local slot or -1 when the name is declared as a global
+    private int declare(Token name) {
+        if (current.enclosing == null && current.scopes.isEmpty()) {
+            declareGlobal(name.lexeme);
+            return -1;
+        }
+        Scope scope = current.scopes.get(current.scopes.size() - 1);
+        return scope.names.computeIfAbsent(name.lexeme, key -> scope.frame.nextSlot++);
+    }
+
+    private void defineVariable(Token name, int slot) {
+        if (slot < 0) {
+            emit(OpCode.DEFINE_GLOBAL, -1);
+            emitShort(globals.get(name.lexeme));
+        } else {
+            emit(OpCode.STORE_LOCAL, -1);
+            emitShort(slot);
+        }
+    }
+
+    // slot of a local in the current frame, -1 if the name lives elsewhere
+    private int resolveLocal(Token name) {
+        Frame frame = current.innermostFrame();
+        for (int i = current.scopes.size() - 1; i >= 0 && current.scopes.get(i).frame == frame; i--) {
+            Integer slot = current.scopes.get(i).names.get(name.lexeme);
+            if (slot != null) return slot;
+        }
+        return -1;
+    }
+
+    // slot of a local usable as a u8 operand, -1 otherwise
+    private int localOperand(Expr expr) {
+        if (!(expr instanceof Variable)) return -1;
+        int slot = resolveLocal(((Variable) expr).name);
+        return slot <= 0xff ? slot : -1;
+    }
+
+    // constant index of a number literal usable as a u8 operand, -1 otherwise
+    private int constantOperand(Expr expr) {
+        if (!(expr instanceof Literal) || !(((Literal) expr).value instanceof Double)) return -1;
+        int index = chunk().addConstant(((Literal) expr).value);
+        return index <= 0xff ? index : -1;
+    }
+
+    // the _LL variant of the operator, the _LK variant is always the next opcode
+    private static byte operandOp(TokenType type) {
+        return switch (type) {
+            case PLUS -> OpCode.ADD_LL;
+            case MINUS -> OpCode.SUBTRACT_LL;
+            case STAR -> OpCode.MULTIPLY_LL;
+            case SLASH -> OpCode.DIVIDE_LL;
+            case GREATER -> OpCode.JUMP_IF_NOT_GREATER_LL;
+            case GREATER_EQUAL -> OpCode.JUMP_IF_NOT_GREATER_EQUAL_LL;
+            case LESS -> OpCode.JUMP_IF_NOT_LESS_LL;
+            case LESS_EQUAL -> OpCode.JUMP_IF_NOT_LESS_EQUAL_LL;
+            default -> -1;
+        };
+    }
+
+    // emits op with operands taken from locals/constants if the binary allows it
+    private boolean emitOperandOp(Binary binary, byte op, int stackEffect) {
+        int left = localOperand(binary.left);
+        if (op < 0 || left < 0) return false;
+        int right = localOperand(binary.right);
+        if (right < 0) {
+            right = constantOperand(binary.right);
+            if (right < 0) return false;
+            op++;
+        }
+        line = binary.operator.line;
+        emit(op, stackEffect);
+        chunk().write(left, line);
+        chunk().write(right, line);
+        return true;
+    }
+
+    // compiles a condition followed by a jump taken when it is false, returns the jump to patch
+    private int emitConditionJump(Expr condition) {
+        if (condition instanceof Binary) {
+            Binary binary = (Binary) condition;
+            byte op = operandOp(binary.operator.type);
+            if (op >= OpCode.JUMP_IF_NOT_GREATER_LL && emitOperandOp(binary, op, 0)) {
+                emitShort(0);
+                return chunk().size() - 2;
+            }
+        }
+        compile(condition);
+        return emitJump(OpCode.JUMP_IF_FALSE, -1);
+    }
+
+    // depth counts the frames between the current one and the one holding the variable
+    private void emitVariable(Token name, boolean set) {
+        int depth = 0;
+        for (FunctionState state = current; state != null; state = state.enclosing, depth++) {
+            Frame frame = state.innermostFrame();
+            for (int i = state.scopes.size() - 1; i >= 0; i--) {
+                Scope scope = state.scopes.get(i);
+                if (scope.frame != frame) {
+                    frame = scope.frame;
+                    depth++;
+                }
+                Integer slot = scope.names.get(name.lexeme);
+                if (slot == null) continue;
+                if (depth == 0) {
+                    emit(set ? OpCode.SET_LOCAL : OpCode.GET_LOCAL, set ? 0 : 1);
+                } else {
+                    emit(set ? OpCode.SET_OUTER : OpCode.GET_OUTER, set ? 0 : 1);
+                    chunk().write(depth, line);
+                }
+                emitShort(slot);
+                return;
+            }
+        }
+        emit(set ? OpCode.SET_GLOBAL : OpCode.GET_GLOBAL, set ? 0 : 1);
+        emitShort(declareGlobal(name.lexeme));
+    }
+
+    // ---------------------------------------------------------------- expressions
+
+    @Override
+    public Void visitAssignExpr(Assign expr) {
+        compile(expr.value);
+        line = expr.name.line;
+        emitVariable(expr.name, true);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(Binary expr) {
+        byte op = operandOp(expr.operator.type);
+        if (op >= 0 && op < OpCode.JUMP_IF_NOT_GREATER_LL && emitOperandOp(expr, op, 1)) {
+            return null;
+        }
+        compile(expr.left);
+        compile(expr.right);
+        line = expr.operator.line;
+        switch (expr.operator.type) {
+            case GREATER -> emit(OpCode.GREATER, -1);
+            case GREATER_EQUAL -> emit(OpCode.GREATER_EQUAL, -1);
+            case LESS -> emit(OpCode.LESS, -1);
+            case LESS_EQUAL -> emit(OpCode.LESS_EQUAL, -1);
+            case PLUS -> emit(OpCode.ADD, -1);
+            case MINUS -> emit(OpCode.SUBTRACT, -1);
+            case STAR -> emit(OpCode.MULTIPLY, -1);
+            case SLASH -> emit(OpCode.DIVIDE, -1);
+            case EQUAL_EQUAL -> emit(OpCode.EQUAL, -1);
+            case BANG_EQUAL -> emit(OpCode.NOT_EQUAL, -1);
+            default -> throw new VmError(line, "Unknown operator '" + expr.operator.lexeme + "'.");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(Call expr) {
+        compile(expr.callee);
+        for (Expr argument : expr.arguments) {
+            compile(argument);
+        }
+        line = expr.paren.line;
+        if (expr.arguments.size() > 255) throw new VmError(line, "Can't have more than 255 arguments.");
+        emit(OpCode.CALL, -expr.arguments.size());
+        chunk().write(expr.arguments.size(), line);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(Grouping expr) {
+        compile(expr.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(Literal expr) {
+        if (expr.value == null) {
+            emit(OpCode.NIL, 1);
+        } else if (Boolean.TRUE.equals(expr.value)) {
+            emit(OpCode.TRUE, 1);
+        } else if (Boolean.FALSE.equals(expr.value)) {
+            emit(OpCode.FALSE, 1);
+        } else {
+            emitConstant(expr.value);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitLogicalExpr(Logical expr) {
+        switch (expr.operator.type) {
+            // both operands must be booleans, as in the ast Interpreter, so the result is one too
+            case AND -> {
+                compile(expr.left);
+                line = expr.operator.line;
+                emit(OpCode.BOOLEAN, 0);
+                emit(OpCode.DUP, 1);
+                int end = emitJump(OpCode.JUMP_IF_FALSE, -1);
+                emit(OpCode.POP, -1);
+                compile(expr.right);
+                line = expr.operator.line;
+                emit(OpCode.BOOLEAN, 0);
+                patchJump(end);
+            }
+            case OR -> {
+                compile(expr.left);
+                line = expr.operator.line;
+                emit(OpCode.BOOLEAN, 0);
+                emit(OpCode.DUP, 1);
+                int next = emitJump(OpCode.JUMP_IF_FALSE, -1);
+                int end = emitJump(OpCode.JUMP, 0);
+                patchJump(next);
+                emit(OpCode.POP, -1);
+                compile(expr.right);
+                line = expr.operator.line;
+                emit(OpCode.BOOLEAN, 0);
+                patchJump(end);
+            }
+            case EQUAL_EQUAL, BANG_EQUAL -> {
+                compile(expr.left);
+                compile(expr.right);
+                line = expr.operator.line;
+                emit(expr.operator.type == TokenType.EQUAL_EQUAL ? OpCode.EQUAL : OpCode.NOT_EQUAL, -1);
+            }
+            default -> throw new VmError(expr.operator.line, "Unknown operator '" + expr.operator.lexeme + "'.");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(Unary expr) {
+        compile(expr.right);
+        line = expr.operator.line;
+        emit(expr.operator.type == TokenType.MINUS ? OpCode.NEGATE : OpCode.NOT, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(Variable expr) {
+        line = expr.name.line;
+        emitVariable(expr.name, false);
+        return null;
+    }
+
+    // ---------------------------------------------------------------- statements
+
+    @Override
+    public Void visitBlockStmt(Block stmt) {
+        if (!needsFrame(stmt)) {
+            beginScope(current.innermostFrame());
+            for (Stmt statement : stmt.statements) {
+                compile(statement);
+            }
+            endScope();
+            return null;
+        }
+        Frame frame = new Frame();
+        emit(OpCode.BEGIN_FRAME, 0);
+        emitShort(0);
+        int size = chunk().size() - 2;
+        beginScope(frame);
+        for (Stmt statement : stmt.statements) {
+            compile(statement);
+        }
+        endScope();
+        emit(OpCode.END_FRAME, 0);
+        if (frame.nextSlot > MAX_U16) throw new VmError(line, "Too many local variables.");
+        chunk().code[size] = (byte) (frame.nextSlot >> 8);
+        chunk().code[size + 1] = (byte) frame.nextSlot;
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(Expression stmt) {
+        if (stmt.expression instanceof Assign) {
+            Assign assign = (Assign) stmt.expression;
+            int slot = resolveLocal(assign.name);
+            if (slot >= 0) {
+                compile(assign.value);
+                line = assign.name.line;
+                emit(OpCode.STORE_LOCAL, -1);
+                emitShort(slot);
+                return null;
+            }
+        }
+        compile(stmt.expression);
+        emit(OpCode.POP, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionStmt(Function stmt) {
+        line = stmt.name.line;
+        // declared before the body so the function can call itself
+        int slot = declare(stmt.name);
+        current = new FunctionState(current, new FunctionProto(stmt.name.lexeme, stmt.parameters.size()));
+        beginScope(current.frame);
+        for (Token param : stmt.parameters) {
+            current.scopes.get(0).names.put(param.lexeme, current.frame.nextSlot++);
+        }
+        for (Stmt statement : stmt.body) {
+            compile(statement);
+        }
+        emitReturn();
+        FunctionProto proto = finish();
+        line = stmt.name.line;
+        emit(OpCode.CLOSURE, 1);
+        emitShort(chunk().addConstant(proto));
+        defineVariable(stmt.name, slot);
+        return null;
+    }
+
+    @Override
+    public Void visitIfStmt(If stmt) {
+        int elseJump = emitConditionJump(stmt.condition);
+        compile(stmt.thenBranch);
+        if (stmt.elseBranch == null) {
+            patchJump(elseJump);
+            return null;
+        }
+        int endJump = emitJump(OpCode.JUMP, 0);
+        patchJump(elseJump);
+        compile(stmt.elseBranch);
+        patchJump(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStmt(Print stmt) {
+        compile(stmt.expression);
+        emit(OpCode.PRINT, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStmt(Return stmt) {
+        if (stmt.value == null) {
+            emit(OpCode.NIL, 1);
+        } else {
+            compile(stmt.value);
+        }
+        emit(OpCode.RETURN, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitVarStmt(Var stmt) {
+        if (stmt.initializer == null) {
+            emit(OpCode.NIL, 1);
+        } else {
+            compile(stmt.initializer);
+        }
+        // declared after the initializer so it still sees an outer variable of the same name
+        line = stmt.name.line;
+        defineVariable(stmt.name, declare(stmt.name));
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStmt(While stmt) {
+        int loopStart = chunk().size();
+        int exitJump = -1;
+        if (stmt.condition != null) {
+            exitJump = emitConditionJump(stmt.condition);
+        }
+        compile(stmt.body);
+        emitLoop(loopStart);
+        if (exitJump >= 0) patchJump(exitJump);
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.thecout.lox.Vm;
+
+/**
+ * Compiled form of a function declaration (or of the whole script). Slot 0 of every
+ * frame holds the frame the function was declared in, the parameters follow.
+ */
+public class FunctionProto {
+    final String name;
+    final int arity;
+    final Chunk chunk = new Chunk();
+    int frameSize;
+    int maxStack;
+
+    FunctionProto(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? "<script>" : "<fn " + name + ">";
+    }
+}
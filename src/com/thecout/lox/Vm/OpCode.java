@@ -0,0 +1,65 @@
+package com.thecout.lox.Vm;
+
+/**
+ * Instruction set of the VM. Operands follow the opcode byte: "u8" and "u16" are
+ * unsigned big endian, jump offsets are relative to the end of the instruction.
+ * The _LL and _LK instructions take their operands from a local slot and a second local
+ * or a constant (both u8) instead of from the stack, which saves dispatches in loops.
+ */
+public final class OpCode {
+    public static final byte CONSTANT = 0;      // u16 constant
+    public static final byte NIL = 1;
+    public static final byte TRUE = 2;
+    public static final byte FALSE = 3;
+    public static final byte POP = 4;
+    public static final byte DUP = 5;
+    public static final byte GET_LOCAL = 6;     // u16 slot
+    public static final byte SET_LOCAL = 7;     // u16 slot
+    public static final byte GET_OUTER = 8;     // u8 depth, u16 slot
+    public static final byte SET_OUTER = 9;     // u8 depth, u16 slot
+    public static final byte GET_GLOBAL = 10;   // u16 global
+    public static final byte SET_GLOBAL = 11;   // u16 global
+    public static final byte DEFINE_GLOBAL = 12; // u16 global
+    public static final byte EQUAL = 13;
+    public static final byte NOT_EQUAL = 14;
+    public static final byte GREATER = 15;
+    public static final byte GREATER_EQUAL = 16;
+    public static final byte LESS = 17;
+    public static final byte LESS_EQUAL = 18;
+    public static final byte ADD = 19;
+    public static final byte SUBTRACT = 20;
+    public static final byte MULTIPLY = 21;
+    public static final byte DIVIDE = 22;
+    public static final byte NOT = 23;
+    public static final byte NEGATE = 24;
+    public static final byte PRINT = 25;
+    public static final byte JUMP = 26;         // u16 forward offset
+    public static final byte JUMP_IF_FALSE = 27; // u16 forward offset, pops the condition, which must be a boolean
+    public static final byte LOOP = 28;         // u16 backward offset
+    public static final byte CALL = 29;         // u8 argument count
+    public static final byte CLOSURE = 30;      // u16 constant holding a FunctionProto
+    public static final byte RETURN = 31;
+    public static final byte STORE_LOCAL = 32;  // u16 slot, pops the value
+    public static final byte ADD_LL = 33;       // u8 slot, u8 slot
+    public static final byte ADD_LK = 34;       // u8 slot, u8 constant
+    public static final byte SUBTRACT_LL = 35;
+    public static final byte SUBTRACT_LK = 36;
+    public static final byte MULTIPLY_LL = 37;
+    public static final byte MULTIPLY_LK = 38;
+    public static final byte DIVIDE_LL = 39;
+    public static final byte DIVIDE_LK = 40;
+    public static final byte JUMP_IF_NOT_GREATER_LL = 41;       // u8 slot, u8 slot, u16 forward offset
+    public static final byte JUMP_IF_NOT_GREATER_LK = 42;       // u8 slot, u8 constant, u16 forward offset
+    public static final byte JUMP_IF_NOT_GREATER_EQUAL_LL = 43;
+    public static final byte JUMP_IF_NOT_GREATER_EQUAL_LK = 44;
+    public static final byte JUMP_IF_NOT_LESS_LL = 45;
+    public static final byte JUMP_IF_NOT_LESS_LK = 46;
+    public static final byte JUMP_IF_NOT_LESS_EQUAL_LL = 47;
+    public static final byte JUMP_IF_NOT_LESS_EQUAL_LK = 48;
+    public static final byte BEGIN_FRAME = 49;  // u16 frame size, the new frame links to the current one
+    public static final byte END_FRAME = 50;    // back to the frame the current one links to
+    public static final byte BOOLEAN = 51;      // checks that the operand of and/or on the stack is a boolean
+
+    private OpCode() {
+    }
+}
@@ -0,0 +1,475 @@
+package com.thecout.lox.Vm;
+
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Optimizer;
+import com.thecout.lox.Traversal.InterpreterUtils.Clock;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxCallable;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stack based virtual machine executing the Chunks produced by the Compiler.
+ * Every call allocates one Object[] frame for its locals, the operand stack is shared.
+ * Values behave as in the ast Interpreter: operators, and/or and conditions check the
+ * types of their operands and fail with the same runtime errors.
+ */
+public class VM {
+    private static final Object UNDEFINED = new Object();
+    private static final int FRAMES_MAX = 1 << 16;
+
+    private final Map<String, LoxCallable> natives = new LinkedHashMap<>();
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public VM() {
+        this(System.out, System.err);
+    }
+
+    public VM(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+        natives.put("clock", new Clock());
+    }
+
+    public void interpret(List<Stmt> statements) {
+        new Optimizer().optimize(statements);
+        try {
+            Compiler compiler = new Compiler();
+            for (String name : natives.keySet()) {
+                compiler.declareGlobal(name);
+            }
+            FunctionProto script = compiler.compile(statements);
+            String[] names = compiler.globalNames();
+            Object[] globals = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                globals[i] = natives.containsKey(names[i]) ? natives.get(names[i]) : UNDEFINED;
+            }
+            run(script, globals, names);
+        } catch (VmError error) {
+            err.printf("%s\n[line %d]\n", error.getMessage(), error.line);
+        }
+    }
+
+    private void run(FunctionProto script, Object[] globals, String[] globalNames) {
+        PrintStream out = this.out;
+        Object[] stack = new Object[Math.max(256, script.maxStack)];
+        int sp = 0;
+
+        FunctionProto[] frameProtos = new FunctionProto[64];
+        int[] frameIps = new int[64];
+        Object[][] frameLocals = new Object[64][];
+        int frameCount = 0;
+
+        FunctionProto proto = script;
+        byte[] code = proto.chunk.code;
+        Object[] constants = proto.chunk.constants;
+        Object[] locals = new Object[proto.frameSize];
+        int ip = 0;
+
+        for (;;) {
+            switch (code[ip++]) {
+                case OpCode.CONSTANT:
+                    stack[sp++] = constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    break;
+                case OpCode.NIL:
+                    stack[sp++] = null;
+                    break;
+                case OpCode.TRUE:
+                    stack[sp++] = Boolean.TRUE;
+                    break;
+                case OpCode.FALSE:
+                    stack[sp++] = Boolean.FALSE;
+                    break;
+                case OpCode.POP:
+                    stack[--sp] = null;
+                    break;
+                case OpCode.DUP:
+                    stack[sp] = stack[sp - 1];
+                    sp++;
+                    break;
+                case OpCode.GET_LOCAL:
+                    stack[sp++] = locals[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    break;
+                case OpCode.SET_LOCAL:
+                    locals[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)] = stack[sp - 1];
+                    ip += 2;
+                    break;
+                case OpCode.GET_OUTER: {
+                    Object[] frame = outer(locals, code[ip++] & 0xff);
+                    stack[sp++] = frame[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    ip += 2;
+                    break;
+                }
+                case OpCode.SET_OUTER: {
+                    Object[] frame = outer(locals, code[ip++] & 0xff);
+                    frame[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)] = stack[sp - 1];
+                    ip += 2;
+                    break;
+                }
+                case OpCode.GET_GLOBAL: {
+                    int index = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    Object value = globals[index];
+                    if (value == UNDEFINED) {
+                        throw error(proto, ip, "Undefined variable '" + globalNames[index] + "'.");
+                    }
+                    stack[sp++] = value;
+                    break;
+                }
+                case OpCode.SET_GLOBAL: {
+                    int index = ((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff);
+                    ip += 2;
+                    if (globals[index] == UNDEFINED) {
+                        throw error(proto, ip, "Undefined variable '" + globalNames[index] + "'.");
+                    }
+                    globals[index] = stack[sp - 1];
+                    break;
+                }
+                case OpCode.DEFINE_GLOBAL:
+                    globals[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)] = stack[--sp];
+                    ip += 2;
+                    break;
+                case OpCode.EQUAL: {
+                    Object b = stack[--sp];
+                    stack[sp - 1] = equal(stack[sp - 1], b);
+                    break;
+                }
+                case OpCode.NOT_EQUAL: {
+                    Object b = stack[--sp];
+                    stack[sp - 1] = !equal(stack[sp - 1], b);
+                    break;
+                }
+                case OpCode.GREATER: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a > (Double) b;
+                    break;
+                }
+                case OpCode.GREATER_EQUAL: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a >= (Double) b;
+                    break;
+                }
+                case OpCode.LESS: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a < (Double) b;
+                    break;
+                }
+                case OpCode.LESS_EQUAL: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a <= (Double) b;
+                    break;
+                }
+                case OpCode.ADD: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a + (Double) b;
+                    break;
+                }
+                case OpCode.SUBTRACT: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a - (Double) b;
+                    break;
+                }
+                case OpCode.MULTIPLY: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a * (Double) b;
+                    break;
+                }
+                case OpCode.DIVIDE: {
+                    Object b = stack[--sp];
+                    Object a = stack[sp - 1];
+                    if (!(b instanceof Double)) throw numbers(proto, ip);
+                    if ((Double) b == 0) throw error(proto, ip, "Cannot divide by zero.");
+                    if (!(a instanceof Double)) throw numbers(proto, ip);
+                    stack[sp - 1] = (Double) a / (Double) b;
+                    break;
+                }
+                case OpCode.NOT: {
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Boolean)) throw error(proto, ip, "Operand must be a boolean.");
+                    stack[sp - 1] = !(Boolean) a;
+                    break;
+                }
+                case OpCode.BOOLEAN:
+                    if (!(stack[sp - 1] instanceof Boolean)) throw error(proto, ip, "Operand must be a boolean.");
+                    break;
+                case OpCode.NEGATE: {
+                    Object a = stack[sp - 1];
+                    if (!(a instanceof Double)) throw error(proto, ip, "Operand must be a number.");
+                    stack[sp - 1] = -(Double) a;
+                    break;
+                }
+                case OpCode.PRINT:
+                    out.println(stack[--sp]);
+                    stack[sp] = null;
+                    break;
+                case OpCode.JUMP:
+                    ip += (((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)) + 2;
+                    break;
+                case OpCode.JUMP_IF_FALSE:
+                    if (!condition(stack[--sp], proto, ip)) {
+                        ip += (((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)) + 2;
+                    } else {
+                        ip += 2;
+                    }
+                    stack[sp] = null;
+                    break;
+                case OpCode.LOOP:
+                    ip += 2 - (((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff));
+                    break;
+                case OpCode.CALL: {
+                    int argCount = code[ip++] & 0xff;
+                    Object callee = stack[sp - argCount - 1];
+                    if (callee instanceof Closure) {
+                        Closure closure = (Closure) callee;
+                        FunctionProto function = closure.proto;
+                        if (argCount != function.arity) {
+                            throw error(proto, ip, "Expected " + function.arity + " arguments but got " + argCount + ".");
+                        }
+                        if (frameCount == FRAMES_MAX) throw error(proto, ip, "Stack overflow.");
+                        if (frameCount == frameProtos.length) {
+                            frameProtos = Arrays.copyOf(frameProtos, frameCount * 2);
+                            frameIps = Arrays.copyOf(frameIps, frameCount * 2);
+                            frameLocals = Arrays.copyOf(frameLocals, frameCount * 2);
+                        }
+                        frameProtos[frameCount] = proto;
+                        frameIps[frameCount] = ip;
+                        frameLocals[frameCount] = locals;
+                        frameCount++;
+
+                        locals = new Object[function.frameSize];
+                        locals[0] = closure.enclosing;
+                        System.arraycopy(stack, sp - argCount, locals, 1, argCount);
+                        sp -= argCount + 1;
+                        Arrays.fill(stack, sp, sp + argCount + 1, null);
+                        if (sp + function.maxStack > stack.length) {
+                            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + function.maxStack));
+                        }
+                        proto = function;
+                        code = function.chunk.code;
+                        constants = function.chunk.constants;
+                        ip = 0;
+                    } else if (callee instanceof LoxCallable) {
+                        LoxCallable function = (LoxCallable) callee;
+                        if (argCount != function.arity()) {
+                            throw error(proto, ip, "Expected " + function.arity() + " arguments but got " + argCount + ".");
+                        }
+                        Object result = argCount == 0
+                                ? function.call0(null)
+                                : function.call(null, Arrays.copyOfRange(stack, sp - argCount, sp));
+                        sp -= argCount + 1;
+                        Arrays.fill(stack, sp, sp + argCount + 1, null);
+                        stack[sp++] = result;
+                    } else {
+                        throw error(proto, ip, "Can only call functions.");
+                    }
+                    break;
+                }
+                case OpCode.CLOSURE:
+                    stack[sp++] = new Closure((FunctionProto) constants[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)], locals);
+                    ip += 2;
+                    break;
+                case OpCode.RETURN: {
+                    Object result = stack[--sp];
+                    stack[sp] = null;
+                    if (frameCount == 0) return;
+                    frameCount--;
+                    proto = frameProtos[frameCount];
+                    ip = frameIps[frameCount];
+                    locals = frameLocals[frameCount];
+                    frameLocals[frameCount] = null;
+                    code = proto.chunk.code;
+                    constants = proto.chunk.constants;
+                    stack[sp++] = result;
+                    break;
+                }
+                case OpCode.BEGIN_FRAME: {
+                    Object[] frame = new Object[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)];
+                    frame[0] = locals;
+                    locals = frame;
+                    ip += 2;
+                    break;
+                }
+                case OpCode.END_FRAME:
+                    locals = (Object[]) locals[0];
+                    break;
+                case OpCode.STORE_LOCAL:
+                    locals[((code[ip] & 0xff) << 8) | (code[ip + 1] & 0xff)] = stack[--sp];
+                    stack[sp] = null;
+                    ip += 2;
+                    break;
+                case OpCode.ADD_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a + (Double) b;
+                    break;
+                }
+                case OpCode.ADD_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a + (Double) b;
+                    break;
+                }
+                case OpCode.SUBTRACT_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a - (Double) b;
+                    break;
+                }
+                case OpCode.SUBTRACT_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a - (Double) b;
+                    break;
+                }
+                case OpCode.MULTIPLY_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a * (Double) b;
+                    break;
+                }
+                case OpCode.MULTIPLY_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a * (Double) b;
+                    break;
+                }
+                case OpCode.DIVIDE_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(b instanceof Double)) throw numbers(proto, ip);
+                    if ((Double) b == 0) throw error(proto, ip, "Cannot divide by zero.");
+                    if (!(a instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a / (Double) b;
+                    break;
+                }
+                case OpCode.DIVIDE_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    ip += 2;
+                    if (!(b instanceof Double)) throw numbers(proto, ip);
+                    if ((Double) b == 0) throw error(proto, ip, "Cannot divide by zero.");
+                    if (!(a instanceof Double)) throw numbers(proto, ip);
+                    stack[sp++] = (Double) a / (Double) b;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a > (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a > (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_EQUAL_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a >= (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_GREATER_EQUAL_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a >= (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a < (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a < (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_EQUAL_LL: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = locals[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a <= (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                case OpCode.JUMP_IF_NOT_LESS_EQUAL_LK: {
+                    Object a = locals[code[ip] & 0xff];
+                    Object b = constants[code[ip + 1] & 0xff];
+                    if (!(a instanceof Double) || !(b instanceof Double)) throw numbers(proto, ip + 4);
+                    ip += (Double) a <= (Double) b ? 4 : (((code[ip + 2] & 0xff) << 8) | (code[ip + 3] & 0xff)) + 4;
+                    break;
+                }
+                default:
+                    throw error(proto, ip, "Unknown opcode " + code[ip - 1] + ".");
+            }
+        }
+    }
+
+    private static Object[] outer(Object[] locals, int depth) {
+        Object[] frame = locals;
+        for (int i = 0; i < depth; i++) {
+            frame = (Object[]) frame[0];
+        }
+        return frame;
+    }
+
+    private static boolean condition(Object value, FunctionProto proto, int ip) {
+        if (value instanceof Boolean) return (Boolean) value;
+        throw error(proto, ip, "Condition must be a boolean.");
+    }
+
+    private static boolean equal(Object a, Object b) {
+        if (a == null) return b == null;
+        return a.equals(b);
+    }
+
+    private static VmError numbers(FunctionProto proto, int ip) {
+        return error(proto, ip, "Operand must be a number.");
+    }
+
+    private static VmError error(FunctionProto proto, int ip, String message) {
+        return new VmError(proto.chunk.lines[ip - 1], message);
+    }
+}
@@ -0,0 +1,16 @@
+package com.thecout.lox.Vm;
+
+public class VmError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final int line;
+
+    public VmError(int line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,86 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AstCacheTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    private static String run(List<Stmt> statements) {
+        outContent.reset();
+        new Interpreter().interpret(statements);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    private static List<Stmt> parse(String program) {
+        return new Parser(new Scanner(program).scan()).parse();
+    }
+
+    @Test
+    void roundTripTest() {
+        String[] programs = {InterpretTest.looptest, InterpretTest.looptest2, InterpretTest.tailcalls,
+                InterpretTest.rebinding, InterpretTest.arities, VmTest.closures,
+                "var s = \"a b\"; var x; if (x == nil or !false) print s; else print -1.5;"};
+        for (String program : programs) {
+            List<Stmt> read = AstFormat.read(ByteBuffer.wrap(AstFormat.write(parse(program))));
+            assertEquals(run(parse(program)), run(read), "A program read back should run like the parsed one");
+        }
+    }
+
+    @Test
+    void cacheTest() throws IOException {
+        AstCache cache = new AstCache(directory);
+        byte[] source = InterpretTest.arities.getBytes(StandardCharsets.UTF_8);
+        String key = AstCache.key(source);
+        assertNull(cache.load(key), "An empty cache should miss");
+        String expected = run(cache.parse(source));
+        assertNotNull(cache.load(key), "A parsed program should be stored");
+        assertEquals(expected, run(cache.parse(source)), "A cache hit should run like the parsed program");
+
+        Files.write(directory.resolve(key + ".ast"), new byte[]{1, 2, 3});
+        assertNull(cache.load(key), "A damaged entry should miss");
+        assertEquals(expected, run(cache.parse(source)), "A damaged entry should be parsed again");
+
+        byte[] broken = "var x = ;".getBytes(StandardCharsets.UTF_8);
+        cache.parse(broken);
+        assertNull(cache.load(AstCache.key(broken)), "Programs with errors should not be stored");
+        assertTrue(Files.exists(directory.resolve(key + ".ast")));
+        assertFalse(Files.exists(directory.resolve(AstCache.key(broken) + ".ast")));
+    }
+}
@@ -0,0 +1,126 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Traversal.CompiledProgram;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Budget;
+import com.thecout.lox.Traversal.InterpreterUtils.BudgetExceeded;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+import com.thecout.lox.Traversal.Session;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// stops runaway programs with step, time, depth and cancellation budgets
+public class BudgetTest {
+    static final String forever = "while (true) {}";
+    static final String count = """
+            var i = 0;
+            while (i < n) i = i + 1;
+            """;
+    static final String recursion = "fun down(n) { if (n == 0) return 0; return 1 + down(n - 1); } var result = down(n);";
+    static final String spin = """
+            fun spin(n) { var i = 0; while (i < n) i = i + 1; return i; }
+            var i = 0;
+            while (i < 2000) { spin(1); i = i + 1; }
+            spin(n);
+            """;
+
+    private static final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+    private static Session session(String source, Budget budget) {
+        return CompiledProgram.compile(source).newSession(discard, discard, budget);
+    }
+
+    @Test
+    void stepsTest() {
+        Budget budget = new Budget().maxSteps(10_000);
+        assertEquals(10_000.0, session(count, budget).define("n", 10_000.0).run().get("i"),
+                "A run should be allowed all the steps of its budget");
+        BudgetExceeded error = assertThrows(BudgetExceeded.class,
+                () -> session(count, budget).define("n", 10_001.0).run(), "A step over the budget should stop the run");
+        assertEquals("Exceeded the budget of 10000 steps.", error.getMessage());
+        assertThrows(BudgetExceeded.class, () -> session(forever, budget).run(), "Endless loops should be stopped");
+
+        Session session = session(count, budget).define("n", 6_000.0);
+        session.run();
+        assertEquals(6_000.0, session.run().get("i"), "Every run should get the whole budget");
+    }
+
+    @Test
+    void timeoutTest() {
+        long start = System.nanoTime();
+        BudgetExceeded error = assertThrows(BudgetExceeded.class,
+                () -> session(forever, new Budget().timeout(Duration.ofMillis(50))).run());
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals("Exceeded the time limit of 50 ms.", error.getMessage());
+        assertTrue(elapsed >= 50 && elapsed < 5_000, "The run should stop soon after its deadline: " + elapsed);
+    }
+
+    @Test
+    void cancelTest() throws Exception {
+        Budget budget = new Budget();
+        CompletableFuture<Void> run = CompletableFuture.runAsync(() -> session(forever, budget).run());
+        Thread.sleep(50);
+        budget.cancel();
+        Exception error = assertThrows(Exception.class, () -> run.get(5, TimeUnit.SECONDS),
+                "Cancelling should stop the run on the other thread");
+        assertTrue(error.getCause() instanceof BudgetExceeded, "The run should stop with BudgetExceeded: " + error);
+        assertEquals("Cancelled.", error.getCause().getMessage());
+
+        BudgetExceeded next = assertThrows(BudgetExceeded.class, () -> session(count, budget).define("n", 1.0).run(),
+                "A cancelled budget should stop later runs too");
+        assertEquals("Cancelled.", next.getMessage());
+        budget.resume();
+        assertEquals(1.0, session(count, budget).define("n", 1.0).run().get("i"), "A resumed budget should run again");
+    }
+
+    @Test
+    void depthTest() {
+        Budget budget = new Budget().maxDepth(100);
+        assertEquals(99.0, session(recursion, budget).define("n", 99.0).run().get("result"));
+        BudgetExceeded error = assertThrows(BudgetExceeded.class,
+                () -> session(recursion, budget).define("n", 100.0).run(), "Deeper calls should stop the run");
+        assertEquals("Calls nested deeper than 100.", error.getMessage());
+        assertEquals("down", error.token().lexeme);
+    }
+
+    @Test
+    void depthRestoredTest() {
+        Interpreter interpreter = new Interpreter(discard, discard, new Budget().maxDepth(100));
+        interpreter.interpret(new Parser(new Scanner(recursion.replace("down(n);", "0;"), new ArrayList<>()),
+                new ArrayList<>()).parse());
+        LoxFunction down = (LoxFunction) interpreter.globals.get("down");
+        for (int i = 0; i < 5; i++) {
+            assertThrows(BudgetExceeded.class, () -> down.call1(interpreter, 200.0), "Deeper calls should stop");
+        }
+        assertEquals(99.0, down.call1(interpreter, 99.0), "Calls over the depth should not count against later calls");
+    }
+
+    @Test
+    void compiledTest() {
+        Session session = session(spin, new Budget().maxSteps(100_000));
+        session.define("n", 1e9);
+        assertThrows(BudgetExceeded.class, session::run, "Compiled loops should count against the budget");
+        assertTrue(((LoxFunction) session.get("spin")).isCompiled(), "spin should have been compiled");
+    }
+
+    @Test
+    void interpretTest() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(discard, new PrintStream(err), new Budget().maxSteps(1_000));
+        interpreter.interpret(new Parser(new Scanner(forever, new ArrayList<>()), new ArrayList<>()).parse());
+        assertTrue(err.toString().contains("Exceeded the budget of 1000 steps."),
+                "interpret should report the exceeded budget like other runtime errors");
+    }
+}
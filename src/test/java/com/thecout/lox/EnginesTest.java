@@ -0,0 +1,157 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Closures.ClosureInterpreter;
+import com.thecout.lox.Nodes.NodeInterpreter;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Vm.VM;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// runs the same programs on every engine and compares the outcome with the ast Interpreter's
+public class EnginesTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+    private static final PrintStream originalErr = System.err;
+
+    // engines that run the ast Interpreter's semantics, errors included
+    private static final Map<String, Consumer<List<Stmt>>> exact = new LinkedHashMap<>();
+    // engines that only have to agree on programs without runtime errors
+    private static final Map<String, Consumer<List<Stmt>>> all = new LinkedHashMap<>();
+
+    static {
+        exact.put("nodes", statements -> new NodeInterpreter().interpret(statements));
+        exact.put("closures", statements -> new ClosureInterpreter().interpret(statements));
+        exact.put("vm", statements -> new VM().interpret(statements));
+        all.putAll(exact);
+    }
+
+    static final String tailCalls = """
+            fun sum(n, acc) {
+                if (n == 0) return acc;
+                return sum(n - 1, acc + n);
+            }
+            fun even(n) {
+                if (n == 0) return true;
+                return odd(n - 1);
+            }
+            fun odd(n) {
+                if (n == 0) return false;
+                return even(n - 1);
+            }
+            print sum(5000, 0);
+            print even(10001);
+            """;
+
+    static final String logic = """
+            print 1 < 2 and !(2 >= 3);
+            print false or 2 == 2;
+            print true or 1;
+            print false and 1;
+            print nil == false;
+            print "a" == "a";
+            var i = 0;
+            while (i < 3 and true) i = i + 1;
+            if (i == 3) print "three"; else print "other";
+            """;
+
+    static final List<String> errors = List.of(
+            "print \"a\" + \"b\";",
+            "var s = \"a\"; print (s + \"b\") * 1;",
+            "var s = \"a\"; print (s + \"b\") - 0;",
+            "print 1; print 1 + nil;",
+            "print -\"x\";",
+            "print !nil;",
+            "print !1;",
+            "if (1) print 2;",
+            "var i = nil; while (i) print i;",
+            "print 1 < \"2\";",
+            "print \"2\" >= 1;",
+            "print nil and true;",
+            "print true and 1;",
+            "print \"a\" / 0;",
+            "var x = 1; print x / 0;",
+            "fun f(a) { return a * 2; } print f(1); print f(\"x\");",
+            "fun add(a, b) { return a + b; } print add(1, 2); print add(\"lo\", \"x\");",
+            "print \"x\"(1);",
+            "fun f(a) {} f(1, 2);",
+            "print missing;",
+            "missing = 1;",
+            "fun p() { print \"side\"; return 1; } print nil + p();",
+            "fun p() { print \"side\"; return 1; } print nil < p();",
+            "fun p() { print \"side\"; return 0; } print nil / p();",
+            "fun p() { print \"side\"; return \"x\"; } print nil * p();",
+            "var s = \"s\"; print s / 0;");
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    // the output, the exception the run threw and the runtime error it reported
+    private static String run(Consumer<List<Stmt>> engine, String program) {
+        outContent.reset();
+        errContent.reset();
+        List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+        String thrown = "";
+        try {
+            engine.accept(statements);
+        } catch (RuntimeException | StackOverflowError e) {
+            thrown = e.getClass().getSimpleName();
+        }
+        // the ast Interpreter prints the stack trace of a runtime error, the others its message
+        String error = errContent.toString().lines().findFirst().orElse("");
+        error = error.substring(error.indexOf("RuntimeError: ") < 0 ? 0 : error.indexOf("RuntimeError: ") + 14);
+        String outcome = outContent.toString().trim() + "\n" + thrown + "\n" + error;
+        outContent.reset();
+        errContent.reset();
+        return outcome.strip();
+    }
+
+    private static String ast(String program) {
+        return run(statements -> new Interpreter().interpret(statements), program);
+    }
+
+    @Test
+    void outputTest() {
+        for (String program : List.of(tailCalls, logic, VmTest.closures, VmTest.loopClosures,
+                InterpretTest.arities, InterpretTest.rebinding, InterpretTest.looptest2)) {
+            String expected = ast(program);
+            for (Map.Entry<String, Consumer<List<Stmt>>> engine : all.entrySet()) {
+                assertEquals(expected, run(engine.getValue(), program),
+                        engine.getKey() + " should print what the ast engine does for\n" + program);
+            }
+        }
+        assertEquals("1.25025E7\nfalse", ast(tailCalls), "Tail calls should not overflow the stack");
+    }
+
+    @Test
+    void errorTest() {
+        for (String program : errors) {
+            String expected = ast(program);
+            for (Map.Entry<String, Consumer<List<Stmt>>> engine : exact.entrySet()) {
+                assertEquals(expected, run(engine.getValue(), program),
+                        engine.getKey() + " should fail like the ast engine does for\n" + program);
+            }
+        }
+    }
+}
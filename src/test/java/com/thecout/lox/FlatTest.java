@@ -0,0 +1,117 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Flat.FlatAst;
+import com.thecout.lox.Flat.FlatInterpreter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// runs the programs of InterpretTest on the flat AST
+public class FlatTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    static final String scopes = """
+            var a = "global";
+            {
+                var a = "outer";
+                {
+                    var a = "inner";
+                    print a;
+                }
+                print a;
+                for (var i = 0; i < 2; i = i + 1) {
+                    var b = i * 10;
+                    a = a + "!";
+                    print b;
+                }
+                print a;
+            }
+            print a;
+            """;
+
+    // like the node engine used to, the flat engine adds strings and treats nil and false as false
+    static final String additions = """
+            fun add(a, b) { return a + b; }
+            var i = 0;
+            while (i < 3) {
+                print add(i, 0.5);
+                i = i + 1;
+            }
+            print add("lo", "x");
+            print add(1, 2);
+            fun concat(s) { return s + "!"; }
+            print concat("hi");
+            print concat("ho");
+            print nil or "default";
+            print 1 < 2 and !nil;
+            """;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    private static String run(FlatAst ast) {
+        outContent.reset();
+        new FlatInterpreter().interpret(ast);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    private static String run(String program) {
+        String output = run(FlatAst.parse(TokenSource.of(new Scanner(program).scan())));
+        assertEquals(output, run(FlatAst.parse(new Scanner(program).scanBuffer())),
+                "Parsing from a token buffer should build the same tree");
+        return output;
+    }
+
+    @Test
+    void simpleTest() {
+        assertEquals("3.0", run(InterpretTest.simpleTest));
+    }
+
+    @Test
+    void loopTest() {
+        assertEquals("5.0", run(InterpretTest.looptest), "Loop test 1 should eval to 5");
+        assertEquals("5.0", run(InterpretTest.looptest2), "Loop test 2 should eval to 5");
+    }
+
+    @Test
+    void arithmeticTest() {
+        assertEquals("6.0", run(InterpretTest.conditionaltest1), "Conditional test 1 should eval to 6");
+        assertEquals("7.0", run(InterpretTest.arithmetic1), "Arithmetic test 1 should eval to 7");
+        assertEquals("13.0", run(InterpretTest.arithmetic2), "Arithmetic test 2 should eval to 13");
+    }
+
+    @Test
+    void callTest() {
+        assertEquals("7.0\n3.0\n3.0\n10.0", run(InterpretTest.rebinding), "Calls should see reassigned functions");
+        assertEquals("0.0\n7.0\n0.0\n1.0\n5.0\ntrue", run(InterpretTest.arities), "Calls of every arity should bind their arguments");
+        assertEquals("2.0\ntrue", run(VmTest.closures), "Closures should share their variables");
+        assertEquals("0.5\n1.5\n2.5\nlox\n3.0\nhi!\nho!\ndefault\ntrue", run(additions),
+                "Additions should work on numbers and strings");
+    }
+
+    @Test
+    void tailCallTest() {
+        assertEquals("2.00001E10\nfalse", run(InterpretTest.tailcalls), "Tail calls should not overflow the stack");
+        assertEquals("1.25025E7\nfalse", run(EnginesTest.tailCalls), "Tail calls should not overflow the stack");
+    }
+
+    @Test
+    void scopeTest() {
+        assertEquals("inner\nouter\n0.0\n10.0\nouter!!\nglobal", run(scopes), "Locals should shadow outer variables");
+    }
+}
@@ -3,6 +3,8 @@ package com.thecout.lox;
 import com.thecout.lox.Parser.Parser;
 import com.thecout.lox.Parser.Stmts.Stmt;
 import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.Profiler;
+import com.thecout.lox.Traversal.InterpreterUtils.SamplingProfiler;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,7 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -77,6 +80,65 @@ public class InterpretTest {
             
             """;
     
+    static final String tailcalls = """
+            fun sum(n, acc) {
+                if (n == 0) return acc;
+                return sum(n - 1, acc + n);
+            }
+            fun even(n) {
+                if (n == 0) return true;
+                return odd(n - 1);
+            }
+            fun odd(n) {
+                if (n == 0) return false;
+                return even(n - 1);
+            }
+            print sum(200000, 0);
+            print even(200001);
+            """;
+
+    static final String rebinding = """
+            fun add(a, b) { return a + b; }
+            fun sub(a, b) { return a - b; }
+            var f = add;
+            var i = 0;
+            while (i < 3) {
+                print f(5, 2);
+                f = sub;
+                i = i + 1;
+            }
+            fun add(a, b) { return a * b; }
+            print add(5, 2);
+            """;
+
+    static final String arities = """
+            fun zero() { return 0; }
+            fun two(a, b) { return a - b; }
+            fun four(a, b, c, d) { return a - b - c - d; }
+            fun six(a, b, c, d, e, f) { return a - b - c - d - e - f; }
+            fun count(n, acc) { if (n == 0) return acc; return count(n - 1, acc + 1); }
+            print zero();
+            print two(9, 2);
+            print four(9, 4, 3, 2);
+            print six(21, 6, 5, 4, 3, 2);
+            print count(5, 0);
+            print clock() > 0;
+            """;
+
+    static final String profiled = """
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            fun run() { return fib(10) + 0; }
+            fun count(n) { if (n == 0) return 1000; return count(n - 1); }
+            print run();
+            print count(1000);
+            """;
+
+    static final String sampled = """
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            fun run() { return fib(24) + 0; }
+            print run();
+            """;
+
     static final String simpleTest = """
     		print 1+2;
     		""";
@@ -159,4 +221,67 @@ public class InterpretTest {
         interpreter.interpret(statements);
         outContent.reset();
     }
+
+    @Test
+    void tailCallTest() {
+        List<Stmt> statements = new Parser(new Scanner(tailcalls).scan()).parse();
+        outContent.reset();
+        new Interpreter().interpret(statements);
+        assertEquals("2.00001E10\nfalse", outContent.toString().trim(), "Tail calls should not overflow the stack");
+        outContent.reset();
+    }
+
+    @Test
+    void inlineCacheTest() {
+        List<Stmt> statements = new Parser(new Scanner(rebinding).scan()).parse();
+        outContent.reset();
+        new Interpreter().interpret(statements);
+        assertEquals("7.0\n3.0\n3.0\n10.0", outContent.toString().trim(), "Calls should see reassigned functions");
+        outContent.reset();
+    }
+
+    @Test
+    void arityTest() {
+        List<Stmt> statements = new Parser(new Scanner(arities).scan()).parse();
+        outContent.reset();
+        new Interpreter().interpret(statements);
+        assertEquals("0.0\n7.0\n0.0\n1.0\n5.0\ntrue", outContent.toString().trim(), "Calls of every arity should bind their arguments");
+        outContent.reset();
+    }
+
+    @Test
+    void profileTest() {
+        List<Stmt> statements = new Parser(new Scanner(profiled).scan()).parse();
+        outContent.reset();
+        Profiler profiler = new Profiler();
+        new Interpreter(profiler).interpret(statements);
+        assertEquals("55.0\n1000.0", outContent.toString().trim(), "Profiling should not change the output");
+        Profiler.Entry fib = profiler.entry("fib");
+        Profiler.Entry run = profiler.entry("run");
+        assertEquals(177, fib.calls(), "Every call should be counted");
+        assertEquals(1001, profiler.entry("count").calls(), "Every call of a tail call chain should be counted");
+        assertEquals(true, fib.exclusiveNanos() <= fib.inclusiveNanos(), "Recursion should be counted once in the inclusive time");
+        assertEquals(true, run.inclusiveNanos() >= fib.inclusiveNanos(), "Callers should include the time of their callees");
+        assertEquals(true, run.exclusiveNanos() <= run.inclusiveNanos() - fib.inclusiveNanos(), "Exclusive time should leave out callees");
+        outContent.reset();
+    }
+
+    @Test
+    void samplingTest() {
+        List<Stmt> statements = new Parser(new Scanner(sampled).scan()).parse();
+        outContent.reset();
+        SamplingProfiler sampler = new SamplingProfiler(2000);
+        Interpreter interpreter = new Interpreter(null, sampler.stack());
+        sampler.start();
+        interpreter.interpret(statements);
+        sampler.stop();
+        assertEquals("46368.0", outContent.toString().trim(), "Sampling should not change the output");
+        assertEquals(0, sampler.stack().depth(), "Every call should leave the stack");
+        Map<String, Long> samples = sampler.samples();
+        assertEquals(true, samples.keySet().stream().allMatch(stack -> stack.startsWith("<script>")),
+                "Every stack should start at the script");
+        assertEquals(true, samples.keySet().stream().anyMatch(stack -> stack.startsWith("<script>;run:2;fib:1;fib:1")),
+                "Stacks should name the Lox functions and their lines");
+        outContent.reset();
+    }
 }
@@ -0,0 +1,153 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Jit.FunctionCompiler;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// runs functions often enough for the Interpreter to compile them
+public class JitTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    static final String hot = """
+            fun sum(n) {
+                var total = 0;
+                var i = 0;
+                while (i < n) {
+                    var square = i * i;
+                    if (square > 10 and !(i == 7)) { total = total + square / 2; } else { total = total - 1; }
+                    i = i + 1;
+                }
+                return total;
+            }
+            fun count(n, acc) { if (n <= 0) return acc; return count(n - 1, acc + n); }
+            fun five(a, b, c, d, e) { return a + b + c + d + e; }
+            fun label(x) { if (x) return "yes"; return "no"; }
+            fun outer() {
+                var base = 0;
+                fun inner() { base = base + 1; return base; }
+                return inner;
+            }
+            var next = outer();
+            var i = 0;
+            while (i < 1500) {
+                sum(20);
+                count(10, 0);
+                five(1, 2, 3, 4, i);
+                label(i < 5);
+                next();
+                i = i + 1;
+            }
+            print sum(20);
+            print count(100000, 0);
+            print five(1, 2, 3, 4, 5);
+            print label(false);
+            print next();
+            print five("a", 2, 3, 4, 5) == nil;
+            """;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    private static Interpreter run(String program) {
+        outContent.reset();
+        List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+        errContent.reset();
+        Interpreter interpreter = new Interpreter(System.out, new PrintStream(errContent));
+        interpreter.interpret(statements);
+        return interpreter;
+    }
+
+    private static boolean compiled(Interpreter interpreter, String name) {
+        Object function = interpreter.globals.get(new Token(TokenType.IDENTIFIER, name, null, 0));
+        return function instanceof LoxFunction && ((LoxFunction) function).isCompiled();
+    }
+
+    @Test
+    void compiledTest() {
+        Interpreter interpreter = run(hot);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        assertEquals("1198.5\n5.00005E9\n15.0\nno\n1501.0", output,
+                "Compiled functions should compute what the interpreted ones do");
+        assertTrue(errContent.toString().contains("RuntimeError: Operand must be a number."),
+                "Adding a string should be a runtime error");
+        if (FunctionCompiler.THRESHOLD <= 0) return;
+        assertTrue(compiled(interpreter, "sum"), "A hot function should be compiled");
+        assertTrue(compiled(interpreter, "count"), "A function with a tail call to itself should be compiled");
+        assertTrue(compiled(interpreter, "five"), "A function with more than four parameters should be compiled");
+        assertFalse(compiled(interpreter, "outer"), "A function that declares a function is not compiled");
+    }
+
+    @Test
+    void typeErrorTest() {
+        Interpreter interpreter = run("var g = 1; fun twice() { return g * 2; }\n"
+                + "var i = 0; while (i < 1500) { twice(); i = i + 1; }\n"
+                + "g = \"s\"; print twice();");
+        assertTrue(errContent.toString().contains("RuntimeError: Operand must be a number."),
+                "Compiled code should report a type error like the Interpreter: " + errContent);
+        if (FunctionCompiler.THRESHOLD <= 0) return;
+        assertTrue(compiled(interpreter, "twice"), "twice should have been compiled");
+    }
+
+    @Test
+    void operandOrderTest() {
+        String functions = "var g = 1; var z = 1; var n = 0;\n"
+                + "fun side() { n = n + 1; return z; }\n"
+                + "fun less() { if (g < side()) return 1; return 0; }\n"
+                + "fun times() { return g * side(); }\n"
+                + "fun over() { return g / side(); }\n"
+                + "var i = 0; while (i < 1500) { less(); times(); over(); i = i + 1; }\n"
+                + "g = nil; n = 0;\n";
+        for (String call : List.of("less();", "times();")) {
+            Interpreter interpreter = run(functions + call);
+            assertTrue(errContent.toString().contains("RuntimeError: Operand must be a number."),
+                    call + " should fail on its left operand: " + errContent);
+            assertEquals(1.0, interpreter.globals.get("n"), call + " should evaluate its right operand first");
+        }
+        Interpreter interpreter = run(functions + "z = 0; over();");
+        assertTrue(errContent.toString().contains("RuntimeError: Cannot divide by zero."),
+                "Division should check the divisor before the left operand: " + errContent);
+        if (FunctionCompiler.THRESHOLD <= 0) return;
+        assertTrue(compiled(interpreter, "less") && compiled(interpreter, "times") && compiled(interpreter, "over"),
+                "The functions should have been compiled");
+    }
+
+    @Test
+    void oversizedTest() {
+        StringBuilder program = new StringBuilder("fun big(x) {\n    var total = x;\n");
+        for (int i = 0; i < 4000; i++) {
+            program.append("    total = total + ").append(i).append(" * x;\n");
+        }
+        program.append("    return total;\n}\nvar i = 0;\nwhile (i < 1500) { big(1); i = i + 1; }\nprint big(2);\n");
+        Interpreter interpreter = run(program.toString());
+        String output = outContent.toString().trim();
+        outContent.reset();
+        assertEquals("1.5996002E7", output, "A function too large to compile should keep running interpreted");
+        LoxFunction big = (LoxFunction) interpreter.globals.get(new Token(TokenType.IDENTIFIER, "big", null, 0));
+        assertFalse(big.isCompiled(), "A function too large for one method is not compiled");
+        assertNull(FunctionCompiler.compile(big), "Compiling a function too large for one method gives up");
+    }
+}
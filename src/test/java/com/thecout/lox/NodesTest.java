@@ -0,0 +1,93 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Nodes.NodeInterpreter;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// runs the programs of InterpretTest on the node tree
+public class NodesTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final ByteArrayOutputStream errContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+    private static final PrintStream originalErr = System.err;
+
+    static final String specializing = """
+            fun add(a, b) { return a + b; }
+            var i = 0;
+            while (i < 3) {
+                print add(i, 0.5);
+                i = i + 1;
+            }
+            print add(1, 2);
+            print 1 < 2 and !false;
+            """;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+        System.setErr(new PrintStream(errContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    private static String run(String program) {
+        outContent.reset();
+        errContent.reset();
+        List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+        new NodeInterpreter().interpret(statements);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    @Test
+    void simpleTest() {
+        assertEquals("3.0", run(InterpretTest.simpleTest));
+    }
+
+    @Test
+    void loopTest() {
+        assertEquals("5.0", run(InterpretTest.looptest), "Loop test 1 should eval to 5");
+        assertEquals("5.0", run(InterpretTest.looptest2), "Loop test 2 should eval to 5");
+    }
+
+    @Test
+    void arithmeticTest() {
+        assertEquals("6.0", run(InterpretTest.conditionaltest1), "Conditional test 1 should eval to 6");
+        assertEquals("7.0", run(InterpretTest.arithmetic1), "Arithmetic test 1 should eval to 7");
+        assertEquals("13.0", run(InterpretTest.arithmetic2), "Arithmetic test 2 should eval to 13");
+    }
+
+    @Test
+    void callTest() {
+        assertEquals("7.0\n3.0\n3.0\n10.0", run(InterpretTest.rebinding), "Calls should see reassigned functions");
+        assertEquals("0.0\n7.0\n0.0\n1.0\n5.0\ntrue", run(InterpretTest.arities), "Calls of every arity should bind their arguments");
+        assertEquals("2.0\ntrue", run(VmTest.closures), "Closures should share their variables");
+    }
+
+    @Test
+    void specializationTest() {
+        assertEquals("0.5\n1.5\n2.5\n3.0\ntrue", run(specializing), "Additions should specialize to numbers");
+        assertEquals("0.5\n1.5\n2.5\n3.0\ntrue", run(specializing + "print add(\"lo\", \"x\");"));
+        assertEquals("Operand must be a number.\n[line 0]", errContent.toString().trim(),
+                "A specialized addition should fail on strings like the ast engine does");
+    }
+
+    @Test
+    void tailCallTest() {
+        assertEquals("2.00001E10\nfalse", run(InterpretTest.tailcalls), "Tail calls should not grow the stack");
+    }
+}
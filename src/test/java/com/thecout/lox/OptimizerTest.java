@@ -0,0 +1,44 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.Binary;
+import com.thecout.lox.Parser.Expr.Literal;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Block;
+import com.thecout.lox.Parser.Stmts.Print;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Parser.Stmts.Var;
+import com.thecout.lox.Traversal.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OptimizerTest {
+    static final String program = """
+            var a = 2 * 3 + (4 - 1) * 1;
+            var b = a * 1 + 2 * 3;
+            var c = -(-a - 0) / 1;
+            if (1 < 2 and !false) print "then"; else print "else";
+            while (1 == 2) print "never";
+            var d = 1 / 0;
+            var e = 2 * 3 * 1;
+            """;
+
+    private static List<Stmt> optimize(String program) {
+        return new Optimizer().optimize(new Parser(new Scanner(program).scan()).parse());
+    }
+
+    @Test
+    void foldTest() {
+        List<Stmt> statements = optimize(program);
+        assertEquals(9.0, ((Literal) ((Var) statements.get(0)).initializer).value, "Expected literal arithmetic to fold");
+        assertEquals("(+ (* a 1.0) 6.0)", ((Var) statements.get(1)).initializer.print(), "Expected a * 1 to stay, a could be no number");
+        assertEquals("--a", ((Var) statements.get(2)).initializer.print(), "Expected - 0 and / 1 to go for numbers");
+        assertTrue(statements.get(3) instanceof Print, "Expected the constant if to be replaced by its then branch");
+        assertTrue(statements.get(4) instanceof Block && ((Block) statements.get(4)).statements.isEmpty(), "Expected the dead loop to go");
+        assertTrue(((Var) statements.get(5)).initializer instanceof Binary, "Expected division by zero to stay a runtime error");
+        assertEquals(6.0, ((Literal) ((Var) statements.get(6)).initializer).value, "Expected folded product times 1 to fold");
+    }
+}
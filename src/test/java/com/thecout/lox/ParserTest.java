@@ -7,6 +7,7 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import com.thecout.lox.Parser.ParallelParser;
 import com.thecout.lox.Parser.Parser;
 import com.thecout.lox.Parser.Expr.Literal;
 import com.thecout.lox.Parser.Stmts.Block;
@@ -14,6 +15,7 @@ import com.thecout.lox.Parser.Stmts.Function;
 import com.thecout.lox.Parser.Stmts.Print;
 import com.thecout.lox.Parser.Stmts.Stmt;
 import com.thecout.lox.Parser.Stmts.While;
+import com.thecout.lox.Traversal.AstPrinter;
 
 public class ParserTest {
     static final String program = """
@@ -55,4 +57,40 @@ public class ParserTest {
     	assertTrue(p.expression instanceof Literal, "Expected Assign got " + p.expression.getClass().getName());
     	assertTrue(w.condition instanceof Literal, "Expected Assign got " + w.condition.getClass().getName());
     }
+
+    @Test
+    void parseTokenStream() {
+        String source = program + ScannerTest.program4;
+        int[] pulled = {0};
+        Scanner scanner = new Scanner(source);
+        List<Stmt> streamed = new Parser(() -> {
+            pulled[0]++;
+            return scanner.next();
+        }).parse();
+        List<Token> tokens = new Scanner(source).scan();
+        List<Stmt> listed = new Parser(tokens).parse();
+        List<Stmt> buffered = new Parser(new Scanner(source).scanBuffer()).parse();
+        AstPrinter printer = new AstPrinter();
+        assertEquals(listed.size(), streamed.size(), "Expected the same number of statements");
+        assertEquals(listed.size(), buffered.size(), "Expected the same number of statements");
+        for (int i = 0; i < listed.size(); i++) {
+            assertEquals(printer.print(listed.get(i)), printer.print(streamed.get(i)), "Expected the same statement");
+            assertEquals(printer.print(listed.get(i)), printer.print(buffered.get(i)), "Expected the same statement");
+        }
+        assertEquals(tokens.size(), pulled[0], "Expected every token to be pulled exactly once");
+    }
+
+    @Test
+    void parseParallel() {
+        String source = (program + program2 + ScannerTest.program3 + ScannerTest.program4
+                + "if (a) print 1; else { print 2; }\nvar x = 1;\n").repeat(20);
+        TokenBuffer tokens = new Scanner(source).scanBuffer();
+        List<Stmt> expected = new Parser(tokens).parse();
+        List<Stmt> actual = ParallelParser.parse(tokens);
+        AstPrinter printer = new AstPrinter();
+        assertEquals(expected.size(), actual.size(), "Expected the same number of statements");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(printer.print(expected.get(i)), printer.print(actual.get(i)), "Expected statements in source order");
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Expr.Binary;
+import com.thecout.lox.Parser.Expr.Variable;
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Block;
+import com.thecout.lox.Parser.Stmts.Function;
+import com.thecout.lox.Parser.Stmts.Print;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Parser.Stmts.Var;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Traversal.Resolver;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ResolverTest {
+    static final String program = """
+            var g = 1;
+            fun f(a, b) {
+                var c = a;
+                {
+                    print c + g;
+                }
+            }
+            """;
+
+    static final String closures = """
+            fun makeCounter() {
+                var count = 0;
+                fun inc() {
+                    count = count + 1;
+                    return count;
+                }
+                return inc;
+            }
+            var counter = makeCounter();
+            counter();
+            print counter();
+            var x = 1;
+            {
+                var x = 2;
+                print x;
+            }
+            print x;
+            """;
+
+    @Test
+    void slotTest() {
+        List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+        new Resolver().resolve(statements);
+        assertEquals(-1, ((Var) statements.get(0)).slot, "Expected top level var to stay global");
+        Function f = (Function) statements.get(1);
+        assertEquals(3, f.slots, "Expected frame of a, b and c");
+        assertEquals(2, ((Var) f.body.get(0)).slot, "Expected c after the parameters");
+        Block block = (Block) f.body.get(1);
+        assertEquals(0, block.slots, "Expected block without declarations to have no scope");
+        Binary sum = (Binary) ((Print) block.statements.get(0)).expression;
+        assertEquals(0, ((Variable) sum.left).depth, "Expected c in the function frame");
+        assertEquals(2, ((Variable) sum.left).slot, "Expected c in slot 2");
+        assertEquals(-1, ((Variable) sum.right).depth, "Expected g to be global");
+    }
+
+    @Test
+    void closureTest() {
+        ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(outContent));
+        try {
+            List<Stmt> statements = new Parser(new Scanner(closures).scan()).parse();
+            new Interpreter().interpret(statements);
+        } finally {
+            System.setOut(originalOut);
+        }
+        assertEquals("2.0\n2.0\n1.0", outContent.toString().trim(), "Expected counter and shadowed variables");
+    }
+}
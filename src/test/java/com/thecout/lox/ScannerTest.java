@@ -1,7 +1,13 @@
 package com.thecout.lox;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -145,5 +151,104 @@ public class ScannerTest {
 				"Expected " + TokenType.STRING + ", got " + actual.get(1).type);
 		assertEquals("Hello World", actual.get(1).literal, "Expected Hello World got " + actual.get(1).literal);
 	}
-}
 
+	@Test
+	void scanCommentsAndMultiLineStrings() {
+		Scanner scanner = new Scanner("var orchid = 1; // or and\nprint \"a\nb\" >= iff;");
+		List<Token> actual = scanner.scan();
+		List<TokenType> expected = Arrays.asList(TokenType.VAR, TokenType.IDENTIFIER, TokenType.EQUAL,
+				TokenType.NUMBER, TokenType.SEMICOLON, TokenType.PRINT, TokenType.STRING, TokenType.GREATER_EQUAL,
+				TokenType.IDENTIFIER, TokenType.SEMICOLON, TokenType.EOF);
+		assertEquals(expected.size(), actual.size(), "Expected " + expected.size() + " tokens, got " + actual.size());
+		for (int i = 0; i < actual.size(); i++) {
+			assertEquals(expected.get(i), actual.get(i).type,
+					"Expected " + expected.get(i) + ", got " + actual.get(i).type);
+		}
+		assertEquals("a\nb", actual.get(6).literal, "Expected string to span two lines");
+		assertEquals(2, actual.get(9).line, "Expected line count to include the string newline");
+	}
+
+	@Test
+	void scanStreamed() throws IOException {
+		String source = program4.repeat(5000) + "print \"\u00fcn\u00efcode\";";
+		List<Token> expected = new Scanner(source).scan();
+		Path file = Files.createTempFile("scanner", ".lox");
+		try {
+			Files.writeString(file, source);
+			try (Scanner reader = new Scanner(new StringReader(source)); Scanner mapped = new Scanner(file)) {
+				for (Token token : expected) {
+					Token read = reader.next();
+					Token map = mapped.next();
+					assertEquals(token.toString() + token.line, read.toString() + read.line, "Expected reader to scan the same tokens");
+					assertEquals(token.toString() + token.line, map.toString() + map.line, "Expected mapped file to scan the same tokens");
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void scanTokenBuffer() {
+		String source = program4 + "print \"a string\" != 1.5; // comment\n";
+		List<Token> expected = new Scanner(source).scan();
+		TokenBuffer actual = new Scanner(source).scanBuffer();
+		assertEquals(expected.size(), actual.size(), "Expected " + expected.size() + " tokens, got " + actual.size());
+		for (int i = 0; i < actual.size(); i++) {
+			Token token = actual.token(i);
+			assertEquals(expected.get(i).type, actual.type(i), "Expected " + expected.get(i).type + ", got " + actual.type(i));
+			assertEquals(expected.get(i).lexeme, actual.lexeme(i).toString(), "Expected lexeme views to match the tokens");
+			assertEquals(expected.get(i).literal, token.literal, "Expected " + expected.get(i).literal + ", got " + token.literal);
+			assertEquals(expected.get(i).line, actual.line(i), "Expected line " + expected.get(i).line + ", got " + actual.line(i));
+		}
+	}
+
+	@Test
+	void scanParallel() {
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 4000; i++) {
+			source.append("var s").append(i).append(" = \"first line\n");
+			for (int j = 0; j < i % 20; j++) {
+				source.append("not \" a ; token\n");
+			}
+			source.append("\";\nprint s").append(i).append(" + 1;\n");
+		}
+		TokenBuffer expected = new Scanner(source.toString()).scanBuffer();
+		TokenBuffer actual = new Scanner(source.toString()).scanParallel();
+		assertEquals(expected.size(), actual.size(), "Expected " + expected.size() + " tokens, got " + actual.size());
+		for (int i = 0; i < actual.size(); i++) {
+			assertEquals(expected.type(i), actual.type(i), "Expected " + expected.type(i) + ", got " + actual.type(i));
+			assertEquals(expected.start(i), actual.start(i), "Expected token " + i + " at " + expected.start(i));
+			assertEquals(expected.line(i), actual.line(i), "Expected line " + expected.line(i) + ", got " + actual.line(i));
+		}
+	}
+
+	@Test
+	void scanParallelErrors() {
+		StringBuilder source = new StringBuilder();
+		for (int i = 0; i < 8000; i++) {
+			source.append("var s").append(i).append(i % 1000 == 0 ? " = @;\n" : " = 1;\n");
+		}
+		List<String> expected = new ArrayList<>();
+		new Scanner(source.toString(), expected).scanBuffer();
+		List<String> errors = new ArrayList<>();
+		Scanner scanner = new Scanner(source.toString(), errors);
+		scanner.scanParallel();
+		assertEquals(8, expected.size(), "Expected an error in every thousandth line");
+		assertEquals(expected, errors, "Expected the errors of all chunks in source order");
+		assertTrue(scanner.hadError(), "Expected errors of the chunks to count as scan errors");
+	}
+
+	@Test
+	void scanInternedSymbols() {
+		List<Token> tokens = new Scanner("var count = count + total; print total;").scan();
+		Token count = tokens.get(1);
+		TokenBuffer buffer = new Scanner("count").scanBuffer();
+		assertEquals(count.symbol, tokens.get(3).symbol, "Expected the same name to get the same symbol");
+		assertEquals(count.symbol, buffer.token(0).symbol, "Expected token buffers to share the symbol table");
+		assertEquals(true, count.lexeme == tokens.get(3).lexeme, "Expected the same name to share one String");
+		assertEquals(true, count.symbol != tokens.get(5).symbol, "Expected different names to get different symbols");
+		assertEquals("total", Symbols.name(tokens.get(5).symbol), "Expected the symbol to map back to its name");
+		assertEquals(-1, tokens.get(0).symbol, "Expected keywords to have no symbol");
+	}
+}
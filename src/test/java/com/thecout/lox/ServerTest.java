@@ -0,0 +1,100 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Traversal.InterpreterUtils.Budget;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// runs scripts through a LoxServer on an ephemeral port
+public class ServerTest {
+    private static LoxServer server;
+
+    @BeforeAll
+    public static void startServer() throws IOException {
+        server = new LoxServer(0, new Budget().maxSteps(1_000_000));
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    private static String submit(String program) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            socket.getOutputStream().write(program.getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void runTest() {
+        assertEquals("7.0", submit(InterpretTest.arithmetic1), "The output of print should be sent back");
+        assertEquals("0.0\n7.0\n0.0\n1.0\n5.0\ntrue", submit(InterpretTest.arities), "Every line should be sent back");
+    }
+
+    @Test
+    void globalsTest() {
+        assertEquals("1.0", submit("var leaked = 1; print leaked;"));
+        String output = submit("print leaked;");
+        assertEquals(true, output.contains("Undefined variable 'leaked'."),
+                "Every script should start with fresh globals: " + output);
+    }
+
+    @Test
+    void errorTest() {
+        assertEquals("0 Expected ';' after variable declaration.", submit("var x = ;"),
+                "Parse errors should be sent back instead of running the script");
+        assertEquals("0 Expected '}' after block.", submit("{ print 1;"),
+                "An unterminated block should end the parse at the end of the script");
+        assertEquals("0 Expected '}' after block.", submit("fun f() { print 1;"));
+    }
+
+    @Test
+    void runtimeErrorTest() {
+        assertEquals("1.0\nCannot divide by zero.\n[line 1]", submit("print 1;\nvar z = 0; print 1 / z;"),
+                "Runtime errors should be sent as a message and a line");
+        assertEquals("Operand must be a number.\n[line 0]", submit("print \"a\" - 1;"),
+                "Type errors should be runtime errors with a line");
+        assertEquals("Condition must be a boolean.", submit("if (1) print 2;"));
+        assertEquals("Stack overflow.", submit("fun f(n) { return f(n + 1) + 1; } f(0);"));
+        assertEquals("Exceeded the budget of 1000000 steps.", submit("while (true) {}"),
+                "Scripts should not run longer than the budget of the server");
+        assertEquals("7.0", submit(InterpretTest.arithmetic1), "The server should survive failing scripts");
+    }
+
+    @Test
+    void concurrentTest() {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String program = "fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+                    + "var i = " + i + "; print fib(18) + i;";
+            results.add(CompletableFuture.supplyAsync(() -> submit(program)));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(2584.0 + i + "", results.get(i).join(), "Concurrent clients should not see each other");
+        }
+    }
+}
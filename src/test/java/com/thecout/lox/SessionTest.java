@@ -0,0 +1,126 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Jit.FunctionCompiler;
+import com.thecout.lox.Traversal.CompiledProgram;
+import com.thecout.lox.Traversal.InterpreterUtils.LoxFunction;
+import com.thecout.lox.Traversal.InterpreterUtils.RuntimeError;
+import com.thecout.lox.Traversal.Session;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// runs one compiled program in many sessions at once
+public class SessionTest {
+    static final String rule = """
+            fun twice(x) { return x * 2; }
+            fun thrice(x) { return x * 3; }
+            var f = twice;
+            if (input > 500) f = thrice;
+            var result = 0;
+            var i = 0;
+            while (i < 100) {
+                result = result + f(i);
+                i = i + 1;
+            }
+            print result;
+            """;
+
+    static final String hot = """
+            fun sq(x) { return x * x; }
+            var total = 0;
+            var i = 0;
+            while (i < 1500) {
+                total = total + sq(i);
+                i = i + 1;
+            }
+            """;
+
+    private static String output(ByteArrayOutputStream out) {
+        return out.toString().trim();
+    }
+
+    @Test
+    void sessionTest() {
+        CompiledProgram program = CompiledProgram.compile(rule);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Session session = program.newSession(new PrintStream(out), System.err).define("input", 1.0).run();
+        assertEquals(9900.0, session.get("result"), "Results should be readable from the globals");
+        assertEquals("9900.0", output(out), "The session should print to its own stream");
+        assertEquals(null, session.get("missing"), "Undefined globals should read as nil");
+    }
+
+    @Test
+    void lookupTest() {
+        Session session = CompiledProgram.compile(rule).newSession(new PrintStream(new ByteArrayOutputStream()), System.err);
+        int symbols = Symbols.size();
+        assertEquals(null, session.get("neverDefinedAnywhere"), "Unknown names should read as nil");
+        assertEquals(symbols, Symbols.size(), "Reading a global should not intern its name");
+        session.define("definedFromTheHost", 2.0);
+        assertEquals(symbols, Symbols.size(), "Globals should be keyed by name, not by an interned symbol");
+        assertEquals(2.0, session.get("definedFromTheHost"), "Globals defined by the host should be readable");
+        assertEquals(9900.0, session.define("input", 1.0).run().get("result"), "Globals should grow as they are defined");
+    }
+
+    @Test
+    void concurrentTest() throws Exception {
+        CompiledProgram program = CompiledProgram.compile(rule);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                double input = i;
+                results.add(pool.submit(() -> program.newSession(new PrintStream(new ByteArrayOutputStream()), System.err)
+                        .define("input", input).run().get("result")));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i > 500 ? 14850.0 : 9900.0, results.get(i).get(),
+                        "Sessions should call their own functions from the shared call sites");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void sharedCodeTest() {
+        CompiledProgram program = CompiledProgram.compile(hot);
+        PrintStream out = new PrintStream(new ByteArrayOutputStream());
+        for (int i = 0; i < 10; i++) {
+            program.newSession(out, System.err).run();
+        }
+        ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+        long loaded = classes.getTotalLoadedClassCount();
+        Session session = null;
+        for (int i = 0; i < 200; i++) {
+            session = program.newSession(out, System.err).run();
+        }
+        assertEquals(1123875250.0, session.get("total"), "Sessions should compute what the interpreter does");
+        assertTrue(classes.getTotalLoadedClassCount() - loaded < 20,
+                "Sessions should share the compiled code instead of compiling a class each");
+        if (FunctionCompiler.THRESHOLD <= 0) return;
+        assertTrue(((LoxFunction) session.get("sq")).isCompiled(),
+                "A function compiled by an earlier session should be compiled in a new one");
+    }
+
+    @Test
+    void errorTest() {
+        CompiledProgram program = CompiledProgram.compile(rule);
+        RuntimeError error = assertThrows(RuntimeError.class, () -> program.newSession().run(),
+                "Runtime errors should be thrown to the caller");
+        assertEquals("Undefined variable 'input'.", error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> CompiledProgram.compile("var x = ;"),
+                "Programs with parse errors should not compile");
+    }
+}
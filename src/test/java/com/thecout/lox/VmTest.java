@@ -0,0 +1,155 @@
+package com.thecout.lox;
+
+import com.thecout.lox.Parser.Parser;
+import com.thecout.lox.Parser.Stmts.Stmt;
+import com.thecout.lox.Traversal.Interpreter;
+import com.thecout.lox.Vm.VM;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// runs the programs of InterpretTest on the bytecode VM
+public class VmTest {
+    private static final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private static final PrintStream originalOut = System.out;
+
+    static final String closures = """
+            fun makeCounter() {
+                var count = 0;
+                fun inc() {
+                    count = count + 1;
+                    return count;
+                }
+                return inc;
+            }
+            var counter = makeCounter();
+            counter();
+            print counter();
+            print 1 == 1 and !(2 >= 3);
+            """;
+
+    // closures made in different iterations of a loop capture different variables
+    static final String loopClosures = """
+            var first;
+            var second;
+            var i = 0;
+            while (i < 2) {
+                var j = i;
+                fun f() { print j; }
+                if (i == 0) first = f; else second = f;
+                i = i + 1;
+            }
+            first();
+            second();
+            fun outer() {
+                var total = 0;
+                var a;
+                var b;
+                for (var k = 0; k < 2; k = k + 1) {
+                    var step = k + 1;
+                    {
+                        var unused = 0;
+                        fun add() { total = total + step; step = step * 10; return total; }
+                        if (k == 0) a = add; else b = add;
+                    }
+                }
+                print a();
+                print b();
+                print a();
+                print b();
+            }
+            outer();
+            """;
+
+    @BeforeAll
+    public static void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterAll
+    public static void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    private static String run(String program) {
+        outContent.reset();
+        List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+        new VM().interpret(statements);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    private static String runAst(String program) {
+        outContent.reset();
+        List<Stmt> statements = new Parser(new Scanner(program).scan()).parse();
+        new Interpreter(System.out, System.err).interpret(statements);
+        String output = outContent.toString().trim();
+        outContent.reset();
+        return output;
+    }
+
+    @Test
+    void simpleTest() {
+        assertEquals("3.0", run(InterpretTest.simpleTest));
+    }
+
+    @Test
+    void loopTest() {
+        assertEquals("5.0", run(InterpretTest.looptest), "Loop test 1 should eval to 5");
+    }
+
+    @Test
+    void loopTest2() {
+        assertEquals("5.0", run(InterpretTest.looptest2), "Loop test 2 should eval to 5");
+    }
+
+    @Test
+    void conditionalTest() {
+        assertEquals("6.0", run(InterpretTest.conditionaltest1), "Conditional test 1 should eval to 6");
+    }
+
+    @Test
+    void arithmeticTest() {
+        assertEquals("7.0", run(InterpretTest.arithmetic1), "Arithmetic test 1 should eval to 7");
+    }
+
+    @Test
+    void arithmeticTest2() {
+        assertEquals("13.0", run(InterpretTest.arithmetic2), "Arithmetic test 2 should eval to 13");
+    }
+
+    @Test
+    void noFailTest() {
+        assertEquals("7.0", run(InterpretTest.program).split("\n")[0]);
+    }
+
+    @Test
+    void closureTest() {
+        assertEquals("2.0\ntrue", run(closures));
+    }
+
+    @Test
+    void loopClosureTest() {
+        assertEquals("0.0\n1.0\n1.0\n3.0\n13.0\n33.0", runAst(loopClosures));
+        assertEquals(runAst(loopClosures), run(loopClosures), "The VM should capture what the ast engine does");
+    }
+
+    @Test
+    void streamTest() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        List<Stmt> statements = new Parser(new Scanner("print 1 + 2; if (nil) print 3;").scan()).parse();
+        new VM(new PrintStream(out), new PrintStream(err)).interpret(statements);
+        assertEquals("3.0", out.toString().trim(), "The VM should print to its own stream");
+        assertEquals("Condition must be a boolean.", err.toString().lines().findFirst().orElse(""),
+                "Conditions should be booleans as in the ast engine");
+        assertEquals("", outContent.toString(), "Nothing should go to System.out");
+    }
+}